@@ -0,0 +1,87 @@
+package com.i2s.worfklow_api_final.benchmark;
+
+import com.i2s.worfklow_api_final.dto.TaskDTO;
+import com.i2s.worfklow_api_final.dto.UserDTO;
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.model.Job;
+import com.i2s.worfklow_api_final.model.Role;
+import com.i2s.worfklow_api_final.model.Step;
+import com.i2s.worfklow_api_final.model.Task;
+import com.i2s.worfklow_api_final.model.User;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Per-object cost of the reflective ModelMapper mapping the services used before, against the DTO constructors
+// that replaced it. Run with: mvn -Pjmh test-compile exec:exec -Djmh.args=DtoMappingBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DtoMappingBenchmark {
+    private ModelMapper modelMapper;
+    private Task task;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+
+        Step step = new Step();
+        step.setId(3);
+        step.setStepName("Review");
+        task = new Task();
+        task.setId(42);
+        task.setTaskName("Check the drawings");
+        task.setDescription("Compare the drawings against the specification");
+        task.setInstructions("Mark every deviation");
+        task.setRequiredVerification(true);
+        task.setStep(step);
+        task.setStatus(TaskStatus.STARTING);
+        task.setCreatedAt(LocalDateTime.now());
+        task.setStartedAt(LocalDateTime.now());
+
+        Role role = new Role();
+        role.setId(1);
+        role.setName("ROLE_USER");
+        Job job = new Job();
+        job.setId(5);
+        job.setTitle("Engineer");
+        user = new User();
+        user.setId(7);
+        user.setFullName("Jane Doe");
+        user.setEmail("jane@example.com");
+        user.setRole(role);
+        user.setPasswordHash("$2a$10$abcdefghijklmnopqrstuv");
+        user.setPhoneNumber("+351900000000");
+        user.setAddress("Lisbon");
+        user.setJob(job);
+    }
+
+    @Benchmark
+    public TaskDTO taskModelMapper() {
+        return modelMapper.map(task, TaskDTO.class);
+    }
+
+    @Benchmark
+    public TaskDTO taskConstructor() {
+        return new TaskDTO(task);
+    }
+
+    @Benchmark
+    public UserDTO userModelMapper() {
+        return modelMapper.map(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO userConstructor() {
+        return new UserDTO(user);
+    }
+}
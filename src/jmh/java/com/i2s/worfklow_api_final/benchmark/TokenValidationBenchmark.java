@@ -0,0 +1,62 @@
+package com.i2s.worfklow_api_final.benchmark;
+
+import com.i2s.worfklow_api_final.security.CustomUserDetails;
+import com.i2s.worfklow_api_final.security.JwtTokenProvider;
+import com.i2s.worfklow_api_final.security.TokenClaims;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Token validation throughput of the shared parser and key, against the previous per-call parser built from the
+// String secret, which parsed the token three times per request (validate, user id, role).
+// Run with: mvn -Pjmh test-compile exec:exec -Djmh.args=TokenValidationBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class TokenValidationBenchmark {
+    private String secret;
+    private JwtTokenProvider jwtTokenProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] key = new byte[64];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) (i * 31 + 7);
+        }
+        secret = Base64.getEncoder().encodeToString(key);
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationInMs", 3_600_000);
+        jwtTokenProvider.init();
+        token = jwtTokenProvider.generateToken(new CustomUserDetails(42, "jane@example.com", "", "ROLE_USER"));
+    }
+
+    @Benchmark
+    public Optional<TokenClaims> sharedParser() {
+        return jwtTokenProvider.parseClaims(token);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void parserPerCall(Blackhole blackhole) {
+        blackhole.consume(Jwts.parser().setSigningKey(secret).parseClaimsJws(token));
+        Claims claims = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        blackhole.consume(Long.parseLong(claims.getSubject()));
+        blackhole.consume(Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody().get("role", String.class));
+    }
+}
@@ -0,0 +1,102 @@
+package com.i2s.worfklow_api_final.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${actions.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${actions.executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${websocket.push.pool-size:4}")
+    private int pushPoolSize;
+
+    @Value("${outbox.sms.concurrency:4}")
+    private int smsConcurrency;
+
+    @Value("${auth.executor.pool-size:4}")
+    private int authPoolSize;
+
+    @Value("${auth.executor.queue-capacity:100}")
+    private int authQueueCapacity;
+
+    @Value("${image.executor.pool-size:2}")
+    private int imagePoolSize;
+
+    @Value("${image.executor.queue-capacity:200}")
+    private int imageQueueCapacity;
+
+    // Bounded pool for method executions (emails, SMS, ...) so they never run on Tomcat request threads
+    @Bean(name = "actionExecutor")
+    public ThreadPoolTaskExecutor actionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("action-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Concurrent Vonage submissions for the outbox dispatcher; when full, the dispatcher thread sends itself
+    @Bean(name = "smsExecutor")
+    public ThreadPoolTaskExecutor smsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(smsConcurrency);
+        executor.setMaxPoolSize(smsConcurrency);
+        executor.setQueueCapacity(smsConcurrency * 4);
+        executor.setThreadNamePrefix("sms-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // WebSocket sends, kept off the threads that change task state. Sends are asynchronous where the container
+    // supports it, and a blocking send never holds more than one of these threads per session
+    @Bean(name = "pushExecutor")
+    public ThreadPoolTaskExecutor pushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pushPoolSize);
+        executor.setMaxPoolSize(pushPoolSize);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("push-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Password hashing for logins. Bounded on both ends: a login storm queues here and is then rejected,
+    // instead of tying up request threads and CPU the rest of the API needs
+    @Bean(name = "authExecutor")
+    public ThreadPoolTaskExecutor authExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(authPoolSize);
+        executor.setMaxPoolSize(authPoolSize);
+        executor.setQueueCapacity(authQueueCapacity);
+        executor.setThreadNamePrefix("auth-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Image derivative rendering; decoding and scaling are CPU and memory heavy, so few threads and a bounded
+    // queue. Rejected work is not lost, the derivative is rendered again the next time it is requested
+    @Bean(name = "imageExecutor")
+    public ThreadPoolTaskExecutor imageExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(imagePoolSize);
+        executor.setMaxPoolSize(imagePoolSize);
+        executor.setQueueCapacity(imageQueueCapacity);
+        executor.setThreadNamePrefix("image-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,17 +1,32 @@
 package com.i2s.worfklow_api_final.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.MultipartConfigFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
 import javax.servlet.MultipartConfigElement;
 
 @Configuration
 public class FileUploadConfiguration {
 
+    // Empty keeps the container default (its work directory under java.io.tmpdir)
+    @Value("${spring.servlet.multipart.location:}")
+    private String location;
+
+    // Parts below this size stay in memory and are never spooled to disk
+    @Value("${file.upload.memory-threshold-bytes:1048576}")
+    private long memoryThresholdBytes;
+
     @Bean
     public MultipartConfigElement multipartConfigElement() {
         MultipartConfigFactory factory = new MultipartConfigFactory();
-        factory.setLocation("D:\\tomcatTempFiles");
+        if (StringUtils.hasText(location)) {
+            factory.setLocation(location);
+        }
+        factory.setFileSizeThreshold(DataSize.ofBytes(memoryThresholdBytes));
         return factory.createMultipartConfig();
     }
 
@@ -1,11 +1,13 @@
 package com.i2s.worfklow_api_final.configuration;
 
 
+import com.i2s.worfklow_api_final.security.AuthenticationCache;
 import com.i2s.worfklow_api_final.security.CustomUserDetailsService;
 import com.i2s.worfklow_api_final.security.JwtAuthenticationFilter;
 import com.i2s.worfklow_api_final.security.JwtTokenProvider;
 import com.i2s.worfklow_api_final.security.RestAuthenticationEntryPoint;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -32,19 +34,28 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final RestAuthenticationEntryPoint unauthorizedHandler;
 
+    private final AuthenticationCache authenticationCache;
+
+    @Value("${auth.bcrypt-strength:10}")
+    private int bcryptStrength;
+
 
     @Autowired
-    public SecurityConfig(JwtTokenProvider tokenProvider, CustomUserDetailsService customUserDetailsService, RestAuthenticationEntryPoint unauthorizedHandler) {
+    public SecurityConfig(JwtTokenProvider tokenProvider, CustomUserDetailsService customUserDetailsService, RestAuthenticationEntryPoint unauthorizedHandler, AuthenticationCache authenticationCache) {
         this.tokenProvider = tokenProvider;
         this.customUserDetailsService = customUserDetailsService;
         this.unauthorizedHandler = unauthorizedHandler;
+        this.authenticationCache = authenticationCache;
 
     }
 
     @Autowired
     public void globalUserDetails(AuthenticationManagerBuilder auth) throws Exception {
+        // The password manager lets a successful login rehash a password stored with a lower BCrypt cost
         auth
-                .userDetailsService(customUserDetailsService);
+                .userDetailsService(customUserDetailsService)
+                .passwordEncoder(passwordEncoder())
+                .userDetailsPasswordManager(customUserDetailsService);
 
     }
 
@@ -55,7 +66,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(tokenProvider, customUserDetailsService);
+        return new JwtAuthenticationFilter(authenticationCache);
     }
 
     @Override
@@ -66,6 +77,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .authorizeRequests()
                 .antMatchers("/api/auth/login").permitAll() // allow unauthenticated access to the login endpoint
                 .antMatchers("/api/public/**").permitAll() // allow unauthenticated access to public endpoints
+                .antMatchers("/notifications").permitAll() // the WebSocket handshake checks the JWT itself (JwtHandshakeInterceptor)
 
                 // secure specific endpoints with roles
                 .antMatchers("/api/admin/**").hasRole("ADMIN") // only users with ADMIN role can access /api/admin endpoints
@@ -87,9 +99,10 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         return source;
     }
 
+    // The single encoder for the application; raising auth.bcrypt-strength upgrades stored hashes on next login
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
 
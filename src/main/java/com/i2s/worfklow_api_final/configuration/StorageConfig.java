@@ -0,0 +1,36 @@
+package com.i2s.worfklow_api_final.configuration;
+
+import com.i2s.worfklow_api_final.storage.BlobStore;
+import com.i2s.worfklow_api_final.storage.LocalBlobStore;
+import com.i2s.worfklow_api_final.storage.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// storage.backend picks where file contents live: local (default) keeps them under filestorage.base-dir on this
+// node, s3 puts them in a bucket every API node shares
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore(@Value("${filestorage.base-dir:uploads/}") String baseDir) {
+        return new LocalBlobStore(Paths.get(baseDir));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public BlobStore s3BlobStore(@Value("${storage.s3.endpoint}") String endpoint,
+                                 @Value("${storage.s3.bucket}") String bucket,
+                                 @Value("${storage.s3.region:us-east-1}") String region,
+                                 @Value("${storage.s3.access-key}") String accessKey,
+                                 @Value("${storage.s3.secret-key}") String secretKey,
+                                 @Value("${storage.s3.part-size:16777216}") long partSize,
+                                 @Value("${storage.s3.timeout-ms:60000}") int timeoutMs) throws IOException {
+        return new S3BlobStore(endpoint, bucket, region, accessKey, secretKey, partSize, timeoutMs);
+    }
+}
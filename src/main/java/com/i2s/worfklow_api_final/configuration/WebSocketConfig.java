@@ -1,5 +1,6 @@
 package com.i2s.worfklow_api_final.configuration;
 
+import com.i2s.worfklow_api_final.websocket.JwtHandshakeInterceptor;
 import com.i2s.worfklow_api_final.websocket.NotificationWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -15,14 +16,16 @@ import org.springframework.web.socket.server.standard.ServerEndpointExporter;
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final  NotificationWebSocketHandler notificationWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
     @Autowired
-    public WebSocketConfig(NotificationWebSocketHandler notificationWebSocketHandler){
+    public WebSocketConfig(NotificationWebSocketHandler notificationWebSocketHandler, JwtHandshakeInterceptor jwtHandshakeInterceptor){
         this.notificationWebSocketHandler = notificationWebSocketHandler;
+        this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(notificationWebSocketHandler, "/notifications");
+        registry.addHandler(notificationWebSocketHandler, "/notifications").addInterceptors(jwtHandshakeInterceptor);
     }
 
     // Optionally, add this Bean if you are running your application in a standalone
@@ -1,20 +1,32 @@
 package com.i2s.worfklow_api_final.controller;
 
 import com.i2s.worfklow_api_final.dto.LoginRequestDTO;
+import com.i2s.worfklow_api_final.security.ClientAddressResolver;
+import com.i2s.worfklow_api_final.security.CustomUserDetails;
 import com.i2s.worfklow_api_final.security.JwtTokenProvider;
+import com.i2s.worfklow_api_final.security.LoginMetrics;
+import com.i2s.worfklow_api_final.security.LoginRateLimiter;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -24,23 +36,54 @@ public class AuthController {
 
     JwtTokenProvider tokenProvider;
 
+    private final LoginRateLimiter loginRateLimiter;
+    private final LoginMetrics loginMetrics;
+    private final TaskExecutor authExecutor;
+    private final ClientAddressResolver clientAddressResolver;
+
     @Autowired
-    public AuthController(AuthenticationManager authenticationManager, JwtTokenProvider tokenProvider) {
+    public AuthController(AuthenticationManager authenticationManager, JwtTokenProvider tokenProvider, LoginRateLimiter loginRateLimiter, LoginMetrics loginMetrics, @Qualifier("authExecutor") TaskExecutor authExecutor, ClientAddressResolver clientAddressResolver) {
         this.authenticationManager = authenticationManager;
         this.tokenProvider = tokenProvider;
+        this.loginRateLimiter = loginRateLimiter;
+        this.loginMetrics = loginMetrics;
+        this.authExecutor = authExecutor;
+        this.clientAddressResolver = clientAddressResolver;
     }
 
+    // Rate limited before any hashing, then authenticated on the auth pool; the request thread is released meanwhile
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequestDTO loginRequest) {
-
-        Authentication authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@RequestBody LoginRequestDTO loginRequest, HttpServletRequest request) {
+        long start = System.nanoTime();
+        if (!loginRateLimiter.tryAcquire(loginRequest.getEmail(), clientAddressResolver.resolve(request))) {
+            loginMetrics.record(LoginMetrics.Outcome.RATE_LIMITED, start);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(loginRateLimiter.getRetryAfterSeconds()))
+                    .body("Too many login attempts, try again later."));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> login(loginRequest, start), authExecutor);
+        } catch (RejectedExecutionException e) {
+            loginMetrics.record(LoginMetrics.Outcome.BUSY, start);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many logins in progress, try again later."));
+        }
+    }
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+    private ResponseEntity<?> login(LoginRequestDTO loginRequest, long start) {
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        } catch (AuthenticationException e) {
+            loginMetrics.record(LoginMetrics.Outcome.FAILURE, start);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid email or password.");
+        }
 
-        String jwt = tokenProvider.generateToken(authentication);
-        Long userId = tokenProvider.getUserIdFromJWT(jwt);
-        String role = tokenProvider.getRoleFromJWT(jwt);
-        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt,userId,role));
+        // The response fields come from the principal the token was built from, not from parsing it back
+        CustomUserDetails userPrincipal = (CustomUserDetails) authentication.getPrincipal();
+        String jwt = tokenProvider.generateToken(userPrincipal);
+        String role = userPrincipal.getAuthorities().iterator().next().getAuthority();
+        loginMetrics.record(LoginMetrics.Outcome.SUCCESS, start);
+        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt, userPrincipal.getId(), role));
     }
 
     @Getter
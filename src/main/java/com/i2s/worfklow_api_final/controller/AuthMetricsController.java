@@ -0,0 +1,34 @@
+package com.i2s.worfklow_api_final.controller;
+
+import com.i2s.worfklow_api_final.security.JwtTokenProvider;
+import com.i2s.worfklow_api_final.security.LoginMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/auth")
+public class AuthMetricsController {
+    private final LoginMetrics loginMetrics;
+    private final JwtTokenProvider tokenProvider;
+
+    @Autowired
+    public AuthMetricsController(LoginMetrics loginMetrics, JwtTokenProvider tokenProvider) {
+        this.loginMetrics = loginMetrics;
+        this.tokenProvider = tokenProvider;
+    }
+
+    // Login outcomes and latency since startup, plus JWT validation outcomes
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("login", loginMetrics.snapshot());
+        metrics.put("tokens", tokenProvider.getValidationCounts());
+        return ResponseEntity.ok(metrics);
+    }
+}
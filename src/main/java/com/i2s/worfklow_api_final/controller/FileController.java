@@ -1,9 +1,15 @@
 package com.i2s.worfklow_api_final.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.FileDTO;
+import com.i2s.worfklow_api_final.enums.ImageVariant;
 import com.i2s.worfklow_api_final.service.FileService;
+import com.i2s.worfklow_api_final.service.ImageDerivativeService;
+import com.i2s.worfklow_api_final.service.StorageService;
+import com.i2s.worfklow_api_final.util.FileRangeWriter;
+import com.i2s.worfklow_api_final.util.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -12,6 +18,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,10 +32,16 @@ import java.util.Optional;
 public class FileController {
 
     private final FileService fileService;
+    private final ObjectMapper objectMapper;
+    private final ImageDerivativeService imageDerivativeService;
+    private final StorageService storageService;
 
     @Autowired
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, ObjectMapper objectMapper, ImageDerivativeService imageDerivativeService, StorageService storageService) {
         this.fileService = fileService;
+        this.objectMapper = objectMapper;
+        this.imageDerivativeService = imageDerivativeService;
+        this.storageService = storageService;
     }
 
     @GetMapping("/user/files")
@@ -31,6 +49,19 @@ public class FileController {
         return ResponseEntity.ok(fileService.getAllFiles());
     }
 
+    @GetMapping("/user/files/cursor")
+    public ResponseEntity<CursorPageDTO<FileDTO>> getFilesAfter(@RequestParam(value = "after", defaultValue = "0") long after, @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(fileService.getFilesAfter(after, CursorPageDTO.clampSize(size)));
+    }
+
+    @GetMapping(value = "/user/files/export", produces = "application/x-ndjson")
+    public void exportFiles(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        try (NdjsonWriter writer = new NdjsonWriter(response.getOutputStream(), objectMapper)) {
+            fileService.streamAllFiles(writer::write);
+        }
+    }
+
     @GetMapping("/user/files/{id}")
     public ResponseEntity<FileDTO> getFileById(@PathVariable long id) {
         return fileService.getFileById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
@@ -56,6 +87,22 @@ public class FileController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
         }
     }
+    // Raw body upload for large files: the request stream is hashed and written to storage as it arrives
+    @PostMapping(value = "/admin/files/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadFileStream(@RequestParam("fileName") String fileName, @RequestHeader(value = "X-Content-Type", required = false) String contentType, HttpServletRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(fileService.storeFile(request.getInputStream(), fileName, contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE));
+        } catch (DataIntegrityViolationException e) {
+            // handle database constraint violation error
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Database constraint violation error occurred.");
+        } catch (IllegalArgumentException e) {
+            // handle invalid input data error
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid input data error occurred.");
+        } catch (Exception e) {
+            // handle any other unexpected error
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
     @PostMapping("/admin/files/imageFiles")
     public ResponseEntity<?> uploadImageFile(@RequestParam("file") MultipartFile file) {
         try {
@@ -90,29 +137,69 @@ public class FileController {
         }
     }
 
+    // One metadata lookup, then conditional and range handling by FileRangeWriter with a zero-copy body.
+    // variant=thumbnail|medium serves a downscaled image, or the original until the derivative is rendered.
     @GetMapping("/user/files/download/{id}")
-    public ResponseEntity<?> downloadFile(@PathVariable long id) {
-        Optional<Resource> resourceOptional = fileService.loadFileAsResource(id);
-
-        if (resourceOptional.isPresent()) {
-            Resource resource = resourceOptional.get();
-
-            String contentType = fileService.getFileById(id)
-                    .map(FileDTO::getContentType)
-                    .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
-
-            String fileName = resource.getFilename();
-            String fileExtension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
+    public void downloadFile(@PathVariable long id, @RequestParam(value = "variant", required = false) String variant, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageVariant imageVariant;
+        try {
+            imageVariant = variant != null ? ImageVariant.fromParameter(variant) : null;
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write(e.getMessage());
+            return;
+        }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                    .header("X-File-Extension", fileExtension)
-                    .body(resource);
+        Optional<FileDTO> fileOptional = fileService.getFileForDownload(id);
+        if (!fileOptional.isPresent()) {
+            writeNotFound(response, id);
+            return;
+        }
+        FileDTO file = fileOptional.get();
+
+        String contentType = file.getContentType() != null ? file.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        String fileName = file.getFileName();
+        String tagSuffix = "";
+        Path path;
+        Optional<ImageDerivativeService.Derivative> derivative = imageVariant != null ? imageDerivativeService.getDerivative(file, imageVariant) : Optional.empty();
+        if (!derivative.isPresent()) {
+            // A shared blob store hands out a short-lived direct URL, so the bytes do not pass through this server
+            Optional<String> presignedUrl = storageService.getPresignedUrl(file, fileName, contentType);
+            if (presignedUrl.isPresent()) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                response.setHeader(HttpHeaders.LOCATION, presignedUrl.get());
+                response.setStatus(HttpStatus.FOUND.value());
+                return;
+            }
+            path = storageService.getLocalPath(file).orElse(null);
+            if (path == null || !Files.isRegularFile(path)) {
+                writeNotFound(response, id);
+                return;
+            }
         } else {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("File not found with ID " + id);
+            path = derivative.get().getPath();
+            contentType = derivative.get().getContentType();
+            String baseName = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+            fileName = baseName + "-" + imageVariant.getParameter() + (contentType.equals("image/png") ? ".png" : ".jpg");
+            tagSuffix = "-" + imageVariant.getParameter();
         }
-    }
+        String fileExtension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
 
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        // The content hash identifies the bytes exactly; files stored before hashing get a weak tag instead
+        String eTag = file.getContentHash() != null
+                ? "\"" + file.getContentHash() + tagSuffix + "\""
+                : "W/\"" + attributes.size() + "-" + attributes.lastModifiedTime().toMillis() + "\"";
 
-}
\ No newline at end of file
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setHeader("X-File-Extension", fileExtension);
+        new FileRangeWriter(path, attributes.size(), attributes.lastModifiedTime().toMillis(), eTag).write(request, response, contentType);
+    }
+
+    private static void writeNotFound(HttpServletResponse response, long id) throws IOException {
+        response.setStatus(HttpStatus.NOT_FOUND.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("File not found with ID " + id);
+    }
+}
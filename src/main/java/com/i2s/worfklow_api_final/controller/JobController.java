@@ -1,13 +1,18 @@
 package com.i2s.worfklow_api_final.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.JobDTO;
 import com.i2s.worfklow_api_final.service.JobService;
+import com.i2s.worfklow_api_final.util.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -15,10 +20,12 @@ import java.util.List;
 public class JobController {
 
     private final JobService jobService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public JobController(JobService jobService) {
+    public JobController(JobService jobService, ObjectMapper objectMapper) {
         this.jobService = jobService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/user/jobs")
@@ -26,6 +33,19 @@ public class JobController {
         return ResponseEntity.ok(jobService.getAllJobs());
     }
 
+    @GetMapping("/user/jobs/cursor")
+    public ResponseEntity<CursorPageDTO<JobDTO>> getJobsAfter(@RequestParam(value = "after", defaultValue = "0") long after, @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(jobService.getJobsAfter(after, CursorPageDTO.clampSize(size)));
+    }
+
+    @GetMapping(value = "/user/jobs/export", produces = "application/x-ndjson")
+    public void exportJobs(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        try (NdjsonWriter writer = new NdjsonWriter(response.getOutputStream(), objectMapper)) {
+            jobService.streamAllJobs(writer::write);
+        }
+    }
+
     @GetMapping("/user/jobs/{id}")
     public ResponseEntity<JobDTO> getJobById(@PathVariable long id) {
         return jobService.getJobById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
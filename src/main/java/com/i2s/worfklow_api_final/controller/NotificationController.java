@@ -1,23 +1,31 @@
 package com.i2s.worfklow_api_final.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.NotificationDTO;
 import com.i2s.worfklow_api_final.service.NotificationService;
+import com.i2s.worfklow_api_final.util.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api")
 public class NotificationController {
     private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public NotificationController(NotificationService notificationService) {
+    public NotificationController(NotificationService notificationService, ObjectMapper objectMapper) {
         this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/user/notifications")
@@ -25,6 +33,19 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.getAllNotifications());
     }
 
+    @GetMapping("/user/notifications/cursor")
+    public ResponseEntity<CursorPageDTO<NotificationDTO>> getNotificationsAfter(@RequestParam(value = "after", defaultValue = "0") long after, @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(notificationService.getNotificationsAfter(after, CursorPageDTO.clampSize(size)));
+    }
+
+    @GetMapping(value = "/user/notifications/export", produces = "application/x-ndjson")
+    public void exportNotifications(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        try (NdjsonWriter writer = new NdjsonWriter(response.getOutputStream(), objectMapper)) {
+            notificationService.streamAllNotifications(writer::write);
+        }
+    }
+
     @GetMapping("/user/notifications/{id}")
     public ResponseEntity<NotificationDTO> getNotificationById(@PathVariable long id) {
         return notificationService.getNotificationById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
@@ -40,6 +61,23 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.getUnreadNotificationsForUser(userId));
     }
 
+    @GetMapping("/user/notifications/user/{userId}/unread/count")
+    public ResponseEntity<Long> getUnreadCountForUser(@PathVariable long userId) {
+        return ResponseEntity.ok(notificationService.getUnreadCountForUser(userId));
+    }
+
+    @PostMapping("/user/notifications/user/{userId}/read")
+    public ResponseEntity<?> markAllNotificationsAsRead(@PathVariable long userId) {
+        try {
+            return ResponseEntity.ok(notificationService.markAllNotificationsAsRead(userId));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            // handle any other unexpected error
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
     @PostMapping("/user/notifications/{id}/read")
     public ResponseEntity<?> markNotificationAsRead(@PathVariable long id) {
         try {
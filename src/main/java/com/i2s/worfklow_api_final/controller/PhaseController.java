@@ -1,8 +1,11 @@
 package com.i2s.worfklow_api_final.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.PhaseDTO;
 import com.i2s.worfklow_api_final.service.PhaseService;
+import com.i2s.worfklow_api_final.util.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
@@ -11,6 +14,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,10 +23,12 @@ import java.util.Optional;
 @RequestMapping("/api")
 public class PhaseController {
     private final PhaseService phaseService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public PhaseController(PhaseService phaseService) {
+    public PhaseController(PhaseService phaseService, ObjectMapper objectMapper) {
         this.phaseService = phaseService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/user/phases")
@@ -29,6 +36,19 @@ public class PhaseController {
         return ResponseEntity.ok(phaseService.getAllPhases());
     }
 
+    @GetMapping("/user/phases/cursor")
+    public ResponseEntity<CursorPageDTO<PhaseDTO>> getPhasesAfter(@RequestParam(value = "after", defaultValue = "0") long after, @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(phaseService.getPhasesAfter(after, CursorPageDTO.clampSize(size)));
+    }
+
+    @GetMapping(value = "/user/phases/export", produces = "application/x-ndjson")
+    public void exportPhases(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        try (NdjsonWriter writer = new NdjsonWriter(response.getOutputStream(), objectMapper)) {
+            phaseService.streamAllPhases(writer::write);
+        }
+    }
+
     @GetMapping("/user/phases/{id}")
     public ResponseEntity<PhaseDTO> getPhaseById(@PathVariable long id) {
         return phaseService.getPhaseById(id)
@@ -1,8 +1,11 @@
 package com.i2s.worfklow_api_final.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.ProjectDTO;
 import com.i2s.worfklow_api_final.service.ProjectService;
+import com.i2s.worfklow_api_final.util.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
@@ -11,6 +14,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,10 +23,12 @@ import java.util.Optional;
 @RequestMapping("/api")
 public class ProjectController {
     private final ProjectService projectService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ProjectController(ProjectService projectService) {
+    public ProjectController(ProjectService projectService, ObjectMapper objectMapper) {
         this.projectService = projectService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/user/projects")
@@ -29,6 +36,19 @@ public class ProjectController {
         return ResponseEntity.ok(projectService.getAllProjects());
     }
 
+    @GetMapping("/user/projects/cursor")
+    public ResponseEntity<CursorPageDTO<ProjectDTO>> getProjectsAfter(@RequestParam(value = "after", defaultValue = "0") long after, @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(projectService.getProjectsAfter(after, CursorPageDTO.clampSize(size)));
+    }
+
+    @GetMapping(value = "/user/projects/export", produces = "application/x-ndjson")
+    public void exportProjects(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        try (NdjsonWriter writer = new NdjsonWriter(response.getOutputStream(), objectMapper)) {
+            projectService.streamAllProjects(writer::write);
+        }
+    }
+
     @GetMapping("/user/projects/{id}")
     public ResponseEntity<ProjectDTO> getProjectById(@PathVariable Long id) {
         return projectService.getProjectById(id)
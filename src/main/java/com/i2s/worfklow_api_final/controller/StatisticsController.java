@@ -1,18 +1,27 @@
 package com.i2s.worfklow_api_final.controller;
 
+import com.i2s.worfklow_api_final.enums.HistoryResolution;
 import com.i2s.worfklow_api_final.enums.TaskStatus;
 import com.i2s.worfklow_api_final.service.StatisticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+
 @RestController
 @RequestMapping("/api/admin/stats")
 public class StatisticsController {
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsController.class);
+
     private final StatisticsService statisticsService;
 
     @Autowired
@@ -20,6 +29,17 @@ public class StatisticsController {
         this.statisticsService = statisticsService;
     }
 
+    // Everything the dashboard shows, in one round-trip
+    @GetMapping("/summary")
+    public ResponseEntity<?> getSummary() {
+        try {
+            return ResponseEntity.ok(statisticsService.getSummary());
+        } catch (Exception e) {
+            logger.error("Could not load the statistics summary", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
     @GetMapping("/tasks/completionRate/all")
     public ResponseEntity<?> getCompletionRateForAllTasks() {
         try {
@@ -164,6 +184,91 @@ public class StatisticsController {
         }
     }
 
+    @GetMapping("/tasks/completionTime/all")
+    public ResponseEntity<?> getCompletionTimeStatsForAllTasks() {
+        try {
+            return ResponseEntity.ok(statisticsService.getCompletionTimeStatsForAllTasks());
+        } catch (Exception e) {
+            logger.error("Could not load completion time statistics", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
+    @GetMapping("/tasks/completionTime/project/{projectId}")
+    public ResponseEntity<?> getCompletionTimeStatsForProject(@PathVariable long projectId) {
+        try {
+            return ResponseEntity.ok(statisticsService.getCompletionTimeStatsForProject(projectId));
+        } catch (Exception e) {
+            logger.error("Could not load completion time statistics for project {}", projectId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
+    @GetMapping("/tasks/completionTime/project/{projectId}/phase/{phaseId}")
+    public ResponseEntity<?> getCompletionTimeStatsForProjectAndPhase(@PathVariable long projectId, @PathVariable long phaseId) {
+        try {
+            return ResponseEntity.ok(statisticsService.getCompletionTimeStatsForProjectAndPhase(projectId, phaseId));
+        } catch (Exception e) {
+            logger.error("Could not load completion time statistics for project {} phase {}", projectId, phaseId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
+    @GetMapping("/tasks/completionTime/project/{projectId}/phase/{phaseId}/step/{stepId}")
+    public ResponseEntity<?> getCompletionTimeStatsForProjectAndPhaseAndStep(@PathVariable long projectId, @PathVariable long phaseId, @PathVariable long stepId) {
+        try {
+            return ResponseEntity.ok(statisticsService.getCompletionTimeStatsForProjectAndPhaseAndStep(projectId, phaseId, stepId));
+        } catch (Exception e) {
+            logger.error("Could not load completion time statistics for project {} phase {} step {}", projectId, phaseId, stepId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
+    @GetMapping("/history/throughput")
+    public ResponseEntity<?> getThroughput(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                @RequestParam(defaultValue = "HOUR") HistoryResolution resolution,
+                                @RequestParam(defaultValue = "0") long projectId, @RequestParam(defaultValue = "0") long phaseId, @RequestParam(defaultValue = "0") long stepId) {
+        try {
+            return ResponseEntity.ok(statisticsService.getThroughput(resolution, from, to, projectId, phaseId, stepId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Could not load the throughput series", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
+    @GetMapping("/history/wip")
+    public ResponseEntity<?> getWorkInProgress(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                @RequestParam(defaultValue = "HOUR") HistoryResolution resolution,
+                                @RequestParam(defaultValue = "0") long projectId, @RequestParam(defaultValue = "0") long phaseId, @RequestParam(defaultValue = "0") long stepId) {
+        try {
+            return ResponseEntity.ok(statisticsService.getWorkInProgress(resolution, from, to, projectId, phaseId, stepId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Could not load the work-in-progress series", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
+    @GetMapping("/history/leadTime")
+    public ResponseEntity<?> getLeadTime(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                @RequestParam(defaultValue = "HOUR") HistoryResolution resolution,
+                                @RequestParam(defaultValue = "0") long projectId, @RequestParam(defaultValue = "0") long phaseId, @RequestParam(defaultValue = "0") long stepId) {
+        try {
+            return ResponseEntity.ok(statisticsService.getLeadTime(resolution, from, to, projectId, phaseId, stepId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Could not load the lead-time series", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Unexpected error occurred.");
+        }
+    }
+
     @GetMapping("/count/allProjects")
     public ResponseEntity<?> getCountForAllProjects() {
         try {
@@ -1,7 +1,10 @@
 package com.i2s.worfklow_api_final.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.StepDTO;
 import com.i2s.worfklow_api_final.service.StepService;
+import com.i2s.worfklow_api_final.util.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
@@ -10,6 +13,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,10 +23,12 @@ import java.util.Optional;
 @RequestMapping("/api")
 public class StepController {
     private final StepService stepService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public StepController(StepService stepService) {
+    public StepController(StepService stepService, ObjectMapper objectMapper) {
         this.stepService = stepService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/user/steps")
@@ -29,6 +36,19 @@ public class StepController {
         return ResponseEntity.ok(stepService.getAllSteps());
     }
 
+    @GetMapping("/user/steps/cursor")
+    public ResponseEntity<CursorPageDTO<StepDTO>> getStepsAfter(@RequestParam(value = "after", defaultValue = "0") long after, @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(stepService.getStepsAfter(after, CursorPageDTO.clampSize(size)));
+    }
+
+    @GetMapping(value = "/user/steps/export", produces = "application/x-ndjson")
+    public void exportSteps(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        try (NdjsonWriter writer = new NdjsonWriter(response.getOutputStream(), objectMapper)) {
+            stepService.streamAllSteps(writer::write);
+        }
+    }
+
     @GetMapping("/user/steps/{id}")
     public ResponseEntity<StepDTO> getStepById(@PathVariable Long id) {
         return stepService.getStepById(id)
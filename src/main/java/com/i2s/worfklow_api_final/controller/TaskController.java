@@ -1,18 +1,26 @@
 package com.i2s.worfklow_api_final.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.FeedbackDTO;
 import com.i2s.worfklow_api_final.dto.MethodExecutionDTO;
 import com.i2s.worfklow_api_final.dto.TaskDTO;
 import com.i2s.worfklow_api_final.dto.UserParameterDTO;
 import com.i2s.worfklow_api_final.enums.TaskStatus;
 import com.i2s.worfklow_api_final.service.TaskService;
+import com.i2s.worfklow_api_final.util.NdjsonWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -21,10 +29,12 @@ import java.util.Map;
 public class TaskController {
 
     private final TaskService taskService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, ObjectMapper objectMapper) {
         this.taskService = taskService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/user/tasks")
@@ -32,15 +42,28 @@ public class TaskController {
         return ResponseEntity.ok(taskService.getAllTasks());
     }
 
+    @GetMapping("/user/tasks/cursor")
+    public ResponseEntity<CursorPageDTO<TaskDTO>> getTasksAfter(@RequestParam(value = "after", defaultValue = "0") long after, @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.ok(taskService.getTasksAfter(after, CursorPageDTO.clampSize(size)));
+    }
+
+    @GetMapping(value = "/user/tasks/export", produces = "application/x-ndjson")
+    public void exportTasks(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        try (NdjsonWriter writer = new NdjsonWriter(response.getOutputStream(), objectMapper)) {
+            taskService.streamAllTasks(writer::write);
+        }
+    }
+
     @GetMapping("/user/tasks/{id}")
     public ResponseEntity<TaskDTO> getTaskById(@PathVariable long id) {
         return taskService.getTaskById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/user/tasks/filter")
-    public ResponseEntity<List<TaskDTO>> getTasksByJobIdsStatusProjectPhaseStep(@RequestParam("jobIds") List<Long> jobIds, @RequestParam("status") List<TaskStatus> statusList, @RequestParam(value = "projectId", required = false) Long projectId, @RequestParam(value = "phaseId", required = false) Long phaseId, @RequestParam(value = "stepId", required = false) Long stepId) {
+    public ResponseEntity<Page<TaskDTO>> getTasksByJobIdsStatusProjectPhaseStep(@RequestParam("jobIds") List<Long> jobIds, @RequestParam("status") List<TaskStatus> statusList, @RequestParam(value = "projectId", required = false) Long projectId, @RequestParam(value = "phaseId", required = false) Long phaseId, @RequestParam(value = "stepId", required = false) Long stepId, @PageableDefault(size = 50, sort = "id") Pageable pageable) {
 
-        return ResponseEntity.ok(taskService.getTasksByJobIdsStatusProjectPhaseStep(jobIds, statusList, projectId, phaseId, stepId));
+        return ResponseEntity.ok(taskService.getTasksByJobIdsStatusProjectPhaseStep(jobIds, statusList, projectId, phaseId, stepId, pageable));
     }
 
 
@@ -165,8 +188,7 @@ public class TaskController {
     @PostMapping("/user/tasks/{taskId}/executeMethods")
     public ResponseEntity<?> executeMethodsForTask(@PathVariable long taskId, @RequestBody Map<Long, List<UserParameterDTO>> userParametersByMethodExecutionId) {
         try {
-            taskService.executeMethodsForTask(taskId, userParametersByMethodExecutionId);
-            return ResponseEntity.status(HttpStatus.OK).build();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(taskService.executeMethodsForTask(taskId, userParametersByMethodExecutionId));
         } catch (EntityNotFoundException e) {
             // handle task not found error
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Task not found with ID: " + taskId);
@@ -0,0 +1,39 @@
+package com.i2s.worfklow_api_final.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+// Completion time of finished tasks, all values in seconds; zero when there is no finished task to measure
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public class CompletionTimeStatsDTO {
+    private long count;
+    private double average;
+    private double min;
+    private double max;
+    private double p50;
+    private double p90;
+    private double p99;
+
+    public CompletionTimeStatsDTO() {
+    }
+
+    // From a (count, avg, min, max, p50, p90, p99) aggregate row
+    public CompletionTimeStatsDTO(Object[] row) {
+        this.count = ((Number) row[0]).longValue();
+        this.average = toDouble(row[1]);
+        this.min = toDouble(row[2]);
+        this.max = toDouble(row[3]);
+        this.p50 = toDouble(row[4]);
+        this.p90 = toDouble(row[5]);
+        this.p99 = toDouble(row[6]);
+    }
+
+    private static double toDouble(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.i2s.worfklow_api_final.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public class CursorPageDTO<T> {
+    public static final int DEFAULT_SIZE = 100;
+    public static final int MAX_SIZE = 500;
+
+    private List<T> items;
+    // id to pass as "after" for the next page, null when this page is the last one
+    private Long nextCursor;
+
+    public CursorPageDTO() {
+    }
+
+    public CursorPageDTO(List<T> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // items must be ordered by id; a full page means there may be more rows after the last id
+    public static <T> CursorPageDTO<T> of(List<T> items, int size, ToLongFunction<T> idOf) {
+        Long nextCursor = !items.isEmpty() && items.size() >= size ? idOf.applyAsLong(items.get(items.size() - 1)) : null;
+        return new CursorPageDTO<>(items, nextCursor);
+    }
+
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+}
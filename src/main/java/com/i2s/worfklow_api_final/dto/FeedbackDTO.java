@@ -1,5 +1,6 @@
 package com.i2s.worfklow_api_final.dto;
 
+import com.i2s.worfklow_api_final.model.Feedback;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -19,5 +20,13 @@ public class FeedbackDTO {
     public FeedbackDTO() {
     }
 
+    public FeedbackDTO(Feedback feedback) {
+        this.id = feedback.getId();
+        this.message = feedback.getMessage();
+        this.feedbackDate = feedback.getFeedbackDate();
+        if (feedback.getUser() != null)
+            this.userId = feedback.getUser().getId();
+    }
+
 
 }
@@ -17,14 +17,27 @@ public class FileDTO {
     private long id;
     private String fileName;
     private String filePath;
+    private String storageKey;
     private long size;
     private String contentType;
     private LocalDateTime uploadDateTime;
+    private String contentHash;
     private List<Long> taskIds;
 
     public FileDTO() {
     }
 
+    public FileDTO(File file) {
+        this.id = file.getId();
+        this.fileName = file.getFileName();
+        this.filePath = file.getFilePath();
+        this.storageKey = file.getStorageKey();
+        this.size = file.getSize();
+        this.contentType = file.getContentType();
+        this.uploadDateTime = file.getUploadDateTime();
+        this.contentHash = file.getContentHash();
+    }
+
 
 
 }
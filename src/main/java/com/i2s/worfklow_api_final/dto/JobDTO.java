@@ -23,6 +23,11 @@ public class JobDTO {
     public JobDTO() {
     }
 
+    public JobDTO(Job job) {
+        this.id = job.getId();
+        this.title = job.getTitle();
+    }
+
 
 
 }
@@ -2,6 +2,7 @@ package com.i2s.worfklow_api_final.dto;
 
 import com.i2s.worfklow_api_final.enums.ExecutionStatus;
 import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.model.MethodExecution;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -20,4 +21,13 @@ public class MethodExecutionDTO {
 
     public MethodExecutionDTO() {
     }
+
+    public MethodExecutionDTO(MethodExecution methodExecution) {
+        this.id = methodExecution.getId();
+        if (methodExecution.getTask() != null)
+            this.taskId = methodExecution.getTask().getId();
+        if (methodExecution.getMethod() != null)
+            this.methodId = methodExecution.getMethod().getId();
+        this.status = methodExecution.getStatus();
+    }
 }
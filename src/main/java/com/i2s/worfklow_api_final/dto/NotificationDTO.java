@@ -1,5 +1,6 @@
 package com.i2s.worfklow_api_final.dto;
 
+import com.i2s.worfklow_api_final.model.Notification;
 import com.i2s.worfklow_api_final.model.Task;
 import com.i2s.worfklow_api_final.model.User;
 import lombok.EqualsAndHashCode;
@@ -20,4 +21,14 @@ public class NotificationDTO {
 
     public NotificationDTO(){}
 
+    public NotificationDTO(Notification notification) {
+        this.id = notification.getId();
+        this.message = notification.getMessage();
+        if (notification.getUser() != null)
+            this.userId = notification.getUser().getId();
+        if (notification.getTask() != null)
+            this.taskId = notification.getTask().getId();
+        this.read = notification.isRead();
+    }
+
 }
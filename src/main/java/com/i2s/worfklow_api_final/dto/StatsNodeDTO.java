@@ -0,0 +1,38 @@
+package com.i2s.worfklow_api_final.dto;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// One level of the statistics tree: everything, a project, a phase or a step
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public class StatsNodeDTO {
+    private String level;
+    private Long id;
+    private String name;
+    private long taskCount;
+    private Map<TaskStatus, Long> countsByStatus = new EnumMap<>(TaskStatus.class);
+    private double completionRate;
+    // Over finished tasks that have both a start and an end time, in seconds
+    private double averageCompletionTime;
+    private List<StatsNodeDTO> children = new ArrayList<>();
+
+    public StatsNodeDTO() {
+    }
+
+    public StatsNodeDTO(String level, Long id, String name) {
+        this.level = level;
+        this.id = id;
+        this.name = name;
+    }
+}
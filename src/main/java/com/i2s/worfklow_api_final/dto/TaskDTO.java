@@ -40,5 +40,20 @@
         public TaskDTO() {
         }
 
+        // Scalar columns and the step id; id lists, executions and feedbacks are filled by TaskAssembler
+        public TaskDTO(Task task) {
+            this.id = task.getId();
+            this.taskName = task.getTaskName();
+            this.description = task.getDescription();
+            this.instructions = task.getInstructions();
+            this.requiredVerification = task.isRequiredVerification();
+            if (task.getStep() != null)
+                this.stepId = task.getStep().getId();
+            this.status = task.getStatus();
+            this.createdAt = task.getCreatedAt();
+            this.startedAt = task.getStartedAt();
+            this.finishedAt = task.getFinishedAt();
+        }
+
 
     }
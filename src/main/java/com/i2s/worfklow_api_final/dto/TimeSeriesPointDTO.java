@@ -0,0 +1,28 @@
+package com.i2s.worfklow_api_final.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public class TimeSeriesPointDTO {
+    private LocalDateTime bucket;
+    private double value;
+    // Number of tasks behind the value, e.g. the finished tasks a lead time is averaged over
+    private long count;
+
+    public TimeSeriesPointDTO() {
+    }
+
+    public TimeSeriesPointDTO(LocalDateTime bucket, double value, long count) {
+        this.bucket = bucket;
+        this.value = value;
+        this.count = count;
+    }
+}
@@ -0,0 +1,38 @@
+package com.i2s.worfklow_api_final.dto;
+
+import com.i2s.worfklow_api_final.model.UploadSession;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public class UploadSessionDTO {
+
+    private long id;
+    private String fileName;
+    private String contentType;
+    private long totalSize;
+    // Requested by the client when creating the session, may be adjusted to the allowed range
+    private int chunkSize;
+    private int chunkCount;
+    private LocalDateTime createdAt;
+    // Indexes of the chunks not yet received and verified
+    private List<Integer> missingChunks;
+
+    public UploadSessionDTO() {
+    }
+
+    public UploadSessionDTO(UploadSession uploadSession) {
+        this.id = uploadSession.getId();
+        this.fileName = uploadSession.getFileName();
+        this.contentType = uploadSession.getContentType();
+        this.totalSize = uploadSession.getTotalSize();
+        this.chunkSize = uploadSession.getChunkSize();
+        this.chunkCount = uploadSession.getChunkCount();
+        this.createdAt = uploadSession.getCreatedAt();
+    }
+}
@@ -2,6 +2,7 @@ package com.i2s.worfklow_api_final.dto;
 
 
 import com.i2s.worfklow_api_final.model.Role;
+import com.i2s.worfklow_api_final.model.User;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -26,5 +27,19 @@ public class UserDTO {
     public UserDTO() {
     }
 
+    // passwordHash is only read on create; DTOs built from a stored user never carry the hash
+    public UserDTO(User user) {
+        this.id = user.getId();
+        this.fullName = user.getFullName();
+        this.email = user.getEmail();
+        if (user.getRole() != null)
+            this.roleName = user.getRole().getName();
+        this.phoneNumber = user.getPhoneNumber();
+        this.address = user.getAddress();
+        this.profilePictureId = user.getProfilePictureId();
+        if (user.getJob() != null)
+            this.jobId = user.getJob().getId();
+    }
+
 
 }
@@ -0,0 +1,25 @@
+package com.i2s.worfklow_api_final.enums;
+
+import java.time.temporal.ChronoUnit;
+
+// Bucket size of task history rows, finest first
+public enum HistoryResolution {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    HistoryResolution(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    // Field name for PostgreSQL date_trunc
+    public String getSqlUnit() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,31 @@
+package com.i2s.worfklow_api_final.enums;
+
+// Downscaled renditions of uploaded images, by the longest side in pixels
+public enum ImageVariant {
+    THUMBNAIL(200),
+    MEDIUM(1024);
+
+    private final int maxDimension;
+
+    ImageVariant(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    // Name used in the download variant parameter and in derivative file names
+    public String getParameter() {
+        return name().toLowerCase();
+    }
+
+    public static ImageVariant fromParameter(String parameter) {
+        for (ImageVariant variant : values()) {
+            if (variant.getParameter().equalsIgnoreCase(parameter)) {
+                return variant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image variant " + parameter + ".");
+    }
+}
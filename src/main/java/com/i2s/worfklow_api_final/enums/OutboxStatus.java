@@ -0,0 +1,7 @@
+package com.i2s.worfklow_api_final.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package com.i2s.worfklow_api_final.enums;
+
+public enum UploadSessionStatus {
+    OPEN,
+    COMMITTING
+}
@@ -0,0 +1,20 @@
+package com.i2s.worfklow_api_final.event;
+
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
+import lombok.Getter;
+import lombok.ToString;
+
+// Published once the final status of a method execution has been committed
+@Getter
+@ToString
+public class MethodExecutionFinishedEvent {
+    private final long taskId;
+    private final long methodExecutionId;
+    private final ExecutionStatus status;
+
+    public MethodExecutionFinishedEvent(long taskId, long methodExecutionId, ExecutionStatus status) {
+        this.taskId = taskId;
+        this.methodExecutionId = methodExecutionId;
+        this.status = status;
+    }
+}
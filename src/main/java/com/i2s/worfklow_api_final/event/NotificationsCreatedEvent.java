@@ -0,0 +1,18 @@
+package com.i2s.worfklow_api_final.event;
+
+import com.i2s.worfklow_api_final.dto.NotificationDTO;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+// Published by the notification write path; listeners act on it after the inserting transaction commits
+@Getter
+@ToString
+public class NotificationsCreatedEvent {
+    private final List<NotificationDTO> notifications;
+
+    public NotificationsCreatedEvent(List<NotificationDTO> notifications) {
+        this.notifications = notifications;
+    }
+}
@@ -0,0 +1,31 @@
+package com.i2s.worfklow_api_final.event;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// Published synchronously, inside the transaction that moves count tasks of one step from previousStatus to
+// newStatus. previousStatus is null for created tasks and newStatus is null for deleted ones.
+@Getter
+@ToString
+public class TaskStatusChangedEvent {
+    // 0 for tasks without a step
+    private final long stepId;
+    private final TaskStatus previousStatus;
+    private final TaskStatus newStatus;
+    private final long count;
+    // Seconds between startedAt and finishedAt of a single task, null when not known or not relevant
+    private final Double durationSeconds;
+    private final LocalDateTime occurredAt;
+
+    public TaskStatusChangedEvent(long stepId, TaskStatus previousStatus, TaskStatus newStatus, long count, Double durationSeconds, LocalDateTime occurredAt) {
+        this.stepId = stepId;
+        this.previousStatus = previousStatus;
+        this.newStatus = newStatus;
+        this.count = count;
+        this.durationSeconds = durationSeconds;
+        this.occurredAt = occurredAt;
+    }
+}
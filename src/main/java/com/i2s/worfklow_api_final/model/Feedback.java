@@ -1,5 +1,6 @@
 package com.i2s.worfklow_api_final.model;
 
+import com.i2s.worfklow_api_final.dto.FeedbackDTO;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -37,5 +38,11 @@ public class Feedback {
 
     }
 
+    public Feedback(FeedbackDTO feedbackDTO) {
+        this.id = feedbackDTO.getId();
+        this.message = feedbackDTO.getMessage();
+        this.feedbackDate = feedbackDTO.getFeedbackDate();
+    }
+
 
 }
@@ -15,7 +15,7 @@ import java.util.List;
 @Setter
 @EqualsAndHashCode
 @ToString
-@Table(name = "files")
+@Table(name = "files", indexes = @Index(name = "idx_files_content_hash", columnList = "content_hash"))
 public class File {
 
     @Id
@@ -25,8 +25,13 @@ public class File {
     @Column(nullable = false, name = "file_name")
     private String fileName;
 
+    // Absolute local path for files stored before the blob store; the storage key for the others
     @Column(nullable = false, name = "file_path")
     private String filePath;
+
+    // Key in the BlobStore, null for files not migrated yet
+    @Column(name = "storage_key")
+    private String storageKey;
     private long size;
 
     @Column(name = "content_type")
@@ -35,6 +40,10 @@ public class File {
     @Column(name = "upload_date_time")
     private LocalDateTime uploadDateTime;
 
+    // SHA-256 of the content, hex encoded; rows with the same hash share one blob, counted in StoredBlob
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @ManyToMany(mappedBy = "files")
     private List<Task> tasks = new ArrayList<>();
 
@@ -1,5 +1,6 @@
 package com.i2s.worfklow_api_final.model;
 
+import com.i2s.worfklow_api_final.dto.JobDTO;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -28,5 +29,10 @@ public class Job {
     public Job() {
     }
 
+    public Job(JobDTO jobDTO) {
+        this.id = jobDTO.getId();
+        this.title = jobDTO.getTitle();
+    }
+
 
 }
@@ -12,7 +12,7 @@ import javax.persistence.*;
 @Setter
 @EqualsAndHashCode
 @ToString
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = @Index(name = "idx_notifications_user_read", columnList = "user_id, read"))
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
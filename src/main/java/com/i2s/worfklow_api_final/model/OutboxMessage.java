@@ -0,0 +1,67 @@
+package com.i2s.worfklow_api_final.model;
+
+import com.i2s.worfklow_api_final.enums.OutboxChannel;
+import com.i2s.worfklow_api_final.enums.OutboxStatus;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// An email or SMS waiting for delivery, written in the same transaction as the method execution that produced it
+@Entity
+@Getter
+@Setter
+@ToString
+@Table(name = "outbox_messages", indexes = @Index(name = "idx_outbox_due", columnList = "status, channel, next_attempt_at"))
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxChannel channel;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    // Plain ids rather than associations: the dispatcher never needs the entities
+    @Column(name = "method_execution_id")
+    private Long methodExecutionId;
+
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Column(nullable = false)
+    private String sender;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    private String subject;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Also used as a lease: claiming a message pushes it forward so other dispatchers skip it while it is in flight
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    public OutboxMessage() {
+    }
+}
@@ -0,0 +1,31 @@
+package com.i2s.worfklow_api_final.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// One stored content blob and the number of files rows referencing it. Every upload has its own files row, so
+// identical content uploaded under different names shares the blob only; it is deleted with the last reference.
+@Entity
+@Getter
+@Setter
+@ToString
+@Table(name = "blobs")
+public class StoredBlob {
+    // SHA-256 of the content, hex encoded; the blob store key is derived from it
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,6 +1,7 @@
     package com.i2s.worfklow_api_final.model;
 
 
+    import com.i2s.worfklow_api_final.dto.TaskDTO;
     import com.i2s.worfklow_api_final.enums.TaskStatus;
     import lombok.EqualsAndHashCode;
     import lombok.Getter;
@@ -67,6 +68,18 @@
         public Task() {
 
         }
+
+        // Scalar columns only; associations are resolved by TaskService
+        public Task(TaskDTO taskDTO) {
+            this.id = taskDTO.getId();
+            this.taskName = taskDTO.getTaskName();
+            this.description = taskDTO.getDescription();
+            this.instructions = taskDTO.getInstructions();
+            this.requiredVerification = taskDTO.isRequiredVerification();
+            this.status = taskDTO.getStatus();
+            this.startedAt = taskDTO.getStartedAt();
+            this.finishedAt = taskDTO.getFinishedAt();
+        }
         @PrePersist
         public void prePersist() {
             createdAt = LocalDateTime.now();
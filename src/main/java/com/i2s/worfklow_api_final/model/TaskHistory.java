@@ -0,0 +1,52 @@
+package com.i2s.worfklow_api_final.model;
+
+import com.i2s.worfklow_api_final.enums.HistoryResolution;
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// Append-only history of task status transitions, summed per bucket, step and status. Several rows can share a
+// bucket; readers always SUM. Old minute rows are compacted into hour rows and old hour rows into day rows.
+@Entity
+@Getter
+@Setter
+@ToString
+@Table(name = "task_history", indexes = @Index(name = "idx_task_history_bucket", columnList = "bucket_start, status"))
+public class TaskHistory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private HistoryResolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    // Plain id, 0 for tasks without a step
+    @Column(name = "step_id", nullable = false)
+    private long stepId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskStatus status;
+
+    // Tasks that moved into and out of the status during the bucket
+    @Column(nullable = false)
+    private long entered;
+
+    @Column(nullable = false)
+    private long exited;
+
+    // Completion time in seconds of the tasks that entered FINISHED with both timestamps, and how many those are
+    @Column(name = "duration_sum", nullable = false)
+    private double durationSum;
+
+    @Column(name = "duration_count", nullable = false)
+    private long durationCount;
+}
@@ -0,0 +1,39 @@
+package com.i2s.worfklow_api_final.model;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+
+// Running totals per step and status, kept up to date by TaskStatsService instead of counting the tasks table.
+// Project and phase totals are sums over their steps.
+@Entity
+@Getter
+@Setter
+@ToString
+@Table(name = "task_stats", uniqueConstraints = @UniqueConstraint(name = "uk_task_stats_step_status", columnNames = {"step_id", "status"}))
+public class TaskStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // Plain id, 0 for tasks without a step
+    @Column(name = "step_id", nullable = false)
+    private long stepId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskStatus status;
+
+    @Column(name = "task_count", nullable = false)
+    private long taskCount;
+
+    // Summed completion time in seconds of the FINISHED tasks that have both timestamps, and how many those are
+    @Column(name = "duration_sum", nullable = false)
+    private double durationSum;
+
+    @Column(name = "duration_count", nullable = false)
+    private long durationCount;
+}
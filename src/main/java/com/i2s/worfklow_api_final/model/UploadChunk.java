@@ -0,0 +1,34 @@
+package com.i2s.worfklow_api_final.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// One verified chunk of an upload session, written once its bytes are on disk and match the client's checksum
+@Entity
+@Getter
+@Setter
+@ToString
+@Table(name = "upload_chunks", uniqueConstraints = @UniqueConstraint(name = "uk_upload_chunks_session_index", columnNames = {"session_id", "chunk_index"}))
+public class UploadChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // Plain id, the chunks are removed together with their session
+    @Column(name = "session_id", nullable = false)
+    private long sessionId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    // SHA-256 of the chunk, hex encoded
+    @Column(nullable = false, length = 64)
+    private String checksum;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+}
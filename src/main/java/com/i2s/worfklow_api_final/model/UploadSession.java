@@ -0,0 +1,57 @@
+package com.i2s.worfklow_api_final.model;
+
+import com.i2s.worfklow_api_final.enums.UploadSessionStatus;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// A chunked upload in progress. The chunks are written into a preallocated part file under the storage tmp
+// directory of the node in nodeId; which of them arrived is recorded in upload_chunks and the writes in progress in
+// upload_write_leases, not here, so parallel chunks never update this row.
+@Entity
+@Getter
+@Setter
+@ToString
+@Table(name = "upload_sessions")
+public class UploadSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(nullable = false, name = "file_name")
+    private String fileName;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    @Column(name = "part_path", nullable = false)
+    private String partPath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private UploadSessionStatus status = UploadSessionStatus.OPEN;
+
+    // The node whose disk holds the part file
+    @Column(name = "node_id")
+    private String nodeId;
+
+    // Recorded before a commit hands the part file to the blob store, so a commit retried after a later failure
+    // can find the content there
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
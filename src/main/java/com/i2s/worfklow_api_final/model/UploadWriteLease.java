@@ -0,0 +1,34 @@
+package com.i2s.worfklow_api_final.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// A chunk write in progress. The writer renews the lease while bytes arrive and removes it when done; a writer that
+// dies simply stops renewing, so a commit waits at most one lease period for it instead of forever.
+@Entity
+@Getter
+@Setter
+@ToString
+@Table(name = "upload_write_leases", uniqueConstraints = @UniqueConstraint(name = "uk_upload_write_leases_session_index", columnNames = {"session_id", "chunk_index"}))
+public class UploadWriteLease {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "session_id", nullable = false)
+    private long sessionId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    // Random per write, so a writer whose lease expired and was taken over cannot renew or release the new one
+    @Column(name = "holder", nullable = false, length = 36)
+    private String holder;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -1,6 +1,7 @@
 package com.i2s.worfklow_api_final.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.i2s.worfklow_api_final.dto.UserDTO;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -50,5 +51,16 @@ public class User {
     public User() {
     }
 
+    // Scalar columns only; role and job are resolved by UserService
+    public User(UserDTO userDTO) {
+        this.id = userDTO.getId();
+        this.fullName = userDTO.getFullName();
+        this.email = userDTO.getEmail();
+        this.passwordHash = userDTO.getPasswordHash();
+        this.phoneNumber = userDTO.getPhoneNumber();
+        this.address = userDTO.getAddress();
+        this.profilePictureId = userDTO.getProfilePictureId();
+    }
+
 
 }
@@ -3,8 +3,11 @@ package com.i2s.worfklow_api_final.repository;
 import com.i2s.worfklow_api_final.model.Feedback;
 import com.i2s.worfklow_api_final.model.File;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +16,8 @@ public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
     List<Feedback> findAll();
 
     Optional<Feedback> findById(long id);
+
+    // id, task id, message, date and user id of every feedback of a batch of tasks
+    @Query("SELECT f.id, f.task.id, f.message, f.feedbackDate, f.user.id FROM Feedback f WHERE f.task.id IN :taskIds ORDER BY f.id")
+    List<Object[]> findSummariesByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 }
@@ -1,13 +1,20 @@
 package com.i2s.worfklow_api_final.repository;
 
 import com.i2s.worfklow_api_final.model.File;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 @Repository
 public interface FileRepository extends JpaRepository<File, Long> {
     List<File> findAll();
@@ -16,5 +23,22 @@ public interface FileRepository extends JpaRepository<File, Long> {
 
     @Query("SELECT f FROM File f JOIN f.tasks t JOIN t.step s JOIN s.phase p JOIN p.project pr WHERE pr.id = :projectId")
     List<File> findByProject(@Param("projectId") long projectId);
-}
 
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<File> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT f FROM File f ORDER BY f.id")
+    Stream<File> streamAllOrderedById();
+
+    // Join table rows for a batch of files, used to fill FileDTO.taskIds without touching the lazy collection
+    @Query(value = "SELECT tf.file_id, tf.task_id FROM task_file tf WHERE tf.file_id IN (:fileIds) ORDER BY tf.file_id, tf.task_id", nativeQuery = true)
+    List<Object[]> findTaskIdsByFileIds(@Param("fileIds") Collection<Long> fileIds);
+
+    // Points a row at its blob store key once the migration has copied the content there
+    @Transactional
+    @Modifying
+    @Query("UPDATE File f SET f.storageKey = :storageKey, f.filePath = :storageKey WHERE f.id = :id")
+    int updateStorageKey(@Param("id") long id, @Param("storageKey") String storageKey);
+}
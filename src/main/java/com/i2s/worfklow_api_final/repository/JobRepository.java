@@ -2,12 +2,16 @@ package com.i2s.worfklow_api_final.repository;
 
 import com.i2s.worfklow_api_final.model.Job;
 import com.i2s.worfklow_api_final.model.Phase;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 @Repository
 public interface JobRepository extends JpaRepository<Job, Long> {
 
@@ -16,4 +20,12 @@ public interface JobRepository extends JpaRepository<Job, Long> {
     Optional<Job> findById(long id);
     @Query("SELECT count(j) from Job j")
     long countJobs();
+
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<Job> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT j FROM Job j ORDER BY j.id")
+    Stream<Job> streamAllOrderedById();
 }
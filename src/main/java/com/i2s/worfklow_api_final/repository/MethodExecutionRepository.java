@@ -1,9 +1,26 @@
 package com.i2s.worfklow_api_final.repository;
 
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
 import com.i2s.worfklow_api_final.model.MethodExecution;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface MethodExecutionRepository extends JpaRepository<MethodExecution, Long> {
+
+    // id, task id, method id and status of every execution of a batch of tasks
+    @Query("SELECT me.id, me.task.id, me.method.id, me.status FROM MethodExecution me WHERE me.task.id IN :taskIds ORDER BY me.id")
+    List<Object[]> findSummariesByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    long countByTaskIdAndStatus(long taskId, ExecutionStatus status);
+
+    @Modifying
+    @Query("UPDATE MethodExecution me SET me.status = :status WHERE me.id = :id")
+    int updateStatus(@Param("id") long id, @Param("status") ExecutionStatus status);
 }
@@ -3,11 +3,19 @@ package com.i2s.worfklow_api_final.repository;
 import com.i2s.worfklow_api_final.model.Notification;
 import com.i2s.worfklow_api_final.model.Phase;
 import com.i2s.worfklow_api_final.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
@@ -16,4 +24,38 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Optional<Notification> findById(long id);
     List<Notification> findByUser(User user);
     List<Notification> findByReadAndAndUser(boolean read, User user);
+
+    List<Notification> findByUserIdAndRead(long userId, boolean read);
+
+    // Seeds the in-memory unread counters: (user id, unread count)
+    @Query(value = "SELECT n.user_id, COUNT(*) FROM notifications n WHERE n.read = false AND n.user_id IS NOT NULL GROUP BY n.user_id", nativeQuery = true)
+    List<Object[]> countUnreadGroupedByUserId();
+
+    // Served by idx_notifications_user_read, for deployments that do not keep the counters in memory
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.read = false")
+    long countUnreadByUserId(@Param("userId") long userId);
+
+    // Only flips unread rows, so the update count says whether the unread counter has to move
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.id = :id AND n.read = false")
+    int markAsReadIfUnread(@Param("id") long id);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.read = false")
+    int markAllAsReadForUser(@Param("userId") long userId);
+
+    // Catch-up after a reconnect: what the user has not seen yet, oldest first
+    List<Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(long userId, long id, Pageable pageable);
+
+    // (task id, user id) for every user on a job assigned to the tasks, without duplicates
+    @Query(value = "SELECT DISTINCT tj.task_id, u.id FROM task_job tj JOIN users u ON u.job_id = tj.job_id WHERE tj.task_id IN (:taskIds) ORDER BY tj.task_id, u.id", nativeQuery = true)
+    List<Object[]> findRecipientsByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<Notification> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT n FROM Notification n ORDER BY n.id")
+    Stream<Notification> streamAllOrderedById();
 }
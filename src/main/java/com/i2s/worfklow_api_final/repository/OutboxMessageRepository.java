@@ -0,0 +1,29 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.enums.OutboxChannel;
+import com.i2s.worfklow_api_final.enums.OutboxStatus;
+import com.i2s.worfklow_api_final.model.OutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2) so concurrent dispatchers claim disjoint batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m WHERE m.status = :status AND m.channel = :channel AND m.nextAttemptAt <= :now ORDER BY m.id")
+    List<OutboxMessage> findDueForUpdate(@Param("status") OutboxStatus status, @Param("channel") OutboxChannel channel, @Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByMethodExecutionIdAndStatus(long methodExecutionId, OutboxStatus status);
+}
@@ -2,13 +2,17 @@ package com.i2s.worfklow_api_final.repository;
 
 import com.i2s.worfklow_api_final.model.Phase;
 import com.i2s.worfklow_api_final.model.Project;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PhaseRepository extends JpaRepository<Phase, Long> {
@@ -24,4 +28,12 @@ public interface PhaseRepository extends JpaRepository<Phase, Long> {
     long countPhases();
     @Query("SELECT count(ph) FROM Phase ph WHERE ph.project.id = :projectId")
     long countPhasesInProject(@Param("projectId") long projectId);
-}
\ No newline at end of file
+
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<Phase> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT ph FROM Phase ph ORDER BY ph.id")
+    Stream<Phase> streamAllOrderedById();
+}
@@ -2,12 +2,16 @@ package com.i2s.worfklow_api_final.repository;
 
 import com.i2s.worfklow_api_final.model.Phase;
 import com.i2s.worfklow_api_final.model.Project;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, Long> {
@@ -22,6 +26,11 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
     @Query("SELECT count(p) FROM Project p")
     long countProjects();
 
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<Project> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
 
-
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT p FROM Project p ORDER BY p.id")
+    Stream<Project> streamAllOrderedById();
 }
@@ -2,13 +2,17 @@ package com.i2s.worfklow_api_final.repository;
 
 import com.i2s.worfklow_api_final.model.Phase;
 import com.i2s.worfklow_api_final.model.Step;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface StepRepository extends JpaRepository<Step, Long> {
@@ -24,4 +28,12 @@ public interface StepRepository extends JpaRepository<Step, Long> {
     long countStepsInPhase(@Param("phaseId") long phaseId);
     @Query("SELECT count(s) FROM Step s WHERE s.phase.project.id=:projectId")
     long countStepsInProject(@Param("projectId") long projectId);
+
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<Step> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT s FROM Step s ORDER BY s.id")
+    Stream<Step> streamAllOrderedById();
 }
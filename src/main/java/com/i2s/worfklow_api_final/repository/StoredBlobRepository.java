@@ -0,0 +1,49 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    // Adds a reference, creating the row for the first one
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO blobs (content_hash, size, ref_count, created_at) VALUES (:contentHash, :size, 1, now()) "
+            + "ON CONFLICT (content_hash) DO UPDATE SET ref_count = blobs.ref_count + 1", nativeQuery = true)
+    int acquire(@Param("contentHash") String contentHash, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1 WHERE b.contentHash = :contentHash")
+    int release(@Param("contentHash") String contentHash);
+
+    // Held while the blob of a row without references is deleted, which an upload taking a reference waits for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.contentHash = :contentHash")
+    Optional<StoredBlob> findByIdForUpdate(@Param("contentHash") String contentHash);
+
+    // 1 when the last reference was released and the row can go
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.contentHash = :contentHash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("contentHash") String contentHash);
+
+    // Counts the references of files stored before this table existed; does nothing once it has rows
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO blobs (content_hash, size, ref_count, created_at) "
+            + "SELECT f.content_hash, MAX(f.size), COUNT(*), now() FROM files f "
+            + "WHERE f.content_hash IS NOT NULL AND NOT EXISTS (SELECT 1 FROM blobs) GROUP BY f.content_hash "
+            + "ON CONFLICT (content_hash) DO NOTHING", nativeQuery = true)
+    int seedFromFiles();
+}
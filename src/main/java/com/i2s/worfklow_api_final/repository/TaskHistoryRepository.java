@@ -0,0 +1,33 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.model.TaskHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Scope filters take 0 for "any": projectId, phaseId and stepId narrow the series down to one project, phase or step
+@Repository
+public interface TaskHistoryRepository extends JpaRepository<TaskHistory, Long> {
+    String SCOPE = "FROM task_history h LEFT JOIN steps s ON s.id = h.step_id LEFT JOIN phases ph ON ph.id = s.phase_id "
+            + "WHERE (:projectId = 0 OR ph.project_id = :projectId) AND (:phaseId = 0 OR ph.id = :phaseId) AND (:stepId = 0 OR h.step_id = :stepId) ";
+    String IN_PROGRESS = "h.status IN ('STARTING', 'WAITING_FOR_VALIDATION') ";
+
+    // (bucket, finished count, duration sum, duration count)
+    @Query(value = "SELECT date_trunc(:unit, h.bucket_start) AS bucket, SUM(h.entered), SUM(h.duration_sum), SUM(h.duration_count) " + SCOPE
+            + "AND h.status = 'FINISHED' AND h.bucket_start >= :start AND h.bucket_start < :end GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> sumFinishedByBucket(@Param("unit") String unit, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                       @Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId);
+
+    // (bucket, net change of tasks in progress)
+    @Query(value = "SELECT date_trunc(:unit, h.bucket_start) AS bucket, SUM(h.entered - h.exited) " + SCOPE
+            + "AND " + IN_PROGRESS + "AND h.bucket_start >= :start AND h.bucket_start < :end GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> sumInProgressChangeByBucket(@Param("unit") String unit, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                               @Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId);
+
+    @Query(value = "SELECT COALESCE(SUM(h.entered - h.exited), 0) " + SCOPE + "AND " + IN_PROGRESS + "AND h.bucket_start >= :start", nativeQuery = true)
+    long sumInProgressChangeSince(@Param("start") LocalDateTime start, @Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId);
+}
@@ -3,15 +3,25 @@ package com.i2s.worfklow_api_final.repository;
 import com.i2s.worfklow_api_final.enums.TaskStatus;
 import com.i2s.worfklow_api_final.model.Step;
 import com.i2s.worfklow_api_final.model.Task;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 @Repository
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task> {
 
     List<Task> findAll();
 
@@ -23,47 +33,86 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
 
     List<Task> findByStatus(TaskStatus taskStatus);
 
-    @Query("SELECT count(t) FROM Task t ")
-    long countAllTasks();
+    // Join table rows for a batch of tasks, used to assemble TaskDTO id lists without touching the lazy collections
+    @Query(value = "SELECT tf.task_id, tf.file_id FROM task_file tf WHERE tf.task_id IN (:taskIds) ORDER BY tf.task_id, tf.file_id", nativeQuery = true)
+    List<Object[]> findFileIdsByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 
-    @Query("SELECT count(t) FROM Task t WHERE t.status = :status")
-    long countAllTasksByStatus(@Param("status") TaskStatus status);
+    @Query(value = "SELECT tm.task_id, tm.method_id FROM task_method tm WHERE tm.task_id IN (:taskIds) ORDER BY tm.task_id, tm.method_id", nativeQuery = true)
+    List<Object[]> findMethodIdsByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 
-    @Query("SELECT count(t) FROM Task t WHERE t.step.phase.project.id = :projectId")
-    long countByProjectId(@Param("projectId") long projectId);
+    @Query(value = "SELECT tj.task_id, tj.job_id FROM task_job tj WHERE tj.task_id IN (:taskIds) ORDER BY tj.task_id, tj.job_id", nativeQuery = true)
+    List<Object[]> findJobIdsByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 
+    // Both directions of task_parent in one query: rows where the task is the child or the parent
+    @Query(value = "SELECT tp.task_id, tp.parent_id FROM task_parent tp WHERE tp.task_id IN (:taskIds) OR tp.parent_id IN (:taskIds) ORDER BY tp.task_id, tp.parent_id", nativeQuery = true)
+    List<Object[]> findParentLinksByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 
-    @Query("SELECT count(t) FROM Task t WHERE t.step.phase.project.id = :projectId AND t.status = :status")
-    long countByProjectIdAndStatus(@Param("projectId") long projectId, @Param("status") TaskStatus status);
-    @Query("SELECT count(t) FROM Task t WHERE t.step.phase.id = :phaseId AND t.step.phase.project.id = :projectId")
-    long countByProjectIdAndPhaseId(@Param("projectId") long projectId, @Param("phaseId") long phaseId);
+    // Count, AVG, MIN, MAX and p50/p90/p99 of finished task durations in seconds, as a single row.
+    // Tasks missing a start or end time are left out instead of counting as zero.
+    String COMPLETION_TIME_STATS = "SELECT COUNT(*), AVG(d), MIN(d), MAX(d), percentile_cont(0.5) WITHIN GROUP (ORDER BY d), "
+            + "percentile_cont(0.9) WITHIN GROUP (ORDER BY d), percentile_cont(0.99) WITHIN GROUP (ORDER BY d) "
+            + "FROM (SELECT EXTRACT(EPOCH FROM (t.finished_at - t.started_at)) AS d FROM tasks t "
+            + "LEFT JOIN steps s ON s.id = t.step_id LEFT JOIN phases ph ON ph.id = s.phase_id "
+            + "WHERE t.status = 'FINISHED' AND t.started_at IS NOT NULL AND t.finished_at IS NOT NULL";
 
-    @Query("SELECT count(t) FROM Task t WHERE t.step.phase.id = :phaseId AND t.step.phase.project.id = :projectId AND t.status = :status")
-    long countByProjectIdAndPhaseIdAndStatus(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("status") TaskStatus status);
+    @Query(value = COMPLETION_TIME_STATS + ") durations", nativeQuery = true)
+    List<Object[]> getCompletionTimeStatsForAllTasks();
 
-    @Query("SELECT count(t) FROM Task t WHERE t.step.id = :stepId AND t.step.phase.id = :phaseId AND t.step.phase.project.id = :projectId")
-    long countByProjectIdAndPhaseIdAndStepId(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId);
+    @Query(value = COMPLETION_TIME_STATS + " AND ph.project_id = :projectId) durations", nativeQuery = true)
+    List<Object[]> getCompletionTimeStatsForProject(@Param("projectId") long projectId);
 
-    @Query("SELECT count(t) FROM Task t WHERE t.step.id = :stepId AND t.step.phase.id = :phaseId AND t.step.phase.project.id = :projectId AND t.status = :status")
-    long countByProjectIdAndPhaseIdAndStepIdAndStatus(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId, @Param("status") TaskStatus status);
+    @Query(value = COMPLETION_TIME_STATS + " AND ph.project_id = :projectId AND ph.id = :phaseId) durations", nativeQuery = true)
+    List<Object[]> getCompletionTimeStatsForProjectAndPhase(@Param("projectId") long projectId, @Param("phaseId") long phaseId);
 
-    // Get start and end times for all tasks
-    @Query("SELECT t.startedAt, t.finishedAt FROM Task t WHERE t.status = :status")
-    List<Object[]> getStartAndEndTimesForAllTasks(@Param("status") TaskStatus status);
+    @Query(value = COMPLETION_TIME_STATS + " AND ph.project_id = :projectId AND ph.id = :phaseId AND s.id = :stepId) durations", nativeQuery = true)
+    List<Object[]> getCompletionTimeStatsForProjectAndPhaseAndStep(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId);
 
-    // Get start and end times for tasks in a specific project
-    @Query("SELECT t.startedAt, t.finishedAt FROM Task t WHERE t.step.phase.project.id = :projectId AND t.status = :status")
-    List<Object[]> getStartAndEndTimesForProject(@Param("projectId") long projectId, @Param("status") TaskStatus status);
+    // Inputs of the in-memory DAG of a project: every task with its status, and every parent edge with at least one
+    // end inside the project
+    @Query("SELECT t.id, t.status FROM Task t WHERE t.step.phase.project.id = :projectId ORDER BY t.id")
+    List<Object[]> findIdsAndStatusesByProjectId(@Param("projectId") long projectId);
 
-    // Get start and end times for tasks in a specific phase of a project
-    @Query("SELECT t.startedAt, t.finishedAt FROM Task t WHERE t.step.phase.project.id = :projectId AND t.step.phase.id = :phaseId AND t.status = :status")
-    List<Object[]> getStartAndEndTimesForProjectAndPhase(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("status") TaskStatus status);
+    @Query("SELECT c.id, p.id FROM Task c JOIN c.parentTasks p LEFT JOIN c.step cs LEFT JOIN cs.phase cph LEFT JOIN p.step ps LEFT JOIN ps.phase pph WHERE cph.project.id = :projectId OR pph.project.id = :projectId")
+    List<Object[]> findParentLinksByProjectId(@Param("projectId") long projectId);
 
-    // Get start and end times for tasks in a specific step of a phase of a project
-    @Query("SELECT t.startedAt, t.finishedAt FROM Task t WHERE t.step.phase.project.id = :projectId AND t.step.phase.id = :phaseId AND t.step.id = :stepId AND t.status = :status")
-    List<Object[]> getStartAndEndTimesForProjectAndPhaseAndStep(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId, @Param("status") TaskStatus status);
+    @Query("SELECT t.step.phase.project.id FROM Task t WHERE t.id = :taskId")
+    Optional<Long> findProjectIdByTaskId(@Param("taskId") long taskId);
 
+    // Children of a finished task that are pending and have no unfinished parent left, for tasks outside any project
+    @Query("SELECT c.id FROM Task c JOIN c.parentTasks p WHERE p.id = :taskId AND c.status = com.i2s.worfklow_api_final.enums.TaskStatus.PENDING AND NOT EXISTS (SELECT c2.id FROM Task c2 JOIN c2.parentTasks p2 WHERE c2.id = c.id AND p2.status <> com.i2s.worfklow_api_final.enums.TaskStatus.FINISHED)")
+    List<Long> findReadyChildIds(@Param("taskId") long taskId);
 
+    @Query("SELECT c.id FROM Task c JOIN c.parentTasks p WHERE p.id = :taskId ORDER BY c.id")
+    List<Long> findChildTaskIds(@Param("taskId") long taskId);
 
+    // Root tasks of a project (no parent edge) that have not been started yet
+    @Query("SELECT t.id FROM Task t WHERE t.step.phase.project.id = :projectId AND t.status = com.i2s.worfklow_api_final.enums.TaskStatus.PENDING AND t.parentTasks IS EMPTY ORDER BY t.id")
+    List<Long> findPendingRootTaskIdsByProjectId(@Param("projectId") long projectId);
 
+    // The given tasks that have no unfinished parent left, for edges the in-memory DAG cannot count
+    @Query("SELECT c.id FROM Task c WHERE c.id IN :ids AND NOT EXISTS (SELECT c2.id FROM Task c2 JOIN c2.parentTasks p2 WHERE c2.id = c.id AND p2.status <> com.i2s.worfklow_api_final.enums.TaskStatus.FINISHED)")
+    List<Long> findIdsWithoutUnfinishedParents(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT t.id FROM Task t WHERE t.id IN :ids AND t.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") TaskStatus status);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Task t SET t.status = com.i2s.worfklow_api_final.enums.TaskStatus.STARTING, t.startedAt = :startedAt WHERE t.id IN :ids AND t.status = com.i2s.worfklow_api_final.enums.TaskStatus.PENDING")
+    int startPendingTasks(@Param("ids") Collection<Long> ids, @Param("startedAt") LocalDateTime startedAt);
+
+    // (step id, count) of the given tasks that startPendingTasks moved to STARTING at startedAt
+    @Query("SELECT t.step.id, COUNT(t) FROM Task t WHERE t.id IN :ids AND t.status = com.i2s.worfklow_api_final.enums.TaskStatus.STARTING AND t.startedAt = :startedAt GROUP BY t.step.id")
+    List<Object[]> countStartedByStepId(@Param("ids") Collection<Long> ids, @Param("startedAt") LocalDateTime startedAt);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Task t WHERE t.id = :id")
+    Optional<Task> findByIdForUpdate(@Param("id") long id);
+
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<Task> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT t FROM Task t ORDER BY t.id")
+    Stream<Task> streamAllOrderedById();
 }
@@ -0,0 +1,54 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.model.Job;
+import com.i2s.worfklow_api_final.model.Phase;
+import com.i2s.worfklow_api_final.model.Step;
+import com.i2s.worfklow_api_final.model.Task;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class TaskSpecifications {
+
+    private TaskSpecifications() {
+    }
+
+    // Tasks assigned to at least one of the jobs, in one of the statuses, optionally narrowed to a project, phase or step.
+    // Only the filters that are present end up in the SQL, and the job filter is an EXISTS on task_job so no DISTINCT is needed for paging.
+    public static Specification<Task> byJobIdsStatusProjectPhaseStep(Collection<Long> jobIds, Collection<TaskStatus> statuses, Long projectId, Long phaseId, Long stepId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            Subquery<Long> assignedJob = query.subquery(Long.class);
+            Root<Task> correlatedTask = assignedJob.correlate(root);
+            Join<Task, Job> job = correlatedTask.join("assignedJobs");
+            assignedJob.select(job.get("id")).where(job.get("id").in(jobIds));
+            predicates.add(cb.exists(assignedJob));
+
+            predicates.add(root.get("status").in(statuses));
+
+            if (stepId != null) {
+                predicates.add(cb.equal(root.get("step").get("id"), stepId));
+            }
+            if (phaseId != null || projectId != null) {
+                Join<Task, Step> step = root.join("step");
+                if (phaseId != null) {
+                    predicates.add(cb.equal(step.get("phase").get("id"), phaseId));
+                }
+                if (projectId != null) {
+                    Join<Step, Phase> phase = step.join("phase");
+                    predicates.add(cb.equal(phase.get("project").get("id"), projectId));
+                }
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.model.TaskStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Every read returns (status, task count, duration sum, duration count) rows, at most one per status
+@Repository
+public interface TaskStatsRepository extends JpaRepository<TaskStats, Long> {
+    String TOTALS = "SELECT ts.status, SUM(ts.task_count), SUM(ts.duration_sum), SUM(ts.duration_count) FROM task_stats ts ";
+    String BY_STEP = "JOIN steps s ON s.id = ts.step_id JOIN phases ph ON ph.id = s.phase_id ";
+
+    // One row per (project, phase, step, status) with the task count and duration totals; the outer joins keep
+    // projects, phases and steps that have no tasks yet
+    @Query(value = "SELECT pr.id AS project_id, pr.project_name, ph.id AS phase_id, ph.phase_name, s.id AS step_id, s.step_name, ts.status, ts.task_count, ts.duration_sum, ts.duration_count "
+            + "FROM projects pr LEFT JOIN phases ph ON ph.project_id = pr.id LEFT JOIN steps s ON s.phase_id = ph.id LEFT JOIN task_stats ts ON ts.step_id = s.id "
+            + "ORDER BY pr.id, ph.id, s.id", nativeQuery = true)
+    List<Object[]> getSummaryByStep();
+
+    // Tasks currently STARTING or WAITING_FOR_VALIDATION; 0 means "any" for each of the ids
+    @Query(value = "SELECT COALESCE(SUM(ts.task_count), 0) FROM task_stats ts LEFT JOIN steps s ON s.id = ts.step_id LEFT JOIN phases ph ON ph.id = s.phase_id "
+            + "WHERE ts.status IN ('STARTING', 'WAITING_FOR_VALIDATION') AND (:projectId = 0 OR ph.project_id = :projectId) "
+            + "AND (:phaseId = 0 OR ph.id = :phaseId) AND (:stepId = 0 OR ts.step_id = :stepId)", nativeQuery = true)
+    long countInProgress(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId);
+
+    @Query(value = TOTALS + "GROUP BY ts.status", nativeQuery = true)
+    List<Object[]> sumForAllTasks();
+
+    @Query(value = TOTALS + BY_STEP + "WHERE ph.project_id = :projectId GROUP BY ts.status", nativeQuery = true)
+    List<Object[]> sumForProject(@Param("projectId") long projectId);
+
+    @Query(value = TOTALS + BY_STEP + "WHERE ph.project_id = :projectId AND ph.id = :phaseId GROUP BY ts.status", nativeQuery = true)
+    List<Object[]> sumForProjectAndPhase(@Param("projectId") long projectId, @Param("phaseId") long phaseId);
+
+    @Query(value = TOTALS + BY_STEP + "WHERE ph.project_id = :projectId AND ph.id = :phaseId AND s.id = :stepId GROUP BY ts.status", nativeQuery = true)
+    List<Object[]> sumForProjectAndPhaseAndStep(@Param("projectId") long projectId, @Param("phaseId") long phaseId, @Param("stepId") long stepId);
+}
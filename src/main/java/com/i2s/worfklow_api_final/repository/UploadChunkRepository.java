@@ -0,0 +1,37 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.model.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+
+    // A retried chunk replaces the earlier record instead of failing on the unique key
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO upload_chunks (session_id, chunk_index, checksum, received_at) VALUES (:sessionId, :chunkIndex, :checksum, :receivedAt) "
+            + "ON CONFLICT (session_id, chunk_index) DO UPDATE SET checksum = EXCLUDED.checksum, received_at = EXCLUDED.received_at", nativeQuery = true)
+    int upsert(@Param("sessionId") long sessionId, @Param("chunkIndex") int chunkIndex, @Param("checksum") String checksum, @Param("receivedAt") LocalDateTime receivedAt);
+
+    // Forgets a chunk before it is overwritten, so a failed rewrite leaves it missing instead of counted
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadChunk c WHERE c.sessionId = :sessionId AND c.chunkIndex = :chunkIndex")
+    int deleteBySessionIdAndChunkIndex(@Param("sessionId") long sessionId, @Param("chunkIndex") int chunkIndex);
+
+    @Query("SELECT c.chunkIndex FROM UploadChunk c WHERE c.sessionId = :sessionId ORDER BY c.chunkIndex")
+    List<Integer> findChunkIndexesBySessionId(@Param("sessionId") long sessionId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadChunk c WHERE c.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") long sessionId);
+}
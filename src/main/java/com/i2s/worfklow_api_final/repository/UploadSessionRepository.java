@@ -0,0 +1,43 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.enums.UploadSessionStatus;
+import com.i2s.worfklow_api_final.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+
+    // Only one request can move a session on, so a commit cannot run twice
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.status = :newStatus WHERE s.id = :id AND s.status = :status")
+    int updateStatus(@Param("id") long id, @Param("status") UploadSessionStatus status, @Param("newStatus") UploadSessionStatus newStatus);
+
+    // Held in share mode while a chunk write takes its lease, which a concurrent status change has to wait for
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id")
+    Optional<UploadSession> findByIdForShare(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.contentHash = :contentHash WHERE s.id = :id")
+    int updateContentHash(@Param("id") long id, @Param("contentHash") String contentHash);
+
+    // Open sessions of one node created before the cutoff that have not received a chunk since and have no live
+    // write; sessions being committed are left to the commit. Sessions created before nodes were recorded go to any.
+    @Query("SELECT s FROM UploadSession s WHERE (s.nodeId = :nodeId OR s.nodeId IS NULL) AND s.createdAt < :cutoff AND s.status = com.i2s.worfklow_api_final.enums.UploadSessionStatus.OPEN "
+            + "AND NOT EXISTS (SELECT c FROM UploadChunk c WHERE c.sessionId = s.id AND c.receivedAt >= :cutoff) "
+            + "AND NOT EXISTS (SELECT l FROM UploadWriteLease l WHERE l.sessionId = s.id AND l.leaseUntil >= :now)")
+    List<UploadSession> findIdleSince(@Param("nodeId") String nodeId, @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+}
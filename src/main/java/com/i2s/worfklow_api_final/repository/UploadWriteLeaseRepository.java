@@ -0,0 +1,42 @@
+package com.i2s.worfklow_api_final.repository;
+
+import com.i2s.worfklow_api_final.model.UploadWriteLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface UploadWriteLeaseRepository extends JpaRepository<UploadWriteLease, Long> {
+
+    // Takes the lease on one chunk; 0 while another writer holds a live lease on it. The caller holds the session
+    // row in share mode, so this cannot slip in after a commit has moved the session on.
+    @Modifying
+    @Query(value = "INSERT INTO upload_write_leases (session_id, chunk_index, holder, lease_until) VALUES (:sessionId, :chunkIndex, :holder, :leaseUntil) "
+            + "ON CONFLICT (session_id, chunk_index) DO UPDATE SET holder = EXCLUDED.holder, lease_until = EXCLUDED.lease_until WHERE upload_write_leases.lease_until < :now", nativeQuery = true)
+    int acquire(@Param("sessionId") long sessionId, @Param("chunkIndex") int chunkIndex, @Param("holder") String holder, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // 0 once the lease has expired or the session is no longer open, and the writer has to stop
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadWriteLease l SET l.leaseUntil = :leaseUntil WHERE l.sessionId = :sessionId AND l.chunkIndex = :chunkIndex AND l.holder = :holder AND l.leaseUntil >= :now "
+            + "AND EXISTS (SELECT s.id FROM UploadSession s WHERE s.id = :sessionId AND s.status = com.i2s.worfklow_api_final.enums.UploadSessionStatus.OPEN)")
+    int renew(@Param("sessionId") long sessionId, @Param("chunkIndex") int chunkIndex, @Param("holder") String holder, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadWriteLease l WHERE l.sessionId = :sessionId AND l.chunkIndex = :chunkIndex AND l.holder = :holder")
+    int release(@Param("sessionId") long sessionId, @Param("chunkIndex") int chunkIndex, @Param("holder") String holder);
+
+    @Query("SELECT COUNT(l) FROM UploadWriteLease l WHERE l.sessionId = :sessionId AND l.leaseUntil >= :now")
+    long countLive(@Param("sessionId") long sessionId, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadWriteLease l WHERE l.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") long sessionId);
+}
@@ -2,12 +2,18 @@ package com.i2s.worfklow_api_final.repository;
 
 import com.i2s.worfklow_api_final.model.Job;
 import com.i2s.worfklow_api_final.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -20,4 +26,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
 
     Optional<User> findByEmail(String email);
+
+    // Keyset page on the primary key: WHERE id > :id ORDER BY id LIMIT :size
+    List<User> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // Server-side cursor for exports, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAllOrderedById();
+
+    @Query("SELECT u.job.id, u.id FROM User u WHERE u.job.id IN :jobIds ORDER BY u.job.id, u.id")
+    List<Object[]> findIdsByJobIds(@Param("jobIds") Collection<Long> jobIds);
 }
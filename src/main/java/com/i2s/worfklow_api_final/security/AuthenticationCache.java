@@ -0,0 +1,98 @@
+package com.i2s.worfklow_api_final.security;
+
+import com.i2s.worfklow_api_final.util.ExpiringCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Optional;
+
+// Keeps request authentication off the database. Parsed claims are cached by the SHA-256 of the token, and
+// principals by user ID. A token issued within auth.token-fresh-ms carries a role that is still current, so its
+// principal is built from the claims alone unless the user was invalidated after the token was issued.
+@Component
+public class AuthenticationCache {
+    private final JwtTokenProvider tokenProvider;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final ExpiringCache<String, TokenClaims> claimsByTokenHash;
+    private final ExpiringCache<Long, CustomUserDetails> userDetailsByUserId;
+    // When each user was last invalidated, kept as long as a token issued before could still count as fresh
+    private final ExpiringCache<Long, Long> invalidatedAtByUserId;
+    private final long tokenFreshMs;
+    private volatile long allInvalidatedAt;
+
+    @Autowired
+    public AuthenticationCache(JwtTokenProvider tokenProvider, CustomUserDetailsService customUserDetailsService,
+                               @Value("${auth.cache-size:10000}") int cacheSize,
+                               @Value("${auth.claims-cache-ttl-ms:600000}") long claimsCacheTtlMs,
+                               @Value("${auth.user-cache-ttl-ms:60000}") long userCacheTtlMs,
+                               @Value("${auth.token-fresh-ms:300000}") long tokenFreshMs) {
+        this.tokenProvider = tokenProvider;
+        this.customUserDetailsService = customUserDetailsService;
+        this.claimsByTokenHash = new ExpiringCache<>(cacheSize, claimsCacheTtlMs);
+        this.userDetailsByUserId = new ExpiringCache<>(cacheSize, userCacheTtlMs);
+        this.invalidatedAtByUserId = new ExpiringCache<>(cacheSize, tokenFreshMs);
+        this.tokenFreshMs = tokenFreshMs;
+    }
+
+    // Empty for an invalid or expired token
+    public Optional<TokenClaims> getClaims(String token) {
+        String key = hash(token);
+        TokenClaims claims = claimsByTokenHash.get(key);
+        if (claims != null) {
+            return Optional.of(claims);
+        }
+        Optional<TokenClaims> parsed = tokenProvider.parseClaims(token);
+        // Never cached past the token's own expiry
+        parsed.ifPresent(value -> claimsByTokenHash.put(key, value, value.getExpiresAt() - System.currentTimeMillis()));
+        return parsed;
+    }
+
+    public CustomUserDetails getUserDetails(TokenClaims claims) {
+        CustomUserDetails userDetails = userDetailsByUserId.get(claims.getUserId());
+        if (userDetails != null) {
+            return userDetails;
+        }
+        if (isFresh(claims)) {
+            userDetails = new CustomUserDetails(claims.getUserId(), claims.getEmail(), null, claims.getRole());
+        } else {
+            userDetails = customUserDetailsService.loadUserById(claims.getUserId()).withoutPassword();
+        }
+        userDetailsByUserId.put(claims.getUserId(), userDetails);
+        return userDetails;
+    }
+
+    // Called whenever a user's account or role changes
+    public void invalidateUser(long userId) {
+        invalidatedAtByUserId.put(userId, System.currentTimeMillis());
+        userDetailsByUserId.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        allInvalidatedAt = System.currentTimeMillis();
+        userDetailsByUserId.invalidateAll();
+    }
+
+    private boolean isFresh(TokenClaims claims) {
+        if (claims.getRole() == null || claims.getEmail() == null || claims.getIssuedAt() < System.currentTimeMillis() - tokenFreshMs) {
+            return false;
+        }
+        Long invalidatedAt = invalidatedAtByUserId.get(claims.getUserId());
+        // iat only has second precision, so a token issued right around an invalidation goes to the database
+        return claims.getIssuedAt() > allInvalidatedAt && (invalidatedAt == null || claims.getIssuedAt() > invalidatedAt);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.i2s.worfklow_api_final.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Client IP for per-address limits. X-Forwarded-For is only believed when the connection comes from one of the
+// configured proxies (addresses or CIDR ranges, comma separated); the client is then the right-most entry that is
+// not a trusted proxy, since anything left of it may have been sent by the client itself. With no proxies
+// configured, the connection's address is used as is.
+@Component
+public class ClientAddressResolver {
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9a-fA-F.:]+");
+
+    private final List<IpAddressMatcher> trustedProxies = new ArrayList<>();
+
+    public ClientAddressResolver(@Value("${security.trusted-proxies:}") List<String> trustedProxies) {
+        for (String proxy : trustedProxies) {
+            if (!proxy.trim().isEmpty()) {
+                this.trustedProxies.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+        String forwardedFor = request.getHeader(FORWARDED_FOR);
+        if (forwardedFor == null) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            if (!isTrusted(hop)) {
+                return hop;
+            }
+        }
+        // Every hop is a proxy of ours
+        return remoteAddr;
+    }
+
+    private boolean isTrusted(String address) {
+        // IpAddressMatcher resolves host names, so anything but an address literal (e.g. "unknown") never gets there
+        if (!IP_LITERAL.matcher(address).matches()) {
+            return false;
+        }
+        for (IpAddressMatcher proxy : trustedProxies) {
+            if (proxy.matches(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,5 @@
 package com.i2s.worfklow_api_final.security;
 
-import com.i2s.worfklow_api_final.model.Role;
 import com.i2s.worfklow_api_final.model.User;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -8,29 +7,43 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.*;
 
+// Plain values rather than the User entity, so instances can be cached and shared between requests
 public class CustomUserDetails implements UserDetails {
-    private final User user;
+    private final long id;
+    private final String email;
+    private final String passwordHash;
+    private final List<SimpleGrantedAuthority> authorities;
 
 
     public CustomUserDetails(User user) {
-        this.user = user;
+        this(user.getId(), user.getEmail(), user.getPasswordHash(), "ROLE_" + user.getRole().getName().toUpperCase());
+    }
+
+    public CustomUserDetails(long id, String email, String passwordHash, String authority) {
+        this.id = id;
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.authorities = Collections.singletonList(new SimpleGrantedAuthority(authority));
+    }
+
+    // Copy for the security context and caches, which never need the hash
+    public CustomUserDetails withoutPassword() {
+        return new CustomUserDetails(id, email, null, authorities.get(0).getAuthority());
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + user.getRole().getName().toUpperCase()));
         return authorities;
     }
 
     @Override
     public String getPassword() {
-        return user.getPasswordHash();
+        return passwordHash;
     }
 
     @Override
     public String getUsername() {
-        return user.getEmail();
+        return email;
     }
 
     @Override
@@ -55,7 +68,6 @@ public class CustomUserDetails implements UserDetails {
 
 
     public long getId() {
-        return user.getId();
+        return id;
     }
 }
-
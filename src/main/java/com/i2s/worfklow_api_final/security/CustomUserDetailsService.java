@@ -4,6 +4,7 @@ import com.i2s.worfklow_api_final.model.User;
 import com.i2s.worfklow_api_final.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -11,7 +12,7 @@ import org.springframework.stereotype.Service;
 import javax.persistence.EntityNotFoundException;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
 
     @Autowired
@@ -26,6 +27,14 @@ public class CustomUserDetailsService implements UserDetailsService {
     }
 
 
+    // Called by Spring Security after a successful login when the stored hash needs upgrading
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPasswordHash) {
+        User user = userRepository.findByEmail(userDetails.getUsername()).orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + userDetails.getUsername()));
+        user.setPasswordHash(newPasswordHash);
+        return new CustomUserDetails(userRepository.save(user));
+    }
+
     public CustomUserDetails loadUserById(Long userId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new EntityNotFoundException(("Uesr not found with ID : " + userId)));
         return new CustomUserDetails(user);
@@ -1,5 +1,7 @@
 package com.i2s.worfklow_api_final.security;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -12,19 +14,16 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    private final AuthenticationCache authenticationCache;
 
-    private final JwtTokenProvider tokenProvider;
 
-
-    private final CustomUserDetailsService customUserDetailsService;
-
-
-    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, CustomUserDetailsService customUserDetailsService) {
-        this.tokenProvider = tokenProvider;
-        this.customUserDetailsService = customUserDetailsService;
+    public JwtAuthenticationFilter(AuthenticationCache authenticationCache) {
+        this.authenticationCache = authenticationCache;
     }
 
     @Override
@@ -32,17 +31,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                Long userId = tokenProvider.getUserIdFromJWT(jwt);
-
-                CustomUserDetails userDetails = customUserDetailsService.loadUserById(userId);
+            Optional<TokenClaims> claims = StringUtils.hasText(jwt) ? authenticationCache.getClaims(jwt) : Optional.empty();
+            if (claims.isPresent()) {
+                CustomUserDetails userDetails = authenticationCache.getUserDetails(claims.get());
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         } catch (Exception ex) {
-            System.out.println("Could not set user authentication in security context");
+            logger.error("Could not set user authentication in security context", ex);
         }
 
         filterChain.doFilter(request, response);
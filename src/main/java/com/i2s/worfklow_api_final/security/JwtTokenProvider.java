@@ -2,14 +2,27 @@ package com.i2s.worfklow_api_final.security;
 
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.SecurityException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
+// The signing key is decoded and the parser built once at startup; both are thread-safe and shared by all calls
 @Component
 public class JwtTokenProvider {
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
     @Value("${app.jwtSecret}")
     private String jwtSecret;
@@ -17,10 +30,29 @@ public class JwtTokenProvider {
     @Value("${app.jwtExpirationInMs}")
     private int jwtExpirationInMs;
 
-    public String generateToken(Authentication authentication) {
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Outcome counters of parseClaims
+    private final AtomicLong validTokens = new AtomicLong();
+    private final AtomicLong expiredTokens = new AtomicLong();
+    private final AtomicLong invalidSignatures = new AtomicLong();
+    private final AtomicLong malformedTokens = new AtomicLong();
+    private final AtomicLong unsupportedTokens = new AtomicLong();
+    private final AtomicLong emptyTokens = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // Base64 like the String overloads of the previous jjwt API, so existing tokens stay valid
+        signingKey = new SecretKeySpec(Decoders.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
 
-        CustomUserDetails userPrincipal = (CustomUserDetails) authentication.getPrincipal();
+    public String generateToken(Authentication authentication) {
+        return generateToken((CustomUserDetails) authentication.getPrincipal());
+    }
 
+    public String generateToken(CustomUserDetails userPrincipal) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
@@ -29,46 +61,66 @@ public class JwtTokenProvider {
         return Jwts.builder()
                 .setSubject(Long.toString(userPrincipal.getId()))
                 .claim("role", role) // add the role as a claim
-                .setIssuedAt(new Date())
+                .claim("email", userPrincipal.getUsername())
+                .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
     public Long getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
-
-        return Long.parseLong(claims.getSubject());
+        return parse(token).getUserId();
     }
 
     public String getRoleFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
+        return parse(token).getRole();
+    }
 
-        return claims.get("role", String.class);
+    public boolean validateToken(String authToken) {
+        return parseClaims(authToken).isPresent();
     }
 
+    // Validates the token and reads everything the application needs from it with a single parse;
+    // throws JwtException or IllegalArgumentException for a token that does not validate
+    public TokenClaims parse(String authToken) {
+        Claims claims = parser.parseClaimsJws(authToken).getBody();
+        long issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0;
+        return new TokenClaims(Long.parseLong(claims.getSubject()), claims.get("role", String.class), claims.get("email", String.class), issuedAt, claims.getExpiration().getTime());
+    }
 
-    public boolean validateToken(String authToken) {
+    // Like parse, but empty instead of an exception for a token that does not validate
+    public Optional<TokenClaims> parseClaims(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
-        } catch (SignatureException ex) {
-            System.out.println("Invalid JWT signature");
+            TokenClaims claims = parse(authToken);
+            validTokens.incrementAndGet();
+            return Optional.of(claims);
+        } catch (SecurityException ex) {
+            invalidSignatures.incrementAndGet();
+            logger.debug("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
-            System.out.println("Invalid JWT token");
+            malformedTokens.incrementAndGet();
+            logger.debug("Invalid JWT token");
         } catch (ExpiredJwtException ex) {
-            System.out.println("Expired JWT token");
+            expiredTokens.incrementAndGet();
+            logger.debug("Expired JWT token");
         } catch (UnsupportedJwtException ex) {
-            System.out.println("Unsupported JWT token");
+            unsupportedTokens.incrementAndGet();
+            logger.debug("Unsupported JWT token");
         } catch (IllegalArgumentException ex) {
-            System.out.println("JWT claims string is empty.");
+            emptyTokens.incrementAndGet();
+            logger.debug("JWT claims string is empty.");
         }
-        return false;
+        return Optional.empty();
+    }
+
+    public Map<String, Long> getValidationCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("valid", validTokens.get());
+        counts.put("expired", expiredTokens.get());
+        counts.put("invalidSignature", invalidSignatures.get());
+        counts.put("malformed", malformedTokens.get());
+        counts.put("unsupported", unsupportedTokens.get());
+        counts.put("empty", emptyTokens.get());
+        return counts;
     }
 }
@@ -0,0 +1,84 @@
+package com.i2s.worfklow_api_final.security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Login outcome counters and a latency histogram; percentiles are reported as the upper bound of their bucket
+@Component
+public class LoginMetrics {
+    public enum Outcome {
+        SUCCESS,
+        FAILURE,
+        RATE_LIMITED,
+        BUSY
+    }
+
+    private static final long[] BUCKET_BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final AtomicLongArray outcomes = new AtomicLongArray(Outcome.values().length);
+    // One more bucket for everything above the last bound
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    // startNanos from System.nanoTime() when the request came in
+    public void record(Outcome outcome, long startNanos) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        outcomes.incrementAndGet(outcome.ordinal());
+        latencyBuckets.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMillis(latencyNanos)));
+        totalLatencyNanos.addAndGet(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long total = 0;
+        for (Outcome outcome : Outcome.values()) {
+            long count = outcomes.get(outcome.ordinal());
+            snapshot.put(outcome.name().toLowerCase(), count);
+            total += count;
+        }
+        snapshot.put("total", total);
+        snapshot.put("averageMs", total > 0 ? TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get()) / (double) total : 0.0);
+        snapshot.put("p50Ms", percentile(0.5));
+        snapshot.put("p95Ms", percentile(0.95));
+        snapshot.put("p99Ms", percentile(0.99));
+        snapshot.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()));
+        return snapshot;
+    }
+
+    private long percentile(double fraction) {
+        long[] counts = new long[latencyBuckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencyBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKET_BOUNDS_MS[i];
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    private static int bucketOf(long latencyMs) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (latencyMs <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+}
@@ -0,0 +1,41 @@
+package com.i2s.worfklow_api_final.security;
+
+import com.i2s.worfklow_api_final.util.ExpiringCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fixed-window limit on login attempts per email and per client IP, checked before any password hashing
+@Component
+public class LoginRateLimiter {
+    private final ExpiringCache<String, AtomicInteger> attemptsByKey;
+    private final int maxAttemptsPerEmail;
+    private final int maxAttemptsPerIp;
+    private final long windowMs;
+
+    public LoginRateLimiter(@Value("${auth.rate-limit.per-email:10}") int maxAttemptsPerEmail,
+                            @Value("${auth.rate-limit.per-ip:50}") int maxAttemptsPerIp,
+                            @Value("${auth.rate-limit.window-ms:60000}") long windowMs,
+                            @Value("${auth.rate-limit.max-keys:100000}") int maxKeys) {
+        this.attemptsByKey = new ExpiringCache<>(maxKeys, windowMs);
+        this.maxAttemptsPerEmail = maxAttemptsPerEmail;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.windowMs = windowMs;
+    }
+
+    // Counts the attempt; false once either the email or the IP has used up its window
+    public boolean tryAcquire(String email, String ip) {
+        boolean ipAllowed = attemptsByKey.getOrCreate("ip:" + ip, key -> new AtomicInteger()).incrementAndGet() <= maxAttemptsPerIp;
+        if (email == null) {
+            return ipAllowed;
+        }
+        boolean emailAllowed = attemptsByKey.getOrCreate("email:" + email.toLowerCase(Locale.ROOT), key -> new AtomicInteger()).incrementAndGet() <= maxAttemptsPerEmail;
+        return ipAllowed && emailAllowed;
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, windowMs / 1000);
+    }
+}
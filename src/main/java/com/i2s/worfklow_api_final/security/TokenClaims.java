@@ -0,0 +1,24 @@
+package com.i2s.worfklow_api_final.security;
+
+import lombok.Getter;
+import lombok.ToString;
+
+// What the application reads from a validated JWT
+@Getter
+@ToString
+public class TokenClaims {
+    private final long userId;
+    // Authority as issued, e.g. ROLE_ADMIN
+    private final String role;
+    private final String email;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    public TokenClaims(long userId, String role, String email, long issuedAt, long expiresAt) {
+        this.userId = userId;
+        this.role = role;
+        this.email = email;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+}
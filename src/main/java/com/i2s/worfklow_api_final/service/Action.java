@@ -0,0 +1,15 @@
+package com.i2s.worfklow_api_final.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a public ActionService method as an action that steps can execute. Only annotated methods get a
+// Method row and an ActionRegistry invoker, so helpers added to ActionService are never exposed.
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Action {
+}
@@ -0,0 +1,47 @@
+package com.i2s.worfklow_api_final.service;
+
+// The method execution an action is running for, so actions can hand work to the outbox and defer
+// the final status of their execution until delivery
+public final class ActionExecutionContext {
+    private static final ThreadLocal<ActionExecutionContext> CURRENT = new ThreadLocal<>();
+
+    private final long methodExecutionId;
+    private final long taskId;
+    private boolean deferred;
+
+    private ActionExecutionContext(long methodExecutionId, long taskId) {
+        this.methodExecutionId = methodExecutionId;
+        this.taskId = taskId;
+    }
+
+    static ActionExecutionContext open(long methodExecutionId, long taskId) {
+        ActionExecutionContext context = new ActionExecutionContext(methodExecutionId, taskId);
+        CURRENT.set(context);
+        return context;
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    // null when the action is called outside the execution engine
+    static ActionExecutionContext current() {
+        return CURRENT.get();
+    }
+
+    long getMethodExecutionId() {
+        return methodExecutionId;
+    }
+
+    long getTaskId() {
+        return taskId;
+    }
+
+    boolean isDeferred() {
+        return deferred;
+    }
+
+    void defer() {
+        this.deferred = true;
+    }
+}
@@ -0,0 +1,25 @@
+package com.i2s.worfklow_api_final.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+// Everything a worker needs to run one method execution, captured while the request transaction is still open
+@Getter
+@ToString
+public class ActionInvocation {
+    private final long methodExecutionId;
+    private final long taskId;
+    private final long methodId;
+    private final String methodName;
+    private final Map<String, Object> argumentsByName;
+
+    public ActionInvocation(long methodExecutionId, long taskId, long methodId, String methodName, Map<String, Object> argumentsByName) {
+        this.methodExecutionId = methodExecutionId;
+        this.taskId = taskId;
+        this.methodId = methodId;
+        this.methodName = methodName;
+        this.argumentsByName = argumentsByName;
+    }
+}
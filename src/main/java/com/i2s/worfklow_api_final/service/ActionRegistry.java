@@ -0,0 +1,122 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.model.Method;
+import com.i2s.worfklow_api_final.repository.MethodRepository;
+import com.i2s.worfklow_api_final.util.ReflectionUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Prebuilt invokers for every @Action method of ActionService, keyed by Method entity ID. Built once at startup so an
+// execution is a map lookup plus a MethodHandle call, with arguments bound by parameter name and converted
+// to the declared parameter type.
+@Component
+public class ActionRegistry {
+    private static final Map<String, Function<Object, Object>> CONVERTERS = new HashMap<>();
+
+    static {
+        CONVERTERS.put("String", value -> value instanceof String ? value : String.valueOf(value));
+        CONVERTERS.put("int", value -> value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim()));
+        CONVERTERS.put("long", value -> value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim()));
+        CONVERTERS.put("double", value -> value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim()));
+        CONVERTERS.put("float", value -> value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString().trim()));
+        CONVERTERS.put("boolean", value -> value instanceof Boolean ? value : Boolean.parseBoolean(value.toString().trim()));
+        CONVERTERS.put("Integer", CONVERTERS.get("int"));
+        CONVERTERS.put("Long", CONVERTERS.get("long"));
+        CONVERTERS.put("Double", CONVERTERS.get("double"));
+        CONVERTERS.put("Float", CONVERTERS.get("float"));
+        CONVERTERS.put("Boolean", CONVERTERS.get("boolean"));
+    }
+
+    private final ActionService actionService;
+    private final MethodRepository methodRepository;
+    private final Map<Long, ActionInvoker> invokersByMethodId = new HashMap<>();
+
+    @Autowired
+    public ActionRegistry(ActionService actionService, MethodRepository methodRepository) {
+        this.actionService = actionService;
+        this.methodRepository = methodRepository;
+    }
+
+    // ActionService has registered its methods by now, so every action has a Method row
+    @PostConstruct
+    public void init() throws IllegalAccessException {
+        Map<String, Long> methodIdsByName = methodRepository.findAll().stream().collect(Collectors.toMap(Method::getMethodName, Method::getId, (first, second) -> first));
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        for (java.lang.reflect.Method actionMethod : actionService.getActionMethods()) {
+            Long methodId = methodIdsByName.get(actionMethod.getName());
+            if (methodId == null) {
+                continue;
+            }
+            java.lang.reflect.Parameter[] reflectedParameters = actionMethod.getParameters();
+            List<String> parameterTypes = ReflectionUtil.getParameterTypes(reflectedParameters);
+            String[] parameterNames = new String[reflectedParameters.length];
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Function<Object, Object>[] converters = new Function[reflectedParameters.length];
+            for (int i = 0; i < reflectedParameters.length; i++) {
+                parameterNames[i] = reflectedParameters[i].getName();
+                converters[i] = CONVERTERS.getOrDefault(parameterTypes.get(i), Function.identity());
+            }
+
+            // (Object[]) -> Object, whatever the real signature is
+            MethodHandle handle = lookup.unreflect(actionMethod).bindTo(actionService)
+                    .asSpreader(Object[].class, reflectedParameters.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            invokersByMethodId.put(methodId, new ActionInvoker(actionMethod.getName(), handle, parameterNames, converters));
+        }
+    }
+
+    public Object invoke(long methodId, Map<String, Object> argumentsByName) throws Exception {
+        ActionInvoker invoker = invokersByMethodId.get(methodId);
+        if (invoker == null) {
+            throw new NoSuchMethodException("No action registered for method ID: " + methodId);
+        }
+        return invoker.invoke(argumentsByName);
+    }
+
+    private static final class ActionInvoker {
+        private final String methodName;
+        private final MethodHandle handle;
+        private final String[] parameterNames;
+        private final Function<Object, Object>[] converters;
+
+        private ActionInvoker(String methodName, MethodHandle handle, String[] parameterNames, Function<Object, Object>[] converters) {
+            this.methodName = methodName;
+            this.handle = handle;
+            this.parameterNames = parameterNames;
+            this.converters = converters;
+        }
+
+        private Object invoke(Map<String, Object> argumentsByName) throws Exception {
+            Object[] args = new Object[parameterNames.length];
+            for (int i = 0; i < parameterNames.length; i++) {
+                Object value = argumentsByName.get(parameterNames[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing parameter '" + parameterNames[i] + "' for method: " + methodName);
+                }
+                try {
+                    args[i] = converters[i].apply(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for parameter '" + parameterNames[i] + "' of method: " + methodName, e);
+                }
+            }
+            try {
+                return (Object) handle.invokeExact(args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+}
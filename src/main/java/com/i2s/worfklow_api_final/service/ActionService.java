@@ -4,17 +4,10 @@ import com.i2s.worfklow_api_final.model.Method;
 import com.i2s.worfklow_api_final.model.Parameter;
 import com.i2s.worfklow_api_final.repository.MethodRepository;
 import com.i2s.worfklow_api_final.util.ReflectionUtil;
-import com.vonage.client.VonageClient;
-import com.vonage.client.sms.MessageStatus;
-import com.vonage.client.sms.SmsSubmissionResponse;
-import com.vonage.client.sms.SmsSubmissionResponseMessage;
-import com.vonage.client.sms.messages.TextMessage;
-import org.springframework.mail.MailException;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,15 +16,12 @@ import java.util.stream.Collectors;
 @Service
 public class ActionService {
     private final MethodRepository methodRepository;
-    private final JavaMailSender javaMailSender;
-    private final VonageClient vonageClient;
+    private final OutboxService outboxService;
 
-    public ActionService(MethodRepository methodRepository, JavaMailSender javaMailSender, VonageClient vonageClient) {
+    public ActionService(MethodRepository methodRepository, OutboxService outboxService) {
 
         this.methodRepository = methodRepository;
-        this.javaMailSender = javaMailSender;
-
-        this.vonageClient = vonageClient;
+        this.outboxService = outboxService;
     }
 
     @PostConstruct
@@ -39,12 +29,16 @@ public class ActionService {
         registerMethods();
     }
 
+    // Public @Action methods declared by this class, shared with ActionRegistry so both see the same set
+    public List<java.lang.reflect.Method> getActionMethods() {
+        return Arrays.stream(ActionService.class.getDeclaredMethods())
+                .filter(method -> method.isAnnotationPresent(Action.class) && Modifier.isPublic(method.getModifiers()))
+                .collect(Collectors.toList());
+    }
+
     // Registers methods during initialization
     private void registerMethods() {
-        List<String> excludedMethods = Arrays.asList("init", "registerMethods", "createMethodFromReflection");
-        List<Method> actionMethods = Arrays.stream(getClass().getDeclaredMethods())
-                .filter(method -> !method.isSynthetic() && !excludedMethods.contains(method.getName()))
-                .map(this::createMethodFromReflection).collect(Collectors.toList());
+        List<Method> actionMethods = getActionMethods().stream().map(this::createMethodFromReflection).collect(Collectors.toList());
         List<Method> existingMethods = methodRepository.findAll();
 
         // Remove methods that are no longer present in the ActionService class
@@ -81,38 +75,24 @@ public class ActionService {
 
     // Methods
 
-    public void sendEmail(String sender, String receiver, String subject, String content) throws MailException {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(sender);
-        message.setTo(receiver);
-        message.setSubject(subject);
-        message.setText(content);
-        javaMailSender.send(message);
-        System.out.println("Email sent successfully");
+    // Delivery is done in batches by OutboxDispatcher; the execution stays IN_PROGRESS until the message is sent
+    @Action
+    public void sendEmail(String sender, String receiver, String subject, String content) {
+        outboxService.enqueueEmail(sender, receiver, subject, content);
     }
 
 
-    public void sendSms(String from, String to, String text) throws Exception {
-        TextMessage message = new TextMessage(from, to, text);
-        SmsSubmissionResponse response = vonageClient.getSmsClient().submitMessage(message);
-
-        if (response.getMessages() == null) {
-            throw new Exception("Failed to send message, response is null");
-        }
-
-        for (SmsSubmissionResponseMessage msg : response.getMessages()) {
-            if (msg.getStatus() != MessageStatus.OK) {
-                throw new Exception("Failed to send message, error: " + msg.getErrorText());
-            }
-        }
-
-        System.out.println("Message sent successfully");
+    @Action
+    public void sendSms(String from, String to, String text) {
+        outboxService.enqueueSms(from, to, text);
     }
 
+    @Action
     public void ridil(int tkhbi9a, String chiL3ba) {
       System.out.println("ridil ");
 
     }
+    @Action
     public void ridil1(String tkhbi9a, String chiL3ba) {
         System.out.println("ridil ");
 
@@ -0,0 +1,346 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.FileDTO;
+import com.i2s.worfklow_api_final.dto.UploadSessionDTO;
+import com.i2s.worfklow_api_final.enums.UploadSessionStatus;
+import com.i2s.worfklow_api_final.model.UploadSession;
+import com.i2s.worfklow_api_final.repository.UploadChunkRepository;
+import com.i2s.worfklow_api_final.repository.UploadSessionRepository;
+import com.i2s.worfklow_api_final.repository.UploadWriteLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Resumable uploads: the client creates a session, PUTs numbered chunks in any order and in parallel, asks which
+// chunks are still missing after an interruption, and commits. Each chunk is checked against the client's SHA-256
+// before it counts as received. Committing hands the assembled file to FileService, so the result is the same
+// content-addressed File a single upload produces; a commit that fails leaves the session open to be committed again.
+// Sessions are node-affine: the part file lives in the tmp/ directory of the node that created the session, whatever
+// the blob store, so every chunk and the commit of a session must be routed to that node (sticky on the session id).
+// Each node sweeps only its own idle sessions.
+@Service
+public class ChunkedUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final long WRITER_POLL_MS = 50;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final UploadWriteLeaseRepository uploadWriteLeaseRepository;
+    private final StorageService storageService;
+    private final FileService fileService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${upload.chunked.max-size:10737418240}")
+    private long maxSize;
+
+    // Sessions without a chunk for this long are removed by the sweeper
+    @Value("${upload.session.ttl-ms:86400000}")
+    private long sessionTtlMs;
+
+    // How long a commit waits for chunk writes that started before it
+    @Value("${upload.commit.writer-wait-ms:30000}")
+    private long writerWaitMs;
+
+    // A chunk write renews its lease while bytes arrive; a writer that died holds up a commit for at most this long
+    @Value("${upload.chunk.write-lease-ms:20000}")
+    private long writeLeaseMs;
+
+    // Defaults to the host name
+    @Value("${node.id:}")
+    private String nodeId;
+
+    @Autowired
+    public ChunkedUploadService(UploadSessionRepository uploadSessionRepository, UploadChunkRepository uploadChunkRepository, UploadWriteLeaseRepository uploadWriteLeaseRepository, StorageService storageService, FileService fileService, TransactionTemplate transactionTemplate) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.uploadChunkRepository = uploadChunkRepository;
+        this.uploadWriteLeaseRepository = uploadWriteLeaseRepository;
+        this.storageService = storageService;
+        this.fileService = fileService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isEmpty()) {
+            try {
+                nodeId = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException("Could not determine the node id, set node.id.", e);
+            }
+        }
+    }
+
+    public UploadSessionDTO createSession(UploadSessionDTO request) {
+        fileService.validateFileName(request.getFileName());
+        if (request.getTotalSize() <= 0 || request.getTotalSize() > maxSize) {
+            throw new IllegalArgumentException("File size exceeds limit.");
+        }
+        int chunkSize = request.getChunkSize() > 0 ? Math.min(Math.max(request.getChunkSize(), MIN_CHUNK_SIZE), MAX_CHUNK_SIZE) : DEFAULT_CHUNK_SIZE;
+
+        UploadSession uploadSession = new UploadSession();
+        uploadSession.setFileName(Paths.get(request.getFileName()).getFileName().toString());
+        uploadSession.setContentType(request.getContentType());
+        uploadSession.setTotalSize(request.getTotalSize());
+        uploadSession.setChunkSize(chunkSize);
+        uploadSession.setChunkCount((int) ((request.getTotalSize() + chunkSize - 1) / chunkSize));
+        uploadSession.setPartPath(storageService.createPartFile(request.getTotalSize()).toString());
+        uploadSession.setNodeId(nodeId);
+        uploadSession.setCreatedAt(LocalDateTime.now());
+
+        try {
+            return toDTO(uploadSessionRepository.save(uploadSession));
+        } catch (RuntimeException e) {
+            storageService.deleteQuietly(Paths.get(uploadSession.getPartPath()));
+            throw e;
+        }
+    }
+
+    public UploadSessionDTO getSession(long id) {
+        return toDTO(findSession(id));
+    }
+
+    // The checksum is the hex SHA-256 of the chunk; on a mismatch the chunk stays missing and can be sent again.
+    // A rewrite drops the earlier record first, since its bytes are being overwritten whatever the outcome.
+    public void writeChunk(long id, int chunkIndex, String checksum, InputStream inputStream) {
+        UploadSession uploadSession = findLocalSession(id);
+        if (chunkIndex < 0 || chunkIndex >= uploadSession.getChunkCount()) {
+            throw new IllegalArgumentException("Invalid chunk index.");
+        }
+        if (checksum == null || checksum.isEmpty()) {
+            throw new IllegalArgumentException("Missing chunk checksum.");
+        }
+
+        // The lease is taken under a share lock on the session, so a commit switching the session to COMMITTING
+        // either sees it or comes first and turns it away
+        String holder = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            UploadSession locked = uploadSessionRepository.findByIdForShare(id).orElseThrow(() -> new EntityNotFoundException("Upload session with ID " + id + " not found."));
+            if (locked.getStatus() != UploadSessionStatus.OPEN) {
+                throw new IllegalStateException("Upload session " + id + " is being committed.");
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (uploadWriteLeaseRepository.acquire(id, chunkIndex, holder, now, now.plus(Duration.ofMillis(writeLeaseMs))) == 0) {
+                throw new IllegalStateException("Chunk " + chunkIndex + " of upload session " + id + " is already being written.");
+            }
+            uploadChunkRepository.deleteBySessionIdAndChunkIndex(id, chunkIndex);
+        });
+
+        LeaseRenewingInputStream leased = new LeaseRenewingInputStream(inputStream, id, chunkIndex, holder);
+        try {
+            long position = (long) chunkIndex * uploadSession.getChunkSize();
+            long length = Math.min(uploadSession.getChunkSize(), uploadSession.getTotalSize() - position);
+            String actual;
+            try {
+                actual = storageService.writeChunk(Paths.get(uploadSession.getPartPath()), position, length, leased);
+            } catch (RuntimeException e) {
+                if (leased.lost) {
+                    throw new IllegalStateException("Upload session " + id + " stopped accepting chunk " + chunkIndex + ".", e);
+                }
+                throw e;
+            }
+            if (!actual.equalsIgnoreCase(checksum.trim())) {
+                throw new IllegalArgumentException("Chunk checksum mismatch.");
+            }
+            // Still holding the lease here means no commit has read the part file yet
+            if (!leased.renew()) {
+                throw new IllegalStateException("Upload session " + id + " stopped accepting chunk " + chunkIndex + ".");
+            }
+            uploadChunkRepository.upsert(id, chunkIndex, actual, LocalDateTime.now());
+        } finally {
+            uploadWriteLeaseRepository.release(id, chunkIndex, holder);
+        }
+    }
+
+    public FileDTO commit(long id) {
+        UploadSession uploadSession = findLocalSession(id);
+        if (uploadSessionRepository.updateStatus(id, UploadSessionStatus.OPEN, UploadSessionStatus.COMMITTING) == 0) {
+            throw new IllegalStateException("Upload session " + id + " is already being committed.");
+        }
+        // No write starts from here on; the ones already running must finish before the part file is read
+        if (!awaitWriters(id)) {
+            uploadSessionRepository.updateStatus(id, UploadSessionStatus.COMMITTING, UploadSessionStatus.OPEN);
+            throw new IllegalStateException("Upload session " + id + " still has chunks being written.");
+        }
+        if (!missingChunks(uploadSession).isEmpty()) {
+            uploadSessionRepository.updateStatus(id, UploadSessionStatus.COMMITTING, UploadSessionStatus.OPEN);
+            throw new IllegalStateException("Upload session " + id + " is missing chunks.");
+        }
+
+        FileDTO fileDTO;
+        try {
+            fileDTO = fileService.storeStaged(stage(uploadSession), uploadSession.getFileName(), uploadSession.getContentType());
+        } catch (RuntimeException e) {
+            // The uploaded content is kept, so the client can commit again
+            uploadSessionRepository.updateStatus(id, UploadSessionStatus.COMMITTING, UploadSessionStatus.OPEN);
+            throw e;
+        }
+        try {
+            deleteSession(uploadSession);
+        } catch (RuntimeException e) {
+            // Left to the sweeper
+            logger.warn("Could not remove committed upload session {}", id, e);
+        }
+        return fileDTO;
+    }
+
+    // The content hash is recorded before the part file goes to the blob store, which consumes it: a commit retried
+    // after a later failure then finds the content there
+    private StorageService.StagedBlob stage(UploadSession uploadSession) {
+        Path partFile = Paths.get(uploadSession.getPartPath());
+        if (Files.exists(partFile)) {
+            StorageService.StagedBlob staged = storageService.stage(partFile);
+            uploadSessionRepository.updateContentHash(uploadSession.getId(), staged.getContentHash());
+            return staged;
+        }
+        if (uploadSession.getContentHash() != null && storageService.blobExists(uploadSession.getContentHash())) {
+            return storageService.stageStored(partFile, uploadSession.getContentHash(), uploadSession.getTotalSize());
+        }
+        deleteSession(uploadSession);
+        throw new IllegalStateException("The content of upload session " + uploadSession.getId() + " is gone, start a new upload.");
+    }
+
+    private boolean awaitWriters(long id) {
+        long deadline = System.currentTimeMillis() + writerWaitMs;
+        while (uploadWriteLeaseRepository.countLive(id, LocalDateTime.now()) > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(WRITER_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void abort(long id) {
+        deleteSession(findLocalSession(id));
+    }
+
+    @Scheduled(fixedDelayString = "${upload.session.sweep-interval-ms:600000}")
+    public void sweepIdleSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UploadSession> idle = uploadSessionRepository.findIdleSince(nodeId, now.minus(Duration.ofMillis(sessionTtlMs)), now);
+        for (UploadSession uploadSession : idle) {
+            try {
+                deleteSession(uploadSession);
+            } catch (RuntimeException e) {
+                logger.warn("Could not remove idle upload session {}", uploadSession.getId(), e);
+            }
+        }
+        if (!idle.isEmpty()) {
+            logger.info("Removed {} idle upload sessions", idle.size());
+        }
+    }
+
+    private void deleteSession(UploadSession uploadSession) {
+        uploadWriteLeaseRepository.deleteBySessionId(uploadSession.getId());
+        uploadChunkRepository.deleteBySessionId(uploadSession.getId());
+        uploadSessionRepository.deleteById(uploadSession.getId());
+        storageService.deleteQuietly(Paths.get(uploadSession.getPartPath()));
+    }
+
+    private UploadSession findSession(long id) {
+        return uploadSessionRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Upload session with ID " + id + " not found."));
+    }
+
+    // The part file is only on the node that created the session
+    private UploadSession findLocalSession(long id) {
+        UploadSession uploadSession = findSession(id);
+        if (uploadSession.getNodeId() != null && !uploadSession.getNodeId().equals(nodeId)) {
+            throw new IllegalStateException("Upload session " + id + " belongs to node " + uploadSession.getNodeId() + ".");
+        }
+        return uploadSession;
+    }
+
+    private List<Integer> missingChunks(UploadSession uploadSession) {
+        Set<Integer> received = new HashSet<>(uploadChunkRepository.findChunkIndexesBySessionId(uploadSession.getId()));
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < uploadSession.getChunkCount(); i++) {
+            if (!received.contains(i)) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    private UploadSessionDTO toDTO(UploadSession uploadSession) {
+        UploadSessionDTO uploadSessionDTO = new UploadSessionDTO(uploadSession);
+        uploadSessionDTO.setMissingChunks(missingChunks(uploadSession));
+        return uploadSessionDTO;
+    }
+
+    // Renews the write lease as the chunk streams in, once less than half of it is left. A lease that could not be
+    // renewed has expired or its session is being committed; the write stops there.
+    private class LeaseRenewingInputStream extends FilterInputStream {
+        private final long sessionId;
+        private final int chunkIndex;
+        private final String holder;
+        private long renewAt;
+        private volatile boolean lost;
+
+        LeaseRenewingInputStream(InputStream in, long sessionId, int chunkIndex, String holder) {
+            super(in);
+            this.sessionId = sessionId;
+            this.chunkIndex = chunkIndex;
+            this.holder = holder;
+            this.renewAt = System.currentTimeMillis() + writeLeaseMs / 2;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkLease();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkLease();
+            return super.read(b, off, len);
+        }
+
+        private void checkLease() throws IOException {
+            if (System.currentTimeMillis() >= renewAt && !renew()) {
+                throw new IOException("Write lease on chunk " + chunkIndex + " of upload session " + sessionId + " lost.");
+            }
+        }
+
+        boolean renew() {
+            LocalDateTime now = LocalDateTime.now();
+            if (uploadWriteLeaseRepository.renew(sessionId, chunkIndex, holder, now, now.plus(Duration.ofMillis(writeLeaseMs))) == 0) {
+                lost = true;
+                return false;
+            }
+            renewAt = System.currentTimeMillis() + writeLeaseMs / 2;
+            return true;
+        }
+    }
+}
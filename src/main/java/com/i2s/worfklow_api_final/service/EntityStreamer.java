@@ -0,0 +1,47 @@
+package com.i2s.worfklow_api_final.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Maps a JPA result stream to DTOs in fixed-size chunks and clears the persistence context after each chunk,
+// so exports run in constant heap. Must be called inside a read-only transaction that keeps the cursor open.
+@Component
+public class EntityStreamer {
+    private static final int CHUNK_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    @Autowired
+    public EntityStreamer(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public <E, D> void stream(Stream<E> entities, Function<List<E>, List<D>> mapper, Consumer<D> sink) {
+        List<E> chunk = new ArrayList<>(CHUNK_SIZE);
+        Iterator<E> iterator = entities.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == CHUNK_SIZE) {
+                flush(chunk, mapper, sink);
+            }
+        }
+        flush(chunk, mapper, sink);
+    }
+
+    private <E, D> void flush(List<E> chunk, Function<List<E>, List<D>> mapper, Consumer<D> sink) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        mapper.apply(chunk).forEach(sink);
+        chunk.clear();
+        entityManager.clear();
+    }
+}
@@ -1,166 +1,268 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.FileDTO;
 import com.i2s.worfklow_api_final.model.File;
+import com.i2s.worfklow_api_final.model.StoredBlob;
 import com.i2s.worfklow_api_final.model.Task;
 import com.i2s.worfklow_api_final.repository.FileRepository;
+import com.i2s.worfklow_api_final.repository.StoredBlobRepository;
 import org.apache.commons.io.FilenameUtils;
-import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
-import java.net.MalformedURLException;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
 public class FileService {
+    private static final Logger logger = LoggerFactory.getLogger(FileService.class);
 
     private final FileRepository fileRepository;
-    private final ModelMapper modelMapper;
+    private final StoredBlobRepository storedBlobRepository;
     private final StorageService storageService;
+    private final EntityStreamer entityStreamer;
+    private final ImageDerivativeService imageDerivativeService;
+    private final TransactionTemplate transactionTemplate;
+    // Runs the blob deletion after the deleting transaction committed
+    private final TransactionTemplate blobTemplate;
     @Value("${file.max-size}")
     private long MAX_FILE_SIZE;
     @Value("${file.accepted-extensions}")
     private String[] ACCEPTED_EXTENSIONS;
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList("png", "jpeg", "jpg", "gif", "bmp", "webp", "tiff", "ico", "heic");
 
     @Autowired
-    public FileService(FileRepository fileRepository, ModelMapper modelMapper, StorageService storageService) {
+    public FileService(FileRepository fileRepository, StoredBlobRepository storedBlobRepository, StorageService storageService, EntityStreamer entityStreamer, ImageDerivativeService imageDerivativeService, TransactionTemplate transactionTemplate) {
         this.fileRepository = fileRepository;
-        this.modelMapper = modelMapper;
+        this.storedBlobRepository = storedBlobRepository;
 
         this.storageService = storageService;
+        this.entityStreamer = entityStreamer;
+        this.imageDerivativeService = imageDerivativeService;
+        this.transactionTemplate = transactionTemplate;
+        this.blobTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.blobTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
-    public FileDTO storeFile(@Valid MultipartFile multipartFile) {
-        String originalFileName = multipartFile.getOriginalFilename();
-        if (originalFileName == null || originalFileName.contains("..")) {
-            throw new IllegalArgumentException("Invalid file name.");
-        }
-
-        String fileExtension = FilenameUtils.getExtension(originalFileName);
-
-        List<String> acceptedExtensionsList = Arrays.asList(ACCEPTED_EXTENSIONS);
-        if (!acceptedExtensionsList.contains(fileExtension)) {
-            throw new IllegalArgumentException("Invalid file type.");
-        }
-
-        if (multipartFile.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("File size exceeds limit.");
+    // Files stored before blobs were counted get their references on the first start
+    @PostConstruct
+    public void init() {
+        int seeded = storedBlobRepository.seedFromFiles();
+        if (seeded > 0) {
+            logger.info("Counted the references of {} stored blobs", seeded);
         }
+    }
 
-        Path filePath = storageService.storeFile(multipartFile);
-
-        String fileName = filePath.getFileName().toString();
-        String contentType = multipartFile.getContentType();
-        long fileSize = multipartFile.getSize();
-
-        File file = new File();
-        file.setFileName(fileName);
-        file.setFilePath(filePath.toString());
-        file.setSize(fileSize);
-        file.setContentType(contentType);
-        file.setUploadDateTime(LocalDateTime.now());
-
-        File savedFile = fileRepository.save(file);
-        return modelMapper.map(savedFile, FileDTO.class);
+    public FileDTO storeFile(@Valid MultipartFile multipartFile) {
+        return storeFile(multipartFile, Arrays.asList(ACCEPTED_EXTENSIONS));
     }
 
     public Optional<FileDTO> getFileById(long id) {
         return fileRepository.findById(id).map(file -> {
-            FileDTO fileDTO = modelMapper.map(file, FileDTO.class);
+            FileDTO fileDTO = new FileDTO(file);
             fileDTO.setTaskIds(file.getTasks().stream().map(Task::getId).collect(Collectors.toList()));
             return fileDTO;
         });
     }
     public FileDTO storeImageFile(@Valid MultipartFile multipartFile) {
+        return storeFile(multipartFile, IMAGE_EXTENSIONS);
+    }
+
+    // Large uploads sent as the raw request body, read straight from the connection without multipart spooling
+    public FileDTO storeFile(InputStream inputStream, String originalFileName, String contentType) {
+        validateFileName(originalFileName);
+        return store(inputStream, originalFileName, contentType);
+    }
+
+    private FileDTO storeFile(MultipartFile multipartFile, List<String> acceptedExtensions) {
         String originalFileName = multipartFile.getOriginalFilename();
+        validateFileName(originalFileName, acceptedExtensions);
+
+        if (multipartFile.getSize() > MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("File size exceeds limit.");
+        }
+
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            return store(inputStream, originalFileName, multipartFile.getContentType());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again.", e);
+        }
+    }
+
+    private static void validateFileName(String originalFileName, List<String> acceptedExtensions) {
         if (originalFileName == null || originalFileName.contains("..")) {
             throw new IllegalArgumentException("Invalid file name.");
         }
 
         String fileExtension = FilenameUtils.getExtension(originalFileName);
-
-        List<String> acceptedExtensionsList = Arrays.asList("png", "jpeg", "jpg", "gif", "bmp", "webp", "tiff", "ico", "heic");
-        if (!acceptedExtensionsList.contains(fileExtension)) {
+        if (!acceptedExtensions.contains(fileExtension)) {
             throw new IllegalArgumentException("Invalid file type.");
         }
+    }
 
-        if (multipartFile.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException("File size exceeds limit.");
-        }
+    public void validateFileName(String originalFileName) {
+        validateFileName(originalFileName, Arrays.asList(ACCEPTED_EXTENSIONS));
+    }
 
-        Path filePath = storageService.storeFile(multipartFile);
+    private FileDTO store(InputStream inputStream, String originalFileName, String contentType) {
+        return storeStaged(storageService.stage(inputStream, MAX_FILE_SIZE), originalFileName, contentType);
+    }
+
+    // The staged file is moved into storage or removed either way. Images get their derivatives rendered in the
+    // background.
+    public FileDTO storeStaged(StorageService.StagedBlob staged, String originalFileName, String contentType) {
+        FileDTO fileDTO = register(staged, originalFileName, contentType);
+        imageDerivativeService.generateAsync(fileDTO);
+        return fileDTO;
+    }
 
-        String fileName = filePath.getFileName().toString();
-        String contentType = multipartFile.getContentType();
-        long fileSize = multipartFile.getSize();
+    // Every upload gets its own row with its own name and type; identical content shares the blob, whose references
+    // are counted in the blobs table. The blob is put before the transaction, so no row lock or connection is held
+    // while it uploads. Taking the reference then locks the blobs row, and a delete only removes the blob while
+    // holding that lock on a row without references (see deleteFile), so once the reference is taken the blob stays.
+    private FileDTO register(StorageService.StagedBlob staged, String originalFileName, String contentType) {
+        try {
+            String storageKey = storageService.commit(staged, contentType);
+            return transactionTemplate.execute(transactionStatus -> {
+                storedBlobRepository.acquire(staged.getContentHash(), staged.getSize());
+                // A delete of the last earlier reference can have removed the blob since commit found it; the staged
+                // copy was kept in that case
+                if (!storageService.blobExists(staged.getContentHash())) {
+                    storageService.commit(staged, contentType);
+                }
 
-        File file = new File();
-        file.setFileName(fileName);
-        file.setFilePath(filePath.toString());
-        file.setSize(fileSize);
-        file.setContentType(contentType);
-        file.setUploadDateTime(LocalDateTime.now());
+                File file = new File();
+                file.setFileName(Paths.get(originalFileName).getFileName().toString());
+                file.setFilePath(storageKey);
+                file.setStorageKey(storageKey);
+                file.setSize(staged.getSize());
+                file.setContentType(contentType);
+                file.setUploadDateTime(LocalDateTime.now());
+                file.setContentHash(staged.getContentHash());
+                return new FileDTO(fileRepository.save(file));
+            });
+        } finally {
+            storageService.discard(staged);
+        }
+    }
 
-        File savedFile = fileRepository.save(file);
-        return modelMapper.map(savedFile, FileDTO.class);
+    public List<FileDTO> getAllFiles() {
+        return toDTOs(fileRepository.findAll());
     }
 
+    public CursorPageDTO<FileDTO> getFilesAfter(long afterId, int size) {
+        List<File> files = fileRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(toDTOs(files), size, FileDTO::getId);
+    }
 
-    public List<FileDTO> getAllFiles() {
-        return fileRepository.findAll().stream().map(file -> {
-            FileDTO fileDTO = modelMapper.map(file, FileDTO.class);
-            fileDTO.setTaskIds(file.getTasks().stream().map(Task::getId).collect(Collectors.toList()));
+    @Transactional(readOnly = true)
+    public void streamAllFiles(Consumer<FileDTO> sink) {
+        try (Stream<File> files = fileRepository.streamAllOrderedById()) {
+            entityStreamer.stream(files, this::toDTOs, sink);
+        }
+    }
+
+    // Fills taskIds for the whole batch with one join table query instead of one lazy load per file
+    private List<FileDTO> toDTOs(List<File> files) {
+        if (files.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<Long>> taskIds = new HashMap<>();
+        for (Object[] row : fileRepository.findTaskIdsByFileIds(files.stream().map(File::getId).collect(Collectors.toList()))) {
+            taskIds.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>()).add(((Number) row[1]).longValue());
+        }
+        return files.stream().map(file -> {
+            FileDTO fileDTO = new FileDTO(file);
+            fileDTO.setTaskIds(taskIds.getOrDefault(file.getId(), new ArrayList<>()));
             return fileDTO;
         }).collect(Collectors.toList());
     }
 
     public List<FileDTO> getFilesByProject(long projectId) {
         return fileRepository.findByProject(projectId).stream().map(file -> {
-            FileDTO fileDTO = modelMapper.map(file, FileDTO.class);
+            FileDTO fileDTO = new FileDTO(file);
             fileDTO.setTaskIds(file.getTasks().stream().map(Task::getId).collect(Collectors.toList()));
             return fileDTO;
         }).collect(Collectors.toList());
     }
 
+    // Removes the row; the blob and its derivatives go with the last row referencing the content. The delete is
+    // flushed first, so a file still linked to tasks fails here with nothing removed. Content is only deleted after
+    // the commit, see deleteBlob.
     public void deleteFile(long id) {
         File file = fileRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("File with ID " + id + " not found."));
-
-        storageService.deleteFile(file.getFilePath());
-
-        fileRepository.deleteById(id);
-    }
-
-    public Optional<Resource> loadFileAsResource(long id) {
-        Optional<File> fileOptional = fileRepository.findById(id);
-
-        if (fileOptional.isPresent()) {
-            File file = fileOptional.get();
-            try {
-                Path filePath = Paths.get(file.getFilePath()).normalize();
-                Resource resource = new UrlResource(filePath.toUri());
-                if (resource.exists()) {
-                    return Optional.of(resource);
+        FileDTO fileDTO = new FileDTO(file);
+
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            fileRepository.deleteById(id);
+            fileRepository.flush();
+            // rows stored before content addressing own their blob
+            if (file.getContentHash() != null) {
+                storedBlobRepository.release(file.getContentHash());
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        deleteBlob(fileDTO, file.getContentHash());
+                    } catch (RuntimeException e) {
+                        // The row is gone either way; a blobs row left without references is cleaned up by the
+                        // next delete of the same content
+                        logger.warn("Could not delete the content of file {}", id, e);
+                    }
                 }
-            } catch (MalformedURLException ex) {
-                System.out.println(ex);
+            });
+        });
+    }
 
-            }
+    // Holds the blobs row lock while deciding, so an upload of the same content either took its reference first and
+    // keeps the blob, or waits and puts the blob again (see register)
+    private void deleteBlob(FileDTO fileDTO, String contentHash) {
+        if (contentHash == null) {
+            imageDerivativeService.deleteDerivatives(fileDTO);
+            storageService.deleteFile(fileDTO);
+            return;
         }
+        blobTemplate.executeWithoutResult(transactionStatus -> {
+            // Without the row another delete already removed the blob
+            Optional<StoredBlob> storedBlob = storedBlobRepository.findByIdForUpdate(contentHash);
+            if (!storedBlob.isPresent() || storedBlob.get().getRefCount() > 0) {
+                return;
+            }
+            imageDerivativeService.deleteDerivatives(fileDTO);
+            storageService.deleteFile(fileDTO);
+            storedBlobRepository.deleteIfUnreferenced(contentHash);
+        });
+    }
 
-        return Optional.empty();
+    // Download metadata from the files row alone, without loading the task links
+    public Optional<FileDTO> getFileForDownload(long id) {
+        return fileRepository.findById(id).map(FileDTO::new);
     }
 }
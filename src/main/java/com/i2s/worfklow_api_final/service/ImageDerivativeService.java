@@ -0,0 +1,355 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.FileDTO;
+import com.i2s.worfklow_api_final.enums.ImageVariant;
+import com.i2s.worfklow_api_final.util.ExpiringCache;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Renders thumbnail and medium versions of uploaded images on the image pool and serves them instead of the original.
+// Derivatives are a disk cache bounded by total size: the least recently served are deleted first, and a missing
+// derivative is simply rendered again on its next request, which gets the original in the meantime. Content that
+// ImageIO cannot decode is remembered for a while, so its requests get the original without reading it again.
+@Service
+public class ImageDerivativeService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    // Guards against images whose header claims absurd dimensions
+    private static final long MAX_SOURCE_PIXELS = 250_000_000L;
+
+    private static final int UNDECODABLE_CACHE_SIZE = 10_000;
+    private static final long UNDECODABLE_TTL_MS = 24 * 60 * 60 * 1000L;
+
+    private final StorageService storageService;
+    private final TaskExecutor imageExecutor;
+
+    @Value("${image.derivatives.max-cache-bytes:1073741824}")
+    private long maxCacheBytes;
+
+    @Value("${image.derivatives.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    private Path derivativePath;
+
+    // Access ordered, so iteration starts at the least recently served derivative
+    private final LinkedHashMap<String, Derivative> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+
+    // Derivatives queued or rendering, so repeated requests for a missing one queue it only once
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Sources without an ImageIO reader or that fail to decode, by content hash
+    private final ExpiringCache<String, Boolean> undecodable = new ExpiringCache<>(UNDECODABLE_CACHE_SIZE, UNDECODABLE_TTL_MS);
+
+    @Autowired
+    public ImageDerivativeService(StorageService storageService, @Qualifier("imageExecutor") TaskExecutor imageExecutor) {
+        this.storageService = storageService;
+        this.imageExecutor = imageExecutor;
+    }
+
+    // Rebuilds the index from disk, oldest first, since access times are not kept across restarts
+    @PostConstruct
+    public void init() {
+        derivativePath = storageService.getDerivativePath();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(derivativePath)) {
+            files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the image derivative directory.", e);
+        }
+        List<Derivative> derivatives = new ArrayList<>();
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            if (fileName.endsWith(".tmp") || dot < 0) {
+                storageService.deleteQuietly(file);
+                continue;
+            }
+            try {
+                derivatives.add(new Derivative(fileName.substring(0, dot), file, contentType(fileName.substring(dot + 1)), Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable image derivative {}", file, e);
+            }
+        }
+        derivatives.sort(Comparator.comparingLong(Derivative::getCreatedAt));
+        synchronized (this) {
+            for (Derivative derivative : derivatives) {
+                index.put(derivative.getKey(), derivative);
+                cachedBytes += derivative.getSize();
+            }
+            evict();
+        }
+    }
+
+    public boolean isImage(FileDTO file) {
+        return file.getContentType() != null && file.getContentType().startsWith("image/");
+    }
+
+    // Queues every variant that is not on disk yet; returns immediately
+    public void generateAsync(FileDTO file) {
+        if (!isImage(file) || isUndecodable(file)) {
+            return;
+        }
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (lookup(key(file, variant)) == null) {
+                schedule(file, variant);
+            }
+        }
+    }
+
+    // The cached derivative, or empty when it is not rendered yet or was evicted, in which case it is queued
+    public Optional<Derivative> getDerivative(FileDTO file, ImageVariant variant) {
+        if (!isImage(file)) {
+            return Optional.empty();
+        }
+        Derivative derivative = lookup(key(file, variant));
+        if (derivative != null) {
+            return Optional.of(derivative);
+        }
+        if (!isUndecodable(file)) {
+            schedule(file, variant);
+        }
+        return Optional.empty();
+    }
+
+    public void deleteDerivatives(FileDTO file) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            Derivative derivative;
+            synchronized (this) {
+                derivative = index.remove(key(file, variant));
+                if (derivative != null) {
+                    cachedBytes -= derivative.getSize();
+                }
+            }
+            if (derivative != null) {
+                storageService.deleteQuietly(derivative.getPath());
+            }
+        }
+    }
+
+    private synchronized Derivative lookup(String key) {
+        return index.get(key);
+    }
+
+    private void schedule(FileDTO file, ImageVariant variant) {
+        String key = key(file, variant);
+        if (!inFlight.add(key)) {
+            return;
+        }
+        try {
+            imageExecutor.execute(() -> {
+                try {
+                    render(file, variant, key);
+                } catch (IIOException e) {
+                    undecodable.put(source(file), Boolean.TRUE);
+                    logger.warn("Could not decode file {}, serving the original", file.getId(), e);
+                } catch (Exception e) {
+                    logger.warn("Could not render the {} of file {}", variant.getParameter(), file.getId(), e);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            inFlight.remove(key);
+            logger.debug("Image pool is full, skipped the {} of file {}", variant.getParameter(), file.getId());
+        }
+    }
+
+    private void render(FileDTO file, ImageVariant variant, String key) throws IOException {
+        BufferedImage source;
+        Optional<Path> localPath = storageService.getLocalPath(file);
+        if (localPath.isPresent()) {
+            source = read(localPath.get().toFile(), variant.getMaxDimension());
+        } else {
+            try (InputStream inputStream = storageService.open(file)) {
+                source = read(inputStream, variant.getMaxDimension());
+            }
+        }
+        if (source == null) {
+            // no ImageIO reader for this format
+            undecodable.put(source(file), Boolean.TRUE);
+            return;
+        }
+        BufferedImage scaled = scale(source, variant.getMaxDimension());
+        boolean alpha = scaled.getColorModel().hasAlpha();
+        String extension = alpha ? "png" : "jpg";
+
+        Path directory = file.getContentHash() != null
+                ? derivativePath.resolve(file.getContentHash().substring(0, 2)).resolve(file.getContentHash().substring(2, 4))
+                : derivativePath.resolve("legacy");
+        Files.createDirectories(directory);
+        Path target = directory.resolve(key + "." + extension);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            if (alpha) {
+                ImageIO.write(scaled, "png", temp.toFile());
+            } else {
+                writeJpeg(scaled, temp);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            storageService.deleteQuietly(temp);
+        }
+        add(new Derivative(key, target, contentType(extension), Files.size(target), System.currentTimeMillis()));
+    }
+
+    // Decodes with source subsampling down to about twice the target size, so a thumbnail of a large photo never
+    // holds the full resolution raster in memory. The source is a local file or a stream from the blob store
+    private static BufferedImage read(Object source, int maxDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    throw new IIOException("Image is too large: " + width + "x" + height);
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = Math.max(1, Math.max(width, height) / (maxDimension * 2));
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves the size per step down to the target; a single bilinear step from a much larger image skips pixels
+    // and looks aliased
+    static BufferedImage scale(BufferedImage image, int maxDimension) {
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private synchronized void add(Derivative derivative) {
+        Derivative previous = index.put(derivative.getKey(), derivative);
+        if (previous != null) {
+            cachedBytes -= previous.getSize();
+            if (!previous.getPath().equals(derivative.getPath())) {
+                storageService.deleteQuietly(previous.getPath());
+            }
+        }
+        cachedBytes += derivative.getSize();
+        evict();
+    }
+
+    // Caller holds the lock
+    private void evict() {
+        Iterator<Map.Entry<String, Derivative>> entries = index.entrySet().iterator();
+        while (cachedBytes > maxCacheBytes && entries.hasNext()) {
+            Derivative derivative = entries.next().getValue();
+            entries.remove();
+            cachedBytes -= derivative.getSize();
+            storageService.deleteQuietly(derivative.getPath());
+        }
+    }
+
+    private boolean isUndecodable(FileDTO file) {
+        return undecodable.get(source(file)) != null;
+    }
+
+    // Identical content shares its derivatives like it shares its blob
+    private static String key(FileDTO file, ImageVariant variant) {
+        return source(file) + "-" + variant.getParameter();
+    }
+
+    private static String source(FileDTO file) {
+        return file.getContentHash() != null ? file.getContentHash() : "file-" + file.getId();
+    }
+
+    private static String contentType(String extension) {
+        return extension.equals("png") ? "image/png" : "image/jpeg";
+    }
+
+    @Getter
+    public static class Derivative {
+        private final String key;
+        private final Path path;
+        private final String contentType;
+        private final long size;
+        private final long createdAt;
+
+        Derivative(String key, Path path, String contentType, long size, long createdAt) {
+            this.key = key;
+            this.path = path;
+            this.contentType = contentType;
+            this.size = size;
+            this.createdAt = createdAt;
+        }
+    }
+}
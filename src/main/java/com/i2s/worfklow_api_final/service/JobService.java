@@ -1,52 +1,86 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.JobDTO;
 import com.i2s.worfklow_api_final.model.Job;
 import com.i2s.worfklow_api_final.model.Method;
 import com.i2s.worfklow_api_final.model.User;
 import com.i2s.worfklow_api_final.repository.JobRepository;
-import org.modelmapper.ModelMapper;
+import com.i2s.worfklow_api_final.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class JobService {
 
     private final JobRepository jobRepository;
-    private final ModelMapper modelMapper;
+    private final UserRepository userRepository;
+    private final EntityStreamer entityStreamer;
 
     @Autowired
-    public JobService(JobRepository jobRepository, ModelMapper modelMapper) {
+    public JobService(JobRepository jobRepository, UserRepository userRepository, EntityStreamer entityStreamer) {
         this.jobRepository = jobRepository;
-        this.modelMapper = modelMapper;
+        this.userRepository = userRepository;
+        this.entityStreamer = entityStreamer;
     }
 
     public List<JobDTO> getAllJobs() {
-        return jobRepository.findAll().stream().map(job -> {
-            JobDTO jobDTO = modelMapper.map(job, JobDTO.class);
-            jobDTO.setUsersId(job.getUsers().stream().map(User::getId).collect(Collectors.toList()));
+        return toDTOs(jobRepository.findAll());
+    }
+
+    public CursorPageDTO<JobDTO> getJobsAfter(long afterId, int size) {
+        List<Job> jobs = jobRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(toDTOs(jobs), size, JobDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllJobs(Consumer<JobDTO> sink) {
+        try (Stream<Job> jobs = jobRepository.streamAllOrderedById()) {
+            entityStreamer.stream(jobs, this::toDTOs, sink);
+        }
+    }
+
+    // Fills usersId for the whole batch with one query instead of one lazy load per job
+    private List<JobDTO> toDTOs(List<Job> jobs) {
+        if (jobs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<Long>> userIds = new HashMap<>();
+        for (Object[] row : userRepository.findIdsByJobIds(jobs.stream().map(Job::getId).collect(Collectors.toList()))) {
+            userIds.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return jobs.stream().map(job -> {
+            JobDTO jobDTO = new JobDTO(job);
+            jobDTO.setUsersId(userIds.getOrDefault(job.getId(), new ArrayList<>()));
             return jobDTO;
         }).collect(Collectors.toList());
     }
 
     public Optional<JobDTO> getJobById(long id) {
         return jobRepository.findById(id).map(job -> {
-            JobDTO jobDTO = modelMapper.map(job, JobDTO.class);
+            JobDTO jobDTO = new JobDTO(job);
             jobDTO.setUsersId(job.getUsers().stream().map(User::getId).collect(Collectors.toList()));
             return jobDTO;
         });
     }
 
     public JobDTO createJob(@Valid JobDTO jobDTO) {
-        Job job = modelMapper.map(jobDTO, Job.class);
+        Job job = new Job(jobDTO);
         Job savedJob = jobRepository.save(job);
-        return modelMapper.map(savedJob, JobDTO.class);
+        return new JobDTO(savedJob);
     }
 
     public void deleteJob(long id ){
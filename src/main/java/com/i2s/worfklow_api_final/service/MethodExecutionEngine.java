@@ -0,0 +1,107 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
+import com.i2s.worfklow_api_final.event.MethodExecutionFinishedEvent;
+import com.i2s.worfklow_api_final.repository.MethodExecutionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Runs method executions on the action pool. Each worker commits the final status of its execution
+// and publishes a MethodExecutionFinishedEvent so the task can move on once nothing is left running.
+@Component
+public class MethodExecutionEngine {
+    private static final Logger logger = LoggerFactory.getLogger(MethodExecutionEngine.class);
+
+    private final ActionRegistry actionRegistry;
+    private final MethodExecutionRepository methodExecutionRepository;
+    private final TransactionTemplate transactionTemplate;
+    // Final statuses are also written from afterCommit, where a REQUIRED template would join the finished
+    // transaction and the update would never be committed
+    private final TransactionTemplate completionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskExecutor actionExecutor;
+
+    @Autowired
+    public MethodExecutionEngine(ActionRegistry actionRegistry, MethodExecutionRepository methodExecutionRepository, TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher, @Qualifier("actionExecutor") TaskExecutor actionExecutor) {
+        this.actionRegistry = actionRegistry;
+        this.methodExecutionRepository = methodExecutionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.completionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.completionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.actionExecutor = actionExecutor;
+    }
+
+    // Workers only start once the caller's transaction has committed the IN_PROGRESS statuses
+    public void submitAfterCommit(List<ActionInvocation> invocations) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(invocations);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(invocations);
+            }
+        });
+    }
+
+    private void submit(List<ActionInvocation> invocations) {
+        for (ActionInvocation invocation : invocations) {
+            try {
+                actionExecutor.execute(() -> run(invocation));
+            } catch (TaskRejectedException e) {
+                logger.warn("Action pool is full, failing method execution {}", invocation.getMethodExecutionId());
+                complete(invocation, ExecutionStatus.FAILURE);
+            }
+        }
+    }
+
+    // The action runs in the same transaction as the SUCCESS update, so whatever it writes to the outbox commits
+    // together with it. Actions that used the outbox leave the execution IN_PROGRESS for OutboxDispatcher to finish.
+    private void run(ActionInvocation invocation) {
+        boolean deferred;
+        try {
+            deferred = transactionTemplate.execute(transactionStatus -> {
+                ActionExecutionContext context = ActionExecutionContext.open(invocation.getMethodExecutionId(), invocation.getTaskId());
+                try {
+                    actionRegistry.invoke(invocation.getMethodId(), invocation.getArgumentsByName());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    ActionExecutionContext.close();
+                }
+                if (!context.isDeferred()) {
+                    methodExecutionRepository.updateStatus(invocation.getMethodExecutionId(), ExecutionStatus.SUCCESS);
+                }
+                return context.isDeferred();
+            });
+        } catch (Exception e) {
+            logger.error("Error executing method {} for method execution {}", invocation.getMethodName(), invocation.getMethodExecutionId(), e);
+            complete(invocation, ExecutionStatus.FAILURE);
+            return;
+        }
+        if (!deferred) {
+            eventPublisher.publishEvent(new MethodExecutionFinishedEvent(invocation.getTaskId(), invocation.getMethodExecutionId(), ExecutionStatus.SUCCESS));
+        }
+    }
+
+    private void complete(ActionInvocation invocation, ExecutionStatus status) {
+        completionTemplate.executeWithoutResult(transactionStatus -> methodExecutionRepository.updateStatus(invocation.getMethodExecutionId(), status));
+        eventPublisher.publishEvent(new MethodExecutionFinishedEvent(invocation.getTaskId(), invocation.getMethodExecutionId(), status));
+    }
+}
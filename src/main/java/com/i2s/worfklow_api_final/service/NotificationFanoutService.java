@@ -0,0 +1,79 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.NotificationDTO;
+import com.i2s.worfklow_api_final.event.NotificationsCreatedEvent;
+import com.i2s.worfklow_api_final.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+// Creates the notifications for the users on the jobs assigned to a set of tasks. Recipients come from one join
+// query (deduplicated per task), and rows are written with multi-row INSERT ... RETURNING statements, so a task
+// assigned to a large job costs a couple of round-trips instead of one per recipient.
+@Service
+public class NotificationFanoutService {
+    // 3 bind parameters per row keeps a full chunk far below the PostgreSQL limit of 32767
+    private static final int ROWS_PER_INSERT = 500;
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public NotificationFanoutService(NotificationRepository notificationRepository, JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.notificationRepository = notificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public List<NotificationDTO> notifyAssignees(long taskId, String message) {
+        return notifyAssignees(Collections.singletonMap(taskId, message));
+    }
+
+    // Sends messagesByTaskId.get(taskId) to every user assigned to that task through one of its jobs
+    @Transactional
+    public List<NotificationDTO> notifyAssignees(Map<Long, String> messagesByTaskId) {
+        List<Object[]> rows = new ArrayList<>();
+        List<Long> taskIds = new ArrayList<>(messagesByTaskId.keySet());
+        for (int from = 0; from < taskIds.size(); from += ID_BATCH_SIZE) {
+            for (Object[] recipient : notificationRepository.findRecipientsByTaskIds(taskIds.subList(from, Math.min(from + ID_BATCH_SIZE, taskIds.size())))) {
+                long taskId = ((Number) recipient[0]).longValue();
+                rows.add(new Object[]{messagesByTaskId.get(taskId), ((Number) recipient[1]).longValue(), taskId});
+            }
+        }
+        List<NotificationDTO> created = insert(rows);
+        if (!created.isEmpty()) {
+            eventPublisher.publishEvent(new NotificationsCreatedEvent(created));
+        }
+        return created;
+    }
+
+    private List<NotificationDTO> insert(List<Object[]> rows) {
+        List<NotificationDTO> created = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += ROWS_PER_INSERT) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + ROWS_PER_INSERT, rows.size()));
+            StringBuilder sql = new StringBuilder("INSERT INTO notifications (message, user_id, task_id, read) VALUES ");
+            Object[] args = new Object[chunk.size() * 3];
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, false)" : ", (?, ?, ?, false)");
+                System.arraycopy(chunk.get(i), 0, args, i * 3, 3);
+            }
+            sql.append(" RETURNING id, message, user_id, task_id");
+            created.addAll(jdbcTemplate.query(sql.toString(), (resultSet, rowNum) -> {
+                NotificationDTO notificationDTO = new NotificationDTO();
+                notificationDTO.setId(resultSet.getLong("id"));
+                notificationDTO.setMessage(resultSet.getString("message"));
+                notificationDTO.setUserId(resultSet.getLong("user_id"));
+                notificationDTO.setTaskId(resultSet.getLong("task_id"));
+                notificationDTO.setRead(false);
+                return notificationDTO;
+            }, args));
+        }
+        return created;
+    }
+}
@@ -1,44 +1,56 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.NotificationDTO;
 import com.i2s.worfklow_api_final.model.Notification;
 import com.i2s.worfklow_api_final.model.User;
 import com.i2s.worfklow_api_final.repository.NotificationRepository;
 import com.i2s.worfklow_api_final.repository.UserRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final ModelMapper modelMapper;
+    private final EntityStreamer entityStreamer;
+    private final UnreadCounterService unreadCounterService;
 
     @Autowired
-    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository, ModelMapper modelMapper) {
+    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository, EntityStreamer entityStreamer, UnreadCounterService unreadCounterService) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
-        this.modelMapper = modelMapper;
+        this.entityStreamer = entityStreamer;
+        this.unreadCounterService = unreadCounterService;
     }
 
     public List<NotificationDTO> getAllNotifications() {
-        return notificationRepository.findAll().stream().map(notification -> {
-            NotificationDTO notificationDTO = modelMapper.map(notification, NotificationDTO.class);
-            return notificationDTO;
-        }).collect(Collectors.toList());
+        return notificationRepository.findAll().stream().map(NotificationDTO::new).collect(Collectors.toList());
+    }
+
+    public CursorPageDTO<NotificationDTO> getNotificationsAfter(long afterId, int size) {
+        List<Notification> notifications = notificationRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(notifications.stream().map(NotificationDTO::new).collect(Collectors.toList()), size, NotificationDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllNotifications(Consumer<NotificationDTO> sink) {
+        try (Stream<Notification> notifications = notificationRepository.streamAllOrderedById()) {
+            entityStreamer.stream(notifications, chunk -> chunk.stream().map(NotificationDTO::new).collect(Collectors.toList()), sink);
+        }
     }
 
     public Optional<NotificationDTO> getNotificationById(long id) {
-        return notificationRepository.findById(id).map(notification -> {
-            NotificationDTO notificationDTO = modelMapper.map(notification, NotificationDTO.class);
-            return notificationDTO;
-        });
+        return notificationRepository.findById(id).map(NotificationDTO::new);
     }
 
     public List<NotificationDTO> getNotificationsForUser(long userId) {
@@ -46,24 +58,52 @@ public class NotificationService {
         List<Notification> notifications = notificationRepository.findByUser(user);
 
         return notifications.stream()
-                .map(notification -> modelMapper.map(notification, NotificationDTO.class))
+                .map(NotificationDTO::new)
                 .collect(Collectors.toList());
     }
 
     public List<NotificationDTO> getUnreadNotificationsForUser(long userId) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new EntityNotFoundException("User with ID " + userId + " not found."));
-        List<Notification> notifications = notificationRepository.findByReadAndAndUser(false, user);
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("User with ID " + userId + " not found.");
+        }
+        // Served by the (user_id, read) index
+        List<Notification> notifications = notificationRepository.findByUserIdAndRead(userId, false);
 
         return notifications.stream()
-                .map(notification -> modelMapper.map(notification, NotificationDTO.class))
+                .map(NotificationDTO::new)
                 .collect(Collectors.toList());
     }
 
+    // Notifications created after lastSeenId, capped at limit, for a client catching up after a reconnect
+    public List<NotificationDTO> getNotificationsForUserAfter(long userId, long lastSeenId, int limit) {
+        return notificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, lastSeenId, PageRequest.of(0, limit)).stream().map(NotificationDTO::new).collect(Collectors.toList());
+    }
+
+    public long getUnreadCountForUser(long userId) {
+        return unreadCounterService.getUnreadCount(userId);
+    }
+
+    @Transactional
     public NotificationDTO markNotificationAsRead(long notificationId) {
         Notification notification = notificationRepository.findById(notificationId).orElseThrow(() -> new EntityNotFoundException("Notification with ID " + notificationId + " not found."));
-        notification.setRead(true);
-        Notification savedNotification = notificationRepository.save(notification);
-        return modelMapper.map(savedNotification, NotificationDTO.class);
+        if (notificationRepository.markAsReadIfUnread(notificationId) == 1 && notification.getUser() != null) {
+            unreadCounterService.decrementAfterCommit(notification.getUser().getId(), 1);
+        }
+        // The loaded entity is left as is, setting read on it would only repeat the UPDATE at flush
+        NotificationDTO notificationDTO = new NotificationDTO(notification);
+        notificationDTO.setRead(true);
+        return notificationDTO;
+    }
+
+    // One UPDATE for the whole inbox; returns how many notifications were marked
+    @Transactional
+    public int markAllNotificationsAsRead(long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("User with ID " + userId + " not found.");
+        }
+        int updated = notificationRepository.markAllAsReadForUser(userId);
+        unreadCounterService.decrementAfterCommit(userId, updated);
+        return updated;
     }
 
 }
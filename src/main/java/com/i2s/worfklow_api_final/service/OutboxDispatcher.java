@@ -0,0 +1,227 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
+import com.i2s.worfklow_api_final.enums.OutboxChannel;
+import com.i2s.worfklow_api_final.enums.OutboxStatus;
+import com.i2s.worfklow_api_final.event.MethodExecutionFinishedEvent;
+import com.i2s.worfklow_api_final.model.OutboxMessage;
+import com.i2s.worfklow_api_final.repository.MethodExecutionRepository;
+import com.i2s.worfklow_api_final.repository.OutboxMessageRepository;
+import com.i2s.worfklow_api_final.util.RateLimiter;
+import com.vonage.client.VonageClient;
+import com.vonage.client.sms.MessageStatus;
+import com.vonage.client.sms.SmsSubmissionResponse;
+import com.vonage.client.sms.SmsSubmissionResponseMessage;
+import com.vonage.client.sms.messages.TextMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+// Drains the outbox in batches: all due emails of a batch go through one SMTP connection, SMS submissions run
+// concurrently under a rate limit. Failed messages are retried with exponential backoff, and once every message
+// of a method execution is settled its final status is written and a MethodExecutionFinishedEvent is published.
+@Component
+public class OutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final long MAX_BACKOFF_MS = 10 * 60 * 1000L;
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final MethodExecutionRepository methodExecutionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JavaMailSender javaMailSender;
+    private final VonageClient vonageClient;
+    private final Executor smsExecutor;
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+    @Value("${outbox.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${outbox.retry.base-delay-ms:2000}")
+    private long baseDelayMs;
+    @Value("${outbox.lease-seconds:300}")
+    private long leaseSeconds;
+    @Value("${outbox.sms.rate-per-second:10}")
+    private double smsRatePerSecond;
+
+    private RateLimiter smsRateLimiter;
+
+    @Autowired
+    public OutboxDispatcher(OutboxMessageRepository outboxMessageRepository, MethodExecutionRepository methodExecutionRepository, TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher, JavaMailSender javaMailSender, VonageClient vonageClient, @Qualifier("smsExecutor") Executor smsExecutor) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.methodExecutionRepository = methodExecutionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.javaMailSender = javaMailSender;
+        this.vonageClient = vonageClient;
+        this.smsExecutor = smsExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        smsRateLimiter = new RateLimiter(smsRatePerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        try {
+            dispatchEmails();
+            dispatchSms();
+        } catch (Exception e) {
+            logger.error("Outbox dispatch failed", e);
+        }
+    }
+
+    private void dispatchEmails() {
+        List<OutboxMessage> batch = claim(OutboxChannel.EMAIL);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        SimpleMailMessage[] mailMessages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxMessage message = batch.get(i);
+            SimpleMailMessage mailMessage = new SimpleMailMessage();
+            mailMessage.setFrom(message.getSender());
+            mailMessage.setTo(message.getRecipient());
+            mailMessage.setSubject(message.getSubject());
+            mailMessage.setText(message.getContent());
+            mailMessages[i] = mailMessage;
+        }
+
+        Map<Long, String> errors = new HashMap<>();
+        try {
+            // JavaMailSenderImpl sends the whole array over a single connection
+            javaMailSender.send(mailMessages);
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            for (int i = 0; i < batch.size(); i++) {
+                Exception failure = failedMessages.isEmpty() ? e : failedMessages.get(mailMessages[i]);
+                if (failure != null) {
+                    errors.put(batch.get(i).getId(), String.valueOf(failure.getMessage()));
+                }
+            }
+        } catch (MailException e) {
+            batch.forEach(message -> errors.put(message.getId(), String.valueOf(e.getMessage())));
+        }
+
+        record(batch, errors);
+    }
+
+    private void dispatchSms() {
+        List<OutboxMessage> batch = claim(OutboxChannel.SMS);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<Long, String> errors = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] submissions = batch.stream().map(message -> CompletableFuture.runAsync(() -> {
+            try {
+                smsRateLimiter.acquire();
+                submitSms(message);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.put(message.getId(), "Interrupted before submission");
+            } catch (Exception e) {
+                errors.put(message.getId(), String.valueOf(e.getMessage()));
+            }
+        }, smsExecutor)).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(submissions).join();
+
+        record(batch, errors);
+    }
+
+    private void submitSms(OutboxMessage message) throws Exception {
+        SmsSubmissionResponse response = vonageClient.getSmsClient().submitMessage(new TextMessage(message.getSender(), message.getRecipient(), message.getContent()));
+
+        if (response.getMessages() == null) {
+            throw new Exception("Failed to send message, response is null");
+        }
+
+        for (SmsSubmissionResponseMessage msg : response.getMessages()) {
+            if (msg.getStatus() != MessageStatus.OK) {
+                throw new Exception("Failed to send message, error: " + msg.getErrorText());
+            }
+        }
+    }
+
+    // Takes a lease on a batch of due messages and commits right away, so no row lock is held while sending
+    private List<OutboxMessage> claim(OutboxChannel channel) {
+        return transactionTemplate.execute(transactionStatus -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxMessage> batch = outboxMessageRepository.findDueForUpdate(OutboxStatus.PENDING, channel, now, PageRequest.of(0, batchSize));
+            for (OutboxMessage message : batch) {
+                message.setAttempts(message.getAttempts() + 1);
+                message.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+            }
+            return batch;
+        });
+    }
+
+    private void record(List<OutboxMessage> batch, Map<Long, String> errors) {
+        List<MethodExecutionFinishedEvent> finishedExecutions = transactionTemplate.execute(transactionStatus -> {
+            LocalDateTime now = LocalDateTime.now();
+            Map<Long, Long> taskIdsByExecutionId = new HashMap<>();
+            for (OutboxMessage message : batch) {
+                String error = errors.get(message.getId());
+                if (error == null) {
+                    message.setStatus(OutboxStatus.SENT);
+                    message.setSentAt(now);
+                    message.setLastError(null);
+                } else if (message.getAttempts() >= maxAttempts) {
+                    logger.warn("Giving up on outbox message {} after {} attempts: {}", message.getId(), message.getAttempts(), error);
+                    message.setStatus(OutboxStatus.FAILED);
+                    message.setLastError(truncate(error));
+                } else {
+                    message.setNextAttemptAt(now.plusNanos(backoffMs(message.getAttempts()) * 1_000_000L));
+                    message.setLastError(truncate(error));
+                }
+                outboxMessageRepository.save(message);
+                if (message.getMethodExecutionId() != null) {
+                    taskIdsByExecutionId.put(message.getMethodExecutionId(), message.getTaskId());
+                }
+            }
+
+            List<MethodExecutionFinishedEvent> finished = new ArrayList<>();
+            for (Map.Entry<Long, Long> entry : taskIdsByExecutionId.entrySet()) {
+                long methodExecutionId = entry.getKey();
+                if (outboxMessageRepository.countByMethodExecutionIdAndStatus(methodExecutionId, OutboxStatus.PENDING) > 0) {
+                    continue;
+                }
+                ExecutionStatus status = outboxMessageRepository.countByMethodExecutionIdAndStatus(methodExecutionId, OutboxStatus.FAILED) > 0 ? ExecutionStatus.FAILURE : ExecutionStatus.SUCCESS;
+                methodExecutionRepository.updateStatus(methodExecutionId, status);
+                finished.add(new MethodExecutionFinishedEvent(entry.getValue() != null ? entry.getValue() : 0, methodExecutionId, status));
+            }
+            return finished;
+        });
+
+        // After commit, so listeners see the final statuses
+        finishedExecutions.forEach(eventPublisher::publishEvent);
+    }
+
+    private long backoffMs(int attempts) {
+        return Math.min(baseDelayMs << Math.min(attempts - 1, 20), MAX_BACKOFF_MS);
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
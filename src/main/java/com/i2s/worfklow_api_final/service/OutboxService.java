@@ -0,0 +1,48 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.OutboxChannel;
+import com.i2s.worfklow_api_final.model.OutboxMessage;
+import com.i2s.worfklow_api_final.repository.OutboxMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+public class OutboxService {
+    private final OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    public OutboxService(OutboxMessageRepository outboxMessageRepository) {
+        this.outboxMessageRepository = outboxMessageRepository;
+    }
+
+    public OutboxMessage enqueueEmail(String sender, String receiver, String subject, String content) {
+        return enqueue(OutboxChannel.EMAIL, sender, receiver, subject, content);
+    }
+
+    public OutboxMessage enqueueSms(String from, String to, String text) {
+        return enqueue(OutboxChannel.SMS, from, to, null, text);
+    }
+
+    // Joins the caller's transaction; when called from an action, its method execution stays IN_PROGRESS until delivery
+    private OutboxMessage enqueue(OutboxChannel channel, String sender, String recipient, String subject, String content) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage message = new OutboxMessage();
+        message.setChannel(channel);
+        message.setSender(sender);
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setContent(content);
+        message.setCreatedAt(now);
+        message.setNextAttemptAt(now);
+
+        ActionExecutionContext context = ActionExecutionContext.current();
+        if (context != null) {
+            message.setMethodExecutionId(context.getMethodExecutionId());
+            message.setTaskId(context.getTaskId());
+            context.defer();
+        }
+        return outboxMessageRepository.save(message);
+    }
+}
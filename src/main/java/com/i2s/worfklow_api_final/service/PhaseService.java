@@ -1,5 +1,6 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.PhaseDTO;
 import com.i2s.worfklow_api_final.dto.ProjectDTO;
 import com.i2s.worfklow_api_final.model.Phase;
@@ -7,31 +8,49 @@ import com.i2s.worfklow_api_final.model.Project;
 import com.i2s.worfklow_api_final.repository.PhaseRepository;
 import com.i2s.worfklow_api_final.repository.ProjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PhaseService {
     private final PhaseRepository phaseRepository;
     private final ProjectRepository projectRepository;
     private final ProjectService projectService;
+    private final EntityStreamer entityStreamer;
 
     @Autowired
-    public PhaseService(PhaseRepository phaseRepository, ProjectRepository projectRepository, ProjectService projectService) {
+    public PhaseService(PhaseRepository phaseRepository, ProjectRepository projectRepository, ProjectService projectService, EntityStreamer entityStreamer) {
         this.phaseRepository = phaseRepository;
         this.projectRepository = projectRepository;
         this.projectService = projectService;
+        this.entityStreamer = entityStreamer;
     }
 
     public List<PhaseDTO> getAllPhases() {
         return phaseRepository.findAll().stream().map(PhaseDTO::new).collect(Collectors.toList());
     }
 
+    public CursorPageDTO<PhaseDTO> getPhasesAfter(long afterId, int size) {
+        List<Phase> phases = phaseRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(phases.stream().map(PhaseDTO::new).collect(Collectors.toList()), size, PhaseDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllPhases(Consumer<PhaseDTO> sink) {
+        try (Stream<Phase> phases = phaseRepository.streamAllOrderedById()) {
+            entityStreamer.stream(phases, chunk -> chunk.stream().map(PhaseDTO::new).collect(Collectors.toList()), sink);
+        }
+    }
+
     public Optional<PhaseDTO> getPhaseById(long id) {
         return phaseRepository.findById(id).map(PhaseDTO::new);
     }
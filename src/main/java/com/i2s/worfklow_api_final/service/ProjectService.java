@@ -1,6 +1,7 @@
 package com.i2s.worfklow_api_final.service;
 
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.PhaseDTO;
 import com.i2s.worfklow_api_final.dto.ProjectDTO;
 import com.i2s.worfklow_api_final.model.Phase;
@@ -11,27 +12,33 @@ import com.i2s.worfklow_api_final.repository.ProjectRepository;
 import com.i2s.worfklow_api_final.repository.TaskRepository;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProjectService {
     private final ProjectRepository projectRepository;
     private final PhaseRepository phaseRepository;
     private final TaskRepository taskRepository;
+    private final EntityStreamer entityStreamer;
 
 
     @Autowired
-    public ProjectService(ProjectRepository projectRepository, PhaseRepository phaseRepository, TaskRepository taskRepository, ModelMapper modelMapper) {
+    public ProjectService(ProjectRepository projectRepository, PhaseRepository phaseRepository, TaskRepository taskRepository, ModelMapper modelMapper, EntityStreamer entityStreamer) {
         this.projectRepository = projectRepository;
         this.phaseRepository = phaseRepository;
         this.taskRepository = taskRepository;
 
+        this.entityStreamer = entityStreamer;
     }
 
     public List<ProjectDTO> getAllProjects() {
@@ -39,6 +46,18 @@ public class ProjectService {
 
     }
 
+    public CursorPageDTO<ProjectDTO> getProjectsAfter(long afterId, int size) {
+        List<Project> projects = projectRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(projects.stream().map(ProjectDTO::new).collect(Collectors.toList()), size, ProjectDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllProjects(Consumer<ProjectDTO> sink) {
+        try (Stream<Project> projects = projectRepository.streamAllOrderedById()) {
+            entityStreamer.stream(projects, chunk -> chunk.stream().map(ProjectDTO::new).collect(Collectors.toList()), sink);
+        }
+    }
+
     public Optional<ProjectDTO> getProjectById(long id) {
 
         return projectRepository.findById(id).map(ProjectDTO::new);
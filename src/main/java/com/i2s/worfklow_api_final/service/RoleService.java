@@ -3,6 +3,7 @@ package com.i2s.worfklow_api_final.service;
 import com.i2s.worfklow_api_final.dto.RoleDTO;
 import com.i2s.worfklow_api_final.model.Role;
 import com.i2s.worfklow_api_final.repository.RoleRepository;
+import com.i2s.worfklow_api_final.security.AuthenticationCache;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -17,12 +18,14 @@ import java.util.stream.Collectors;
 public class RoleService {
     private final RoleRepository roleRepository;
     private final ModelMapper modelMapper;
+    private final AuthenticationCache authenticationCache;
 
     @Autowired
 
-    public RoleService(RoleRepository roleRepository, ModelMapper modelMapper) {
+    public RoleService(RoleRepository roleRepository, ModelMapper modelMapper, AuthenticationCache authenticationCache) {
         this.roleRepository = roleRepository;
         this.modelMapper = modelMapper;
+        this.authenticationCache = authenticationCache;
     }
 
     public List<RoleDTO> getAllRoles() {
@@ -45,6 +48,8 @@ public class RoleService {
         Role role = roleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("ROLE with ID " + id + " not found."));
         roleRepository.deleteById(id);
+        // Cached principals may still carry the deleted role
+        authenticationCache.invalidateAll();
     }
 
     public RoleDTO getRoleByName(String roleName) {
@@ -1,117 +1,242 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CompletionTimeStatsDTO;
+import com.i2s.worfklow_api_final.dto.StatsNodeDTO;
+import com.i2s.worfklow_api_final.dto.TimeSeriesPointDTO;
+import com.i2s.worfklow_api_final.enums.HistoryResolution;
 import com.i2s.worfklow_api_final.enums.TaskStatus;
 import com.i2s.worfklow_api_final.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class StatisticsService {
+    private static final int MAX_SERIES_POINTS = 5000;
+
     private final TaskRepository taskRepository;
     private final ProjectRepository projectRepository;
     private final PhaseRepository phaseRepository;
     private final StepRepository stepRepository;
     private final UserRepository userRepository;
     private final JobRepository jobRepository;
+    private final TaskStatsRepository taskStatsRepository;
+    private final TaskHistoryRepository taskHistoryRepository;
+    private final TaskHistoryService taskHistoryService;
 
 
     @Autowired
-    public StatisticsService(TaskRepository taskRepository, ProjectRepository projectRepository, PhaseRepository phaseRepository, StepRepository stepRepository, UserRepository userRepository, JobRepository jobRepository) {
+    public StatisticsService(TaskRepository taskRepository, ProjectRepository projectRepository, PhaseRepository phaseRepository, StepRepository stepRepository, UserRepository userRepository, JobRepository jobRepository, TaskStatsRepository taskStatsRepository, TaskHistoryRepository taskHistoryRepository, TaskHistoryService taskHistoryService) {
         this.taskRepository = taskRepository;
         this.projectRepository = projectRepository;
         this.phaseRepository = phaseRepository;
         this.stepRepository = stepRepository;
         this.userRepository = userRepository;
         this.jobRepository = jobRepository;
+        this.taskStatsRepository = taskStatsRepository;
+        this.taskHistoryRepository = taskHistoryRepository;
+        this.taskHistoryService = taskHistoryService;
     }
 
 
-    public double getCompletionRateForAllTasks() {
-        long totalTasks = taskRepository.countAllTasks();
-        long completedTasks = taskRepository.countAllTasksByStatus(TaskStatus.FINISHED);
+    // Counts, completion rates and average durations for every project, phase and step, from one query over the
+    // task_stats summary. It returns leaf rows per step and status; the totals above them are summed up here.
+    public StatsNodeDTO getSummary() {
+        StatsAccumulator root = new StatsAccumulator(new StatsNodeDTO("all", null, null));
+        for (Object[] row : taskStatsRepository.getSummaryByStep()) {
+            StatsAccumulator project = root.child("project", row[0], row[1]);
+            StatsAccumulator phase = row[2] != null ? project.child("phase", row[2], row[3]) : null;
+            StatsAccumulator step = row[4] != null ? phase.child("step", row[4], row[5]) : null;
+            if (row[6] == null) {
+                // Outer-joined row without tasks, only there to list the empty node
+                continue;
+            }
+            TaskStatus status = TaskStatus.valueOf((String) row[6]);
+            long count = ((Number) row[7]).longValue();
+            double durationSum = row[8] != null ? ((Number) row[8]).doubleValue() : 0.0;
+            long durationCount = row[9] != null ? ((Number) row[9]).longValue() : 0;
+            for (StatsAccumulator accumulator : new StatsAccumulator[]{root, project, phase, step}) {
+                accumulator.add(status, count, durationSum, durationCount);
+            }
+        }
+        return root.finish();
+    }
 
-        return totalTasks > 0 ? (double) completedTasks / totalTasks : 0.0;
+    // Counts, rates and averages below are read from the task_stats summary, never from the tasks table
+
+    public double getCompletionRateForAllTasks() {
+        return totalsForAllTasks().getCompletionRate();
     }
 
     public double getCompletionRateForProject(long projectId) {
-        long totalTasks = taskRepository.countByProjectId(projectId);
-        long completedTasks = taskRepository.countByProjectIdAndStatus(projectId, TaskStatus.FINISHED);
-
-        return totalTasks > 0 ? (double) completedTasks / totalTasks : 0.0;
+        return totals(taskStatsRepository.sumForProject(projectId)).getCompletionRate();
     }
 
     public double getCompletionRateForProjectAndPhase(long projectId, long phaseId) {
-        long totalTasks = taskRepository.countByProjectIdAndPhaseId(projectId, phaseId);
-        long completedTasks = taskRepository.countByProjectIdAndPhaseIdAndStatus(projectId, phaseId, TaskStatus.FINISHED);
-
-        return totalTasks > 0 ? (double) completedTasks / totalTasks : 0.0;
+        return totals(taskStatsRepository.sumForProjectAndPhase(projectId, phaseId)).getCompletionRate();
     }
 
     public double getCompletionRateForProjectAndPhaseAndStep(long projectId, long phaseId, long stepId) {
-        long totalTasks = taskRepository.countByProjectIdAndPhaseIdAndStepId(projectId, phaseId, stepId);
-        long completedTasks = taskRepository.countByProjectIdAndPhaseIdAndStepIdAndStatus(projectId, phaseId, stepId, TaskStatus.FINISHED);
-
-        return totalTasks > 0 ? (double) completedTasks / totalTasks : 0.0;
+        return totals(taskStatsRepository.sumForProjectAndPhaseAndStep(projectId, phaseId, stepId)).getCompletionRate();
     }
 
     public long getCountForAllTasks() {
-        return taskRepository.countAllTasks();
+        return totalsForAllTasks().getTaskCount();
     }
 
     public long getCountForAllTasksByStatus(TaskStatus status) {
-        return taskRepository.countAllTasksByStatus(status);
+        return totalsForAllTasks().getCountsByStatus().getOrDefault(status, 0L);
     }
 
     public long getCountForProjectByStatus(long projectId, TaskStatus status) {
-        return taskRepository.countByProjectIdAndStatus(projectId, status);
+        return totals(taskStatsRepository.sumForProject(projectId)).getCountsByStatus().getOrDefault(status, 0L);
     }
 
     public long getCountForProjectAndPhaseByStatus(long projectId, long phaseId, TaskStatus status) {
-        return taskRepository.countByProjectIdAndPhaseIdAndStatus(projectId, phaseId, status);
+        return totals(taskStatsRepository.sumForProjectAndPhase(projectId, phaseId)).getCountsByStatus().getOrDefault(status, 0L);
     }
 
     public long getCountForProjectPhaseAndStepByStatus(long projectId, long phaseId, long stepId, TaskStatus status) {
-        return taskRepository.countByProjectIdAndPhaseIdAndStepIdAndStatus(projectId, phaseId, stepId, status);
+        return totals(taskStatsRepository.sumForProjectAndPhaseAndStep(projectId, phaseId, stepId)).getCountsByStatus().getOrDefault(status, 0L);
+    }
+
+    public double getAverageCompletionTimeForAllTasks() {
+        return totalsForAllTasks().getAverageCompletionTime();
+    }
+
+    public double getAverageCompletionTimeForProject(long projectId) {
+        return totals(taskStatsRepository.sumForProject(projectId)).getAverageCompletionTime();
+    }
+
+    public double getAverageCompletionTimeForProjectAndPhase(long projectId, long phaseId) {
+        return totals(taskStatsRepository.sumForProjectAndPhase(projectId, phaseId)).getAverageCompletionTime();
+    }
+
+    public double getAverageCompletionTimeForProjectAndPhaseAndStep(long projectId, long phaseId, long stepId) {
+        return totals(taskStatsRepository.sumForProjectAndPhaseAndStep(projectId, phaseId, stepId)).getAverageCompletionTime();
+    }
+
+    private StatsNodeDTO totalsForAllTasks() {
+        return totals(taskStatsRepository.sumForAllTasks());
+    }
+
+    // From (status, task count, duration sum, duration count) rows
+    private static StatsNodeDTO totals(List<Object[]> rows) {
+        StatsAccumulator accumulator = new StatsAccumulator(new StatsNodeDTO());
+        for (Object[] row : rows) {
+            accumulator.add(TaskStatus.valueOf((String) row[0]), ((Number) row[1]).longValue(), ((Number) row[2]).doubleValue(), ((Number) row[3]).longValue());
+        }
+        return accumulator.finish();
+    }
+
+    // Percentiles need the individual durations, so these still scan the finished tasks
+    public CompletionTimeStatsDTO getCompletionTimeStatsForAllTasks() {
+        return toCompletionTimeStats(taskRepository.getCompletionTimeStatsForAllTasks());
+    }
+
+    public CompletionTimeStatsDTO getCompletionTimeStatsForProject(long projectId) {
+        return toCompletionTimeStats(taskRepository.getCompletionTimeStatsForProject(projectId));
     }
 
-    public double calculateAverageTime(List<Object[]> startAndEndTimes) {
-        if (startAndEndTimes.isEmpty()) {
-            return 0.0;
+    public CompletionTimeStatsDTO getCompletionTimeStatsForProjectAndPhase(long projectId, long phaseId) {
+        return toCompletionTimeStats(taskRepository.getCompletionTimeStatsForProjectAndPhase(projectId, phaseId));
+    }
+
+    public CompletionTimeStatsDTO getCompletionTimeStatsForProjectAndPhaseAndStep(long projectId, long phaseId, long stepId) {
+        return toCompletionTimeStats(taskRepository.getCompletionTimeStatsForProjectAndPhaseAndStep(projectId, phaseId, stepId));
+    }
+
+    private static CompletionTimeStatsDTO toCompletionTimeStats(List<Object[]> rows) {
+        // The aggregate always yields exactly one row, with nulls when nothing matched
+        return rows.isEmpty() ? new CompletionTimeStatsDTO() : new CompletionTimeStatsDTO(rows.get(0));
+    }
+
+    // Series over [from, to) read from task_history. Every bucket of the range is present, empty ones with 0.
+    // Scope ids of 0 mean "any".
+
+    // Tasks finished per bucket
+    public List<TimeSeriesPointDTO> getThroughput(HistoryResolution resolution, LocalDateTime from, LocalDateTime to, long projectId, long phaseId, long stepId) {
+        List<TimeSeriesPointDTO> series = emptySeries(resolution, from, to);
+        Map<LocalDateTime, TimeSeriesPointDTO> byBucket = index(series);
+        for (Object[] row : taskHistoryRepository.sumFinishedByBucket(resolution.getSqlUnit(), series.get(0).getBucket(), seriesEnd(series, resolution), projectId, phaseId, stepId)) {
+            TimeSeriesPointDTO point = byBucket.get(toLocalDateTime(row[0]));
+            if (point != null) {
+                long finished = ((Number) row[1]).longValue();
+                point.setValue(finished);
+                point.setCount(finished);
+            }
         }
-        double totalTimeInSeconds = 0.0;
-        for (Object[] times : startAndEndTimes) {
-            LocalDateTime start = (LocalDateTime) times[0];
-            LocalDateTime end = (LocalDateTime) times[1];
-            if (start != null && end != null) {
-                Duration duration = Duration.between(start, end);
-                totalTimeInSeconds += duration.getSeconds();
+        return series;
+    }
+
+    // Average completion time in seconds of the tasks finished in each bucket
+    public List<TimeSeriesPointDTO> getLeadTime(HistoryResolution resolution, LocalDateTime from, LocalDateTime to, long projectId, long phaseId, long stepId) {
+        List<TimeSeriesPointDTO> series = emptySeries(resolution, from, to);
+        Map<LocalDateTime, TimeSeriesPointDTO> byBucket = index(series);
+        for (Object[] row : taskHistoryRepository.sumFinishedByBucket(resolution.getSqlUnit(), series.get(0).getBucket(), seriesEnd(series, resolution), projectId, phaseId, stepId)) {
+            TimeSeriesPointDTO point = byBucket.get(toLocalDateTime(row[0]));
+            long durationCount = ((Number) row[3]).longValue();
+            if (point != null && durationCount > 0) {
+                point.setValue(((Number) row[2]).doubleValue() / durationCount);
+                point.setCount(durationCount);
             }
         }
-        return totalTimeInSeconds / startAndEndTimes.size();
+        return series;
     }
 
-    public double getAverageCompletionTimeForAllTasks() {
-        List<Object[]> startAndEndTimes = taskRepository.getStartAndEndTimesForAllTasks(TaskStatus.FINISHED);
-        return calculateAverageTime(startAndEndTimes);
+    // Tasks STARTING or WAITING_FOR_VALIDATION at the end of each bucket. Anchored on the current count from
+    // task_stats and walked back through the recorded changes, so it is right even where history starts late.
+    public List<TimeSeriesPointDTO> getWorkInProgress(HistoryResolution resolution, LocalDateTime from, LocalDateTime to, long projectId, long phaseId, long stepId) {
+        taskHistoryService.flush();
+        List<TimeSeriesPointDTO> series = emptySeries(resolution, from, to);
+        LocalDateTime end = seriesEnd(series, resolution);
+        Map<LocalDateTime, Long> changes = new HashMap<>();
+        for (Object[] row : taskHistoryRepository.sumInProgressChangeByBucket(resolution.getSqlUnit(), series.get(0).getBucket(), end, projectId, phaseId, stepId)) {
+            changes.put(toLocalDateTime(row[0]), ((Number) row[1]).longValue());
+        }
+        long inProgress = taskStatsRepository.countInProgress(projectId, phaseId, stepId) - taskHistoryRepository.sumInProgressChangeSince(end, projectId, phaseId, stepId);
+        for (int i = series.size() - 1; i >= 0; i--) {
+            TimeSeriesPointDTO point = series.get(i);
+            point.setValue(inProgress);
+            point.setCount(inProgress);
+            inProgress -= changes.getOrDefault(point.getBucket(), 0L);
+        }
+        return series;
     }
 
-    public double getAverageCompletionTimeForProject(long projectId) {
-        List<Object[]> startAndEndTimes = taskRepository.getStartAndEndTimesForProject(projectId, TaskStatus.FINISHED);
-        return calculateAverageTime(startAndEndTimes);
+    private static List<TimeSeriesPointDTO> emptySeries(HistoryResolution resolution, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        List<TimeSeriesPointDTO> series = new ArrayList<>();
+        for (LocalDateTime bucket = from.truncatedTo(resolution.getUnit()); bucket.isBefore(to); bucket = bucket.plus(1, resolution.getUnit())) {
+            if (series.size() == MAX_SERIES_POINTS) {
+                throw new IllegalArgumentException("Range too large for resolution " + resolution + ", use a coarser one.");
+            }
+            series.add(new TimeSeriesPointDTO(bucket, 0, 0));
+        }
+        return series;
     }
 
-    public double getAverageCompletionTimeForProjectAndPhase(long projectId, long phaseId) {
-        List<Object[]> startAndEndTimes = taskRepository.getStartAndEndTimesForProjectAndPhase(projectId, phaseId, TaskStatus.FINISHED);
-        return calculateAverageTime(startAndEndTimes);
+    private static LocalDateTime seriesEnd(List<TimeSeriesPointDTO> series, HistoryResolution resolution) {
+        return series.get(series.size() - 1).getBucket().plus(1, resolution.getUnit());
     }
 
-    public double getAverageCompletionTimeForProjectAndPhaseAndStep(long projectId, long phaseId, long stepId) {
-        List<Object[]> startAndEndTimes = taskRepository.getStartAndEndTimesForProjectAndPhaseAndStep(projectId, phaseId, stepId, TaskStatus.FINISHED);
-        return calculateAverageTime(startAndEndTimes);
+    private static Map<LocalDateTime, TimeSeriesPointDTO> index(List<TimeSeriesPointDTO> series) {
+        Map<LocalDateTime, TimeSeriesPointDTO> byBucket = new HashMap<>();
+        series.forEach(point -> byBucket.put(point.getBucket(), point));
+        return byBucket;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp ? ((Timestamp) value).toLocalDateTime() : (LocalDateTime) value;
     }
 
     public long getCountForAllProjects() {
@@ -144,4 +269,36 @@ public class StatisticsService {
     public long getCountForAllJobs() {
         return jobRepository.countJobs();
     }
+
+    private static class StatsAccumulator {
+        private final StatsNodeDTO node;
+        private final Map<Long, StatsAccumulator> children = new LinkedHashMap<>();
+        private double durationSum;
+        private long durationCount;
+
+        StatsAccumulator(StatsNodeDTO node) {
+            this.node = node;
+        }
+
+        StatsAccumulator child(String level, Object id, Object name) {
+            return children.computeIfAbsent(((Number) id).longValue(), key -> new StatsAccumulator(new StatsNodeDTO(level, key, (String) name)));
+        }
+
+        void add(TaskStatus status, long count, double durationSum, long durationCount) {
+            node.setTaskCount(node.getTaskCount() + count);
+            node.getCountsByStatus().merge(status, count, Long::sum);
+            this.durationSum += durationSum;
+            this.durationCount += durationCount;
+        }
+
+        StatsNodeDTO finish() {
+            long finished = node.getCountsByStatus().getOrDefault(TaskStatus.FINISHED, 0L);
+            node.setCompletionRate(node.getTaskCount() > 0 ? (double) finished / node.getTaskCount() : 0.0);
+            node.setAverageCompletionTime(durationCount > 0 ? durationSum / durationCount : 0.0);
+            for (StatsAccumulator child : children.values()) {
+                node.getChildren().add(child.finish());
+            }
+            return node;
+        }
+    }
 }
@@ -1,34 +1,53 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.StepDTO;
 import com.i2s.worfklow_api_final.model.Phase;
 import com.i2s.worfklow_api_final.model.Step;
 import com.i2s.worfklow_api_final.repository.PhaseRepository;
 import com.i2s.worfklow_api_final.repository.StepRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class StepService {
     private final StepRepository stepRepository;
     private final PhaseRepository phaseRepository;
+    private final EntityStreamer entityStreamer;
 
     @Autowired
-    public StepService(StepRepository stepRepository, PhaseRepository phaseRepository) {
+    public StepService(StepRepository stepRepository, PhaseRepository phaseRepository, EntityStreamer entityStreamer) {
         this.stepRepository = stepRepository;
         this.phaseRepository = phaseRepository;
+        this.entityStreamer = entityStreamer;
     }
 
     public List<StepDTO> getAllSteps() {
         return stepRepository.findAll().stream().map(StepDTO::new).collect(Collectors.toList());
     }
 
+    public CursorPageDTO<StepDTO> getStepsAfter(long afterId, int size) {
+        List<Step> steps = stepRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(steps.stream().map(StepDTO::new).collect(Collectors.toList()), size, StepDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllSteps(Consumer<StepDTO> sink) {
+        try (Stream<Step> steps = stepRepository.streamAllOrderedById()) {
+            entityStreamer.stream(steps, chunk -> chunk.stream().map(StepDTO::new).collect(Collectors.toList()), sink);
+        }
+    }
+
     public Optional<StepDTO> getStepById(long id) {
         return stepRepository.findById(id).map(StepDTO::new);
     }
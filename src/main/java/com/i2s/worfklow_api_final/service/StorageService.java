@@ -1,53 +1,290 @@
 package com.i2s.worfklow_api_final.service;
 
 
+import com.i2s.worfklow_api_final.dto.FileDTO;
+import com.i2s.worfklow_api_final.storage.BlobStore;
+import lombok.Getter;
 import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.PostConstruct;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Optional;
 
 import java.io.File;
+
+// Content-addressed storage: a blob is stored under the key blobs/<h0h1>/<h2h3>/<sha256> in the configured BlobStore,
+// so identical content is stored once and no upload can overwrite another. Uploads are first written to tmp/ on this
+// node's disk while being hashed, then handed to the blob store, which renames or uploads them.
 @Service
 public class StorageService {
 
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     @Value("${filestorage.base-dir:uploads/}")
     private String fileStorageLocation;
 
+    @Value("${storage.presign-ttl-seconds:300}")
+    private long presignTtlSeconds;
+
+    private final BlobStore blobStore;
+
     private Path storagePath;
+    private Path tempPath;
+    private Path derivativePath;
+
+    @Autowired
+    public StorageService(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
 
     @PostConstruct
     public void init() {
         storagePath = Paths.get(fileStorageLocation).toAbsolutePath().normalize();
+        tempPath = storagePath.resolve("tmp");
+        derivativePath = storagePath.resolve("derivatives");
         try {
-            FileUtils.forceMkdir(storagePath.toFile());
+            FileUtils.forceMkdir(tempPath.toFile());
+            FileUtils.forceMkdir(derivativePath.toFile());
         } catch (IOException e) {
             throw new RuntimeException("Could not create the directory for file storage.", e);
         }
     }
 
-    public Path storeFile(MultipartFile multipartFile) {
-        String originalFileName = multipartFile.getOriginalFilename();
-        Path filePath = storagePath.resolve(originalFileName);
+    // Copies the stream into a temporary file through a direct buffer, feeding the digest from the same buffer, so
+    // the content is read once and never held in memory as a whole. Fails once more than maxSize bytes arrive.
+    public StagedBlob stage(InputStream inputStream, long maxSize) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(tempPath, "upload-", ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            try (ReadableByteChannel in = openChannel(inputStream);
+                 FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (size > maxSize) {
+                        throw new IllegalArgumentException("File size exceeds limit.");
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            StagedBlob staged = new StagedBlob(tempFile, toHex(digest.digest()), size, true);
+            tempFile = null;
+            return staged;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store the uploaded file. Please try again.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        } finally {
+            if (tempFile != null) {
+                FileUtils.deleteQuietly(tempFile.toFile());
+            }
+        }
+    }
+
+    // Reserves the full size of a chunked upload up front, so chunks can be written at their offsets in any order
+    public Path createPartFile(long size) {
+        try {
+            Path partFile = Files.createTempFile(tempPath, "session-", ".part");
+            try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+                file.setLength(size);
+            }
+            return partFile;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create the upload file. Please try again.", e);
+        }
+    }
+
+    // Positional write of one chunk into a part file; returns the SHA-256 of exactly the bytes written and fails
+    // when the stream does not carry exactly length bytes. Chunks of one file may be written concurrently.
+    public String writeChunk(Path partFile, long position, long length, InputStream inputStream) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long written = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            try (ReadableByteChannel in = openChannel(inputStream);
+                 FileChannel out = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    if (written + buffer.remaining() > length) {
+                        throw new IllegalArgumentException("Chunk is larger than expected.");
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        written += out.write(buffer, position + written);
+                    }
+                    buffer.clear();
+                }
+            }
+            if (written != length) {
+                throw new IllegalArgumentException("Chunk is smaller than expected.");
+            }
+            return toHex(digest.digest());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write the chunk. Please try again.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
 
+    // Stages a fully assembled part file: one sequential read for the content hash, no copy. The part file stays
+    // with its owner until the blob store takes it.
+    public StagedBlob stage(Path partFile) {
         try {
-            multipartFile.transferTo(filePath.toFile());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            long size = 0;
+            try (FileChannel in = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+            return new StagedBlob(partFile, toHex(digest.digest()), size, false);
         } catch (IOException e) {
-            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again.", e);
+            throw new RuntimeException("Could not read the uploaded file. Please try again.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
         }
+    }
 
-        return filePath;
+    // Content an earlier commit already handed to the blob store, when its part file is gone
+    public StagedBlob stageStored(Path partFile, String contentHash, long size) {
+        return new StagedBlob(partFile, contentHash, size, false);
     }
 
-    public void deleteFile(String filePath) {
+    public boolean blobExists(String contentHash) {
         try {
-            FileUtils.forceDelete(new File(filePath));
+            return blobStore.exists(getBlobKey(contentHash));
         } catch (IOException e) {
-            throw new RuntimeException("Failed to delete file " + filePath + ". Please try again later.", e);
+            throw new RuntimeException("Could not look up file " + contentHash + ". Please try again.", e);
+        }
+    }
+
+    // Hands a staged upload to the blob store under its content address and returns the key. When the blob already
+    // exists the staged copy is left for discard, in case the blob is deleted before the caller references it.
+    public String commit(StagedBlob staged, String contentType) {
+        String key = getBlobKey(staged.getContentHash());
+        try {
+            if (blobStore.exists(key)) {
+                return key;
+            }
+            blobStore.put(key, staged.getTempFile(), contentType);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store file " + staged.getContentHash() + ". Please try again.", e);
+        }
+        return key;
+    }
+
+    // Part files of chunked uploads are left to their session
+    public void discard(StagedBlob staged) {
+        if (staged.isOwned()) {
+            FileUtils.deleteQuietly(staged.getTempFile().toFile());
+        }
+    }
+
+    public void deleteQuietly(Path path) {
+        FileUtils.deleteQuietly(path.toFile());
+    }
+
+    public String getBlobKey(String contentHash) {
+        return "blobs/" + contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/" + contentHash;
+    }
+
+    // Root of the generated image renditions, laid out with the same shards as the blobs. Derivatives are a cache
+    // and stay on each node's disk whatever the blob store
+    public Path getDerivativePath() {
+        return derivativePath;
+    }
+
+    // Rows without a storage key predate the blob store and name a local file by its absolute path
+    public Optional<Path> getLocalPath(FileDTO file) {
+        if (file.getStorageKey() == null) {
+            return Optional.of(Paths.get(file.getFilePath()).normalize());
+        }
+        return blobStore.localPath(file.getStorageKey());
+    }
+
+    public Optional<String> getPresignedUrl(FileDTO file, String fileName, String contentType) {
+        if (file.getStorageKey() == null) {
+            return Optional.empty();
+        }
+        return blobStore.presignedUrl(file.getStorageKey(), fileName, contentType, Duration.ofSeconds(presignTtlSeconds));
+    }
+
+    public InputStream open(FileDTO file) throws IOException {
+        if (file.getStorageKey() == null) {
+            return Files.newInputStream(Paths.get(file.getFilePath()));
+        }
+        return blobStore.open(file.getStorageKey());
+    }
+
+    public void deleteFile(FileDTO file) {
+        try {
+            if (file.getStorageKey() != null) {
+                blobStore.delete(file.getStorageKey());
+            } else {
+                FileUtils.forceDelete(new File(file.getFilePath()));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete file " + file.getFilePath() + ". Please try again later.", e);
+        }
+    }
+
+    // Parts Tomcat spooled to disk come as a FileInputStream; read those through their own channel
+    private static ReadableByteChannel openChannel(InputStream inputStream) {
+        if (inputStream instanceof FileInputStream) {
+            return ((FileInputStream) inputStream).getChannel();
+        }
+        return Channels.newChannel(inputStream);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    @Getter
+    public static class StagedBlob {
+        private final Path tempFile;
+        private final String contentHash;
+        private final long size;
+        // False for a part file that belongs to an upload session
+        private final boolean owned;
+
+        StagedBlob(Path tempFile, String contentHash, long size, boolean owned) {
+            this.tempFile = tempFile;
+            this.contentHash = contentHash;
+            this.size = size;
+            this.owned = owned;
         }
     }
 }
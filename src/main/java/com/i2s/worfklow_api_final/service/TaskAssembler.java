@@ -0,0 +1,115 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.FeedbackDTO;
+import com.i2s.worfklow_api_final.dto.MethodExecutionDTO;
+import com.i2s.worfklow_api_final.dto.TaskDTO;
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
+import com.i2s.worfklow_api_final.model.Task;
+import com.i2s.worfklow_api_final.repository.FeedbackRepository;
+import com.i2s.worfklow_api_final.repository.MethodExecutionRepository;
+import com.i2s.worfklow_api_final.repository.TaskRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Builds TaskDTOs for a batch of tasks with one query per association instead of one lazy load per task and collection.
+@Component
+public class TaskAssembler {
+    // Keeps the IN lists well below the PostgreSQL bind parameter limit
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final TaskRepository taskRepository;
+    private final MethodExecutionRepository methodExecutionRepository;
+    private final FeedbackRepository feedbackRepository;
+
+    @Autowired
+    public TaskAssembler(TaskRepository taskRepository, MethodExecutionRepository methodExecutionRepository, FeedbackRepository feedbackRepository) {
+        this.taskRepository = taskRepository;
+        this.methodExecutionRepository = methodExecutionRepository;
+        this.feedbackRepository = feedbackRepository;
+    }
+
+    public TaskDTO toDTO(Task task) {
+        return toDTOs(Collections.singletonList(task)).get(0);
+    }
+
+    public List<TaskDTO> toDTOs(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> taskIds = tasks.stream().map(Task::getId).collect(Collectors.toList());
+
+        Map<Long, List<Long>> fileIds = new HashMap<>();
+        Map<Long, List<Long>> methodIds = new HashMap<>();
+        Map<Long, List<Long>> jobIds = new HashMap<>();
+        Map<Long, List<Long>> parentTaskIds = new HashMap<>();
+        Map<Long, List<Long>> childTaskIds = new HashMap<>();
+        Map<Long, List<MethodExecutionDTO>> methodExecutions = new HashMap<>();
+        Map<Long, List<FeedbackDTO>> feedbacks = new HashMap<>();
+
+        for (List<Long> batch : partition(taskIds)) {
+            groupPairs(taskRepository.findFileIdsByTaskIds(batch), fileIds);
+            groupPairs(taskRepository.findMethodIdsByTaskIds(batch), methodIds);
+            groupPairs(taskRepository.findJobIdsByTaskIds(batch), jobIds);
+
+            Set<Long> batchIds = new HashSet<>(batch);
+            for (Object[] link : taskRepository.findParentLinksByTaskIds(batch)) {
+                long childId = ((Number) link[0]).longValue();
+                long parentId = ((Number) link[1]).longValue();
+                if (batchIds.contains(childId)) {
+                    parentTaskIds.computeIfAbsent(childId, id -> new ArrayList<>()).add(parentId);
+                }
+                if (batchIds.contains(parentId)) {
+                    childTaskIds.computeIfAbsent(parentId, id -> new ArrayList<>()).add(childId);
+                }
+            }
+
+            for (Object[] row : methodExecutionRepository.findSummariesByTaskIds(batch)) {
+                MethodExecutionDTO methodExecutionDTO = new MethodExecutionDTO();
+                methodExecutionDTO.setId((Long) row[0]);
+                methodExecutionDTO.setTaskId((Long) row[1]);
+                methodExecutionDTO.setMethodId(row[2] != null ? (Long) row[2] : 0);
+                methodExecutionDTO.setStatus((ExecutionStatus) row[3]);
+                methodExecutions.computeIfAbsent(methodExecutionDTO.getTaskId(), id -> new ArrayList<>()).add(methodExecutionDTO);
+            }
+
+            for (Object[] row : feedbackRepository.findSummariesByTaskIds(batch)) {
+                FeedbackDTO feedbackDTO = new FeedbackDTO();
+                feedbackDTO.setId((Long) row[0]);
+                feedbackDTO.setMessage((String) row[2]);
+                feedbackDTO.setFeedbackDate((LocalDateTime) row[3]);
+                feedbackDTO.setUserId(row[4] != null ? (Long) row[4] : 0);
+                feedbacks.computeIfAbsent((Long) row[1], id -> new ArrayList<>()).add(feedbackDTO);
+            }
+        }
+
+        return tasks.stream().map(task -> {
+            TaskDTO taskDTO = new TaskDTO(task);
+            taskDTO.setFileIds(fileIds.getOrDefault(task.getId(), new ArrayList<>()));
+            taskDTO.setMethodIds(methodIds.getOrDefault(task.getId(), new ArrayList<>()));
+            taskDTO.setAssignedJobIds(jobIds.getOrDefault(task.getId(), new ArrayList<>()));
+            taskDTO.setParentTaskIds(parentTaskIds.getOrDefault(task.getId(), new ArrayList<>()));
+            taskDTO.setChildTaskIds(childTaskIds.getOrDefault(task.getId(), new ArrayList<>()));
+            taskDTO.setMethodExecutions(methodExecutions.getOrDefault(task.getId(), new ArrayList<>()));
+            taskDTO.setFeedbacks(feedbacks.getOrDefault(task.getId(), new ArrayList<>()));
+            return taskDTO;
+        }).collect(Collectors.toList());
+    }
+
+    private static void groupPairs(List<Object[]> rows, Map<Long, List<Long>> target) {
+        for (Object[] row : rows) {
+            target.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>()).add(((Number) row[1]).longValue());
+        }
+    }
+
+    private static List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            batches.add(ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size())));
+        }
+        return batches;
+    }
+}
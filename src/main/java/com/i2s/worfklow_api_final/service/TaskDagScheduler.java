@@ -0,0 +1,324 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.model.Task;
+import com.i2s.worfklow_api_final.repository.TaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Starts child tasks as soon as all of their parents are finished. Each project keeps an in-memory DAG with a
+// remaining-unfinished-parents counter per task, so finishing a task costs O(out-degree) plus one batched update.
+// Counters only change after the transaction that finished the task commits: until then a transaction reads the
+// committed counters minus its own pending finishes, so other transactions never act on a finish that may roll back.
+// A child whose counter only reaches zero when the counters are applied (its last two parents finished in concurrent
+// transactions) is started right after commit.
+// A project's DAG is rebuilt from the database after structural changes.
+// Parents in another project cannot be counted here, so children that have one are confirmed against the database.
+// The DAG only sees the transitions made on this node: deployments where several nodes change the tasks of one
+// project must set task.dag.enabled=false, which answers every finish with one query instead.
+@Component
+public class TaskDagScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(TaskDagScheduler.class);
+
+    private final TaskRepository taskRepository;
+    private final TaskStatusPublisher taskStatusPublisher;
+    private final NotificationFanoutService notificationFanoutService;
+    // Late starts run from afterCommit, where a REQUIRED template would join the finished transaction
+    private final TransactionTemplate lateStartTemplate;
+    private final Map<Long, ProjectDag> dagsByProjectId = new ConcurrentHashMap<>();
+
+    @Value("${task.dag.enabled:true}")
+    private boolean dagEnabled;
+
+    @Autowired
+    public TaskDagScheduler(TaskRepository taskRepository, TaskStatusPublisher taskStatusPublisher, NotificationFanoutService notificationFanoutService, TransactionTemplate transactionTemplate) {
+        this.taskRepository = taskRepository;
+        this.taskStatusPublisher = taskStatusPublisher;
+        this.notificationFanoutService = notificationFanoutService;
+        this.lateStartTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.lateStartTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Notification for a child task that was started, whether in the finishing transaction or after it
+    public static String startedMessage(Task task) {
+        return "The task '" + task.getTaskName() + "' has started.";
+    }
+
+    // Records that a task finished and starts the children that became ready; returns the IDs of the started tasks
+    @Transactional
+    public List<Long> onTaskFinished(long taskId) {
+        Optional<Long> projectId = dagEnabled ? taskRepository.findProjectIdByTaskId(taskId) : Optional.empty();
+        List<Long> readyIds;
+        if (projectId.isPresent()) {
+            readyIds = new ArrayList<>();
+            List<Long> uncountedIds = new ArrayList<>();
+            collectReady(projectId.get(), taskId, readyIds, uncountedIds);
+            if (!uncountedIds.isEmpty()) {
+                readyIds.addAll(taskRepository.findIdsWithoutUnfinishedParents(uncountedIds));
+            }
+        } else {
+            readyIds = taskRepository.findReadyChildIds(taskId);
+        }
+        if (readyIds.isEmpty()) {
+            return readyIds;
+        }
+        return startReady(readyIds);
+    }
+
+    // Drops the DAG now and again after commit, so a DAG rebuilt from the state before the change does not survive it
+    public void evictProject(long projectId) {
+        dagsByProjectId.remove(projectId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dagsByProjectId.remove(projectId);
+                }
+            });
+        }
+    }
+
+    public void evictProjectOfTask(long taskId) {
+        taskRepository.findProjectIdByTaskId(taskId).ifPresent(this::evictProject);
+    }
+
+    private List<Long> startReady(List<Long> readyIds) {
+        List<Long> startedIds = taskRepository.findIdsByIdInAndStatus(readyIds, TaskStatus.PENDING);
+        if (!startedIds.isEmpty()) {
+            LocalDateTime startedAt = LocalDateTime.now();
+            taskRepository.startPendingTasks(startedIds, startedAt);
+            taskStatusPublisher.started(startedIds, startedAt);
+        }
+        return startedIds;
+    }
+
+    private void collectReady(long projectId, long taskId, List<Long> readyIds, List<Long> uncountedIds) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        PendingFinishes pending = inTransaction ? pendingFinishes().computeIfAbsent(projectId, id -> new PendingFinishes()) : new PendingFinishes();
+        if (!pending.taskIds.add(taskId)) {
+            return;
+        }
+        ProjectDag dag = dagsByProjectId.get(projectId);
+        if (dag == null || dag.indexOf(taskId) < 0) {
+            // Built outside computeIfAbsent so the queries do not run while the map bin is locked; a DAG built here
+            // may contain this transaction's uncommitted changes, so it is dropped if the transaction rolls back
+            ProjectDag built = build(projectId, pending.taskIds);
+            if (dag == null) {
+                ProjectDag existing = dagsByProjectId.putIfAbsent(projectId, built);
+                dag = existing != null ? existing : built;
+            } else {
+                // Task added since the DAG was built
+                dagsByProjectId.replace(projectId, dag, built);
+                dag = built;
+            }
+            pending.built = true;
+        }
+        synchronized (dag) {
+            dag.collectReady(taskId, pending, readyIds, uncountedIds);
+        }
+        if (!inTransaction) {
+            apply(projectId, pending);
+        }
+    }
+
+    // Finishes of the current transaction by project ID, applied to the counters once it commits
+    @SuppressWarnings("unchecked")
+    private Map<Long, PendingFinishes> pendingFinishes() {
+        Map<Long, PendingFinishes> pendingByProjectId = (Map<Long, PendingFinishes>) TransactionSynchronizationManager.getResource(this);
+        if (pendingByProjectId != null) {
+            return pendingByProjectId;
+        }
+        Map<Long, PendingFinishes> newPending = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, newPending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                newPending.forEach(TaskDagScheduler.this::apply);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TaskDagScheduler.this);
+                if (status != STATUS_COMMITTED) {
+                    newPending.forEach((projectId, pending) -> {
+                        if (pending.built) {
+                            dagsByProjectId.remove(projectId);
+                        }
+                    });
+                }
+            }
+        });
+        return newPending;
+    }
+
+    // Applies committed finishes to the counters and starts the children that only became ready now
+    private void apply(long projectId, PendingFinishes pending) {
+        ProjectDag dag = dagsByProjectId.get(projectId);
+        if (dag == null) {
+            // Evicted: the next DAG is built from the committed statuses
+            return;
+        }
+        List<Long> lateIds = new ArrayList<>();
+        synchronized (dag) {
+            for (long taskId : pending.taskIds) {
+                dag.markFinished(taskId, lateIds);
+            }
+        }
+        lateIds.removeAll(pending.handledIds);
+        if (lateIds.isEmpty()) {
+            return;
+        }
+        try {
+            lateStartTemplate.executeWithoutResult(status -> {
+                List<Long> confirmedIds = taskRepository.findIdsWithoutUnfinishedParents(lateIds);
+                List<Long> startedIds = confirmedIds.isEmpty() ? confirmedIds : startReady(confirmedIds);
+                if (startedIds.isEmpty()) {
+                    return;
+                }
+                Map<Long, String> messagesByTaskId = new HashMap<>();
+                for (Task childTask : taskRepository.findAllById(startedIds)) {
+                    messagesByTaskId.put(childTask.getId(), startedMessage(childTask));
+                }
+                notificationFanoutService.notifyAssignees(messagesByTaskId);
+            });
+        } catch (RuntimeException e) {
+            // The finishing transaction has already committed; a failure here must not be reported as its failure
+            logger.error("Could not start tasks {} of project {}", lateIds, projectId, e);
+            dagsByProjectId.remove(projectId);
+        }
+    }
+
+    // The caller has already flushed the finishing tasks, so they are counted as unfinished here and marked once
+    // their transaction commits
+    private ProjectDag build(long projectId, Set<Long> finishingTaskIds) {
+        List<Object[]> tasks = taskRepository.findIdsAndStatusesByProjectId(projectId);
+        long[] ids = new long[tasks.size()];
+        boolean[] finished = new boolean[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            ids[i] = (Long) tasks.get(i)[0];
+            finished[i] = tasks.get(i)[1] == TaskStatus.FINISHED && !finishingTaskIds.contains(ids[i]);
+        }
+        // Edges inside the project as (parent index, child index); edges that cross the project boundary are kept
+        // apart, since the other end's status is not tracked here
+        List<Object[]> links = taskRepository.findParentLinksByProjectId(projectId);
+        int[] parents = new int[links.size()];
+        int[] children = new int[links.size()];
+        int edgeCount = 0;
+        int[] externalParents = new int[ids.length];
+        Map<Integer, List<Long>> externalChildren = new HashMap<>();
+        for (Object[] link : links) {
+            int child = Arrays.binarySearch(ids, (Long) link[0]);
+            int parent = Arrays.binarySearch(ids, (Long) link[1]);
+            if (child >= 0 && parent >= 0) {
+                parents[edgeCount] = parent;
+                children[edgeCount] = child;
+                edgeCount++;
+            } else if (child >= 0) {
+                externalParents[child]++;
+            } else if (parent >= 0) {
+                externalChildren.computeIfAbsent(parent, index -> new ArrayList<>()).add((Long) link[0]);
+            }
+        }
+        return new ProjectDag(ids, finished, parents, children, edgeCount, externalParents, externalChildren);
+    }
+
+    // The tasks one transaction finished in a project and what it already did about their children
+    private static final class PendingFinishes {
+        private final Set<Long> taskIds = new LinkedHashSet<>();
+        // Parents finished by the transaction per child ID, not yet subtracted from the counters
+        private final Map<Long, Integer> decrements = new HashMap<>();
+        // Children already started or checked against the database by the transaction
+        private final Set<Long> handledIds = new HashSet<>();
+        private boolean built;
+    }
+
+    private static final class ProjectDag {
+        private final long[] ids;
+        private final boolean[] finished;
+        private final int[] remainingParents;
+        // Children of task i are childIndexes[childStart[i] .. childStart[i + 1])
+        private final int[] childStart;
+        private final int[] childIndexes;
+        // Parents outside the project per task, and children outside the project by parent index
+        private final int[] externalParents;
+        private final Map<Integer, List<Long>> externalChildren;
+
+        private ProjectDag(long[] ids, boolean[] finished, int[] parents, int[] children, int edgeCount, int[] externalParents, Map<Integer, List<Long>> externalChildren) {
+            this.ids = ids;
+            this.finished = finished;
+            this.externalParents = externalParents;
+            this.externalChildren = externalChildren;
+            this.remainingParents = new int[ids.length];
+            this.childStart = new int[ids.length + 1];
+            this.childIndexes = new int[edgeCount];
+
+            for (int e = 0; e < edgeCount; e++) {
+                childStart[parents[e] + 1]++;
+                if (!finished[parents[e]]) {
+                    remainingParents[children[e]]++;
+                }
+            }
+            for (int i = 0; i < ids.length; i++) {
+                childStart[i + 1] += childStart[i];
+            }
+            int[] next = Arrays.copyOf(childStart, ids.length);
+            for (int e = 0; e < edgeCount; e++) {
+                childIndexes[next[parents[e]]++] = children[e];
+            }
+        }
+
+        private int indexOf(long taskId) {
+            return Arrays.binarySearch(ids, taskId);
+        }
+
+        // Children whose counter, less the transaction's own pending finishes, reaches zero go to readyIds, unless they
+        // also have a parent outside the project; those and the children outside the project go to uncountedIds for
+        // the caller to check. The counters themselves are left alone until markFinished.
+        private void collectReady(long taskId, PendingFinishes pending, List<Long> readyIds, List<Long> uncountedIds) {
+            int index = indexOf(taskId);
+            if (index < 0 || finished[index]) {
+                return;
+            }
+            for (int c = childStart[index]; c < childStart[index + 1]; c++) {
+                int child = childIndexes[c];
+                int decrement = pending.decrements.merge(ids[child], 1, Integer::sum);
+                if (remainingParents[child] - decrement <= 0 && pending.handledIds.add(ids[child])) {
+                    (externalParents[child] > 0 ? uncountedIds : readyIds).add(ids[child]);
+                }
+            }
+            for (long childId : externalChildren.getOrDefault(index, Collections.emptyList())) {
+                if (pending.handledIds.add(childId)) {
+                    uncountedIds.add(childId);
+                }
+            }
+        }
+
+        // Applies a committed finish; children whose counter reached zero go to reachedIds
+        private void markFinished(long taskId, List<Long> reachedIds) {
+            int index = indexOf(taskId);
+            if (index < 0 || finished[index]) {
+                return;
+            }
+            finished[index] = true;
+
+            for (int c = childStart[index]; c < childStart[index + 1]; c++) {
+                int child = childIndexes[c];
+                if (--remainingParents[child] == 0) {
+                    reachedIds.add(ids[child]);
+                }
+            }
+        }
+    }
+}
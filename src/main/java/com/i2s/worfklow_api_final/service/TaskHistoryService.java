@@ -0,0 +1,175 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.HistoryResolution;
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.event.TaskStatusChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Records committed task status transitions into the task_history table. Transitions are summed in memory per
+// (minute, step, status) and appended in one batch per flush, so a burst of transitions costs a few rows rather
+// than one insert each. Compaction keeps the table small by rolling old minutes into hours and old hours into days.
+@Service
+public class TaskHistoryService {
+    private static final Logger logger = LoggerFactory.getLogger(TaskHistoryService.class);
+
+    private static final String INSERT = "INSERT INTO task_history (resolution, bucket_start, step_id, status, entered, exited, duration_sum, duration_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // Grouped by output position: PostgreSQL does not match two separately bound date_trunc(?, ...) expressions
+    private static final String ROLL_UP = "INSERT INTO task_history (resolution, bucket_start, step_id, status, entered, exited, duration_sum, duration_count) "
+            + "SELECT ?, date_trunc(?, bucket_start), step_id, status, SUM(entered), SUM(exited), SUM(duration_sum), SUM(duration_count) "
+            + "FROM task_history WHERE resolution = ? AND bucket_start < ? GROUP BY 2, 3, 4";
+    private static final String DELETE_ROLLED_UP = "DELETE FROM task_history WHERE resolution = ? AND bucket_start < ?";
+    // Released when the compaction transaction ends
+    private static final String TRY_COMPACT_LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+    private static final long COMPACT_LOCK_KEY = 0x7461736b68697374L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private Map<BucketKey, Counters> pending = new HashMap<>();
+
+    @Value("${history.minute-retention-days:7}")
+    private int minuteRetentionDays;
+
+    @Value("${history.hour-retention-days:90}")
+    private int hourRetentionDays;
+
+    @Autowired
+    public TaskHistoryService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // After commit, so rolled back transitions never reach the history
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaskStatusChanged(TaskStatusChangedEvent event) {
+        LocalDateTime minute = event.getOccurredAt().truncatedTo(ChronoUnit.MINUTES);
+        synchronized (this) {
+            if (event.getPreviousStatus() != null) {
+                counters(minute, event.getStepId(), event.getPreviousStatus()).exited += event.getCount();
+            }
+            if (event.getNewStatus() != null) {
+                Counters counters = counters(minute, event.getStepId(), event.getNewStatus());
+                counters.entered += event.getCount();
+                if (event.getNewStatus() == TaskStatus.FINISHED && event.getDurationSeconds() != null) {
+                    counters.durationSum += event.getDurationSeconds();
+                    counters.durationCount++;
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${history.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        Map<BucketKey, Counters> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach((key, counters) -> rows.add(new Object[]{HistoryResolution.MINUTE.name(), Timestamp.valueOf(key.minute), key.stepId, key.status.name(),
+                counters.entered, counters.exited, counters.durationSum, counters.durationCount}));
+        try {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        } catch (DataAccessException e) {
+            // Put the batch back so the next flush retries it
+            logger.warn("Could not write task history, retrying on the next flush: {}", e.getMessage());
+            synchronized (this) {
+                batch.forEach((key, counters) -> pending.merge(key, counters, Counters::add));
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${history.compact-interval-ms:3600000}", fixedDelayString = "${history.compact-interval-ms:3600000}")
+    public void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        int[] deleted = transactionTemplate.execute(status -> {
+            // One node at a time: a second compaction would sum the rows the first has rolled up but not yet deleted
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_COMPACT_LOCK, Boolean.class, COMPACT_LOCK_KEY))) {
+                return null;
+            }
+            int minutes = rollUp(HistoryResolution.MINUTE, HistoryResolution.HOUR, now.minusDays(minuteRetentionDays).truncatedTo(ChronoUnit.HOURS));
+            int hours = rollUp(HistoryResolution.HOUR, HistoryResolution.DAY, now.minusDays(hourRetentionDays).truncatedTo(ChronoUnit.DAYS));
+            return new int[]{minutes, hours};
+        });
+        if (deleted == null) {
+            logger.debug("Task history is being compacted by another node");
+            return;
+        }
+        logger.info("Compacted task history: {} minute rows, {} hour rows", deleted[0], deleted[1]);
+    }
+
+    // Replaces the rows of one resolution older than the cutoff with their sums at the next resolution
+    private int rollUp(HistoryResolution from, HistoryResolution to, LocalDateTime cutoff) {
+        Timestamp cutoffTimestamp = Timestamp.valueOf(cutoff);
+        jdbcTemplate.update(ROLL_UP, to.name(), to.getSqlUnit(), from.name(), cutoffTimestamp);
+        return jdbcTemplate.update(DELETE_ROLLED_UP, from.name(), cutoffTimestamp);
+    }
+
+    private Counters counters(LocalDateTime minute, long stepId, TaskStatus status) {
+        return pending.computeIfAbsent(new BucketKey(minute, stepId, status), key -> new Counters());
+    }
+
+    private static final class BucketKey {
+        private final LocalDateTime minute;
+        private final long stepId;
+        private final TaskStatus status;
+
+        BucketKey(LocalDateTime minute, long stepId, TaskStatus status) {
+            this.minute = minute;
+            this.stepId = stepId;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return stepId == other.stepId && status == other.status && minute.equals(other.minute);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(minute, stepId, status);
+        }
+    }
+
+    private static final class Counters {
+        private long entered;
+        private long exited;
+        private double durationSum;
+        private long durationCount;
+
+        Counters add(Counters other) {
+            entered += other.entered;
+            exited += other.exited;
+            durationSum += other.durationSum;
+            durationCount += other.durationCount;
+            return this;
+        }
+    }
+}
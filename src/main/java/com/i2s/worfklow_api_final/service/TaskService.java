@@ -1,84 +1,102 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.FeedbackDTO;
 import com.i2s.worfklow_api_final.dto.MethodExecutionDTO;
 import com.i2s.worfklow_api_final.dto.TaskDTO;
 import com.i2s.worfklow_api_final.dto.UserParameterDTO;
 import com.i2s.worfklow_api_final.enums.ExecutionStatus;
 import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.event.MethodExecutionFinishedEvent;
 import com.i2s.worfklow_api_final.model.*;
 import com.i2s.worfklow_api_final.repository.*;
-import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
-import java.lang.reflect.InvocationTargetException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class TaskService {
+    private static final Logger logger = LoggerFactory.getLogger(TaskService.class);
+    private static final int ID_BATCH_SIZE = 1000;
+
     private final TaskRepository taskRepository;
     private final FileRepository fileRepository;
     private final MethodRepository methodRepository;
     private final JobRepository jobRepository;
     private final StepRepository stepRepository;
-    private final ActionService actionService;
+    private final MethodExecutionEngine methodExecutionEngine;
     private final MethodExecutionRepository methodExecutionRepository;
     private final FeedbackRepository feedbackRepository;
     private final UserRepository userRepository;
     private final ProjectRepository projectRepository;
-    private final NotificationRepository notificationRepository;
-    private final ModelMapper modelMapper;
+    private final NotificationFanoutService notificationFanoutService;
+    private final TaskAssembler taskAssembler;
+    private final EntityStreamer entityStreamer;
+    private final TaskDagScheduler taskDagScheduler;
+    private final TaskStatusPublisher taskStatusPublisher;
 
     @Autowired
-    public TaskService(TaskRepository taskRepository, FileRepository fileRepository, MethodRepository methodRepository, JobRepository jobRepository, StepRepository stepRepository, ActionService actionService, MethodExecutionRepository methodExecutionRepository, FeedbackRepository feedbackRepository, UserRepository userRepository, ProjectRepository projectRepository, NotificationRepository notificationRepository, ModelMapper modelMapper) {
+    public TaskService(TaskRepository taskRepository, FileRepository fileRepository, MethodRepository methodRepository, JobRepository jobRepository, StepRepository stepRepository, MethodExecutionEngine methodExecutionEngine, MethodExecutionRepository methodExecutionRepository, FeedbackRepository feedbackRepository, UserRepository userRepository, ProjectRepository projectRepository, NotificationFanoutService notificationFanoutService, TaskAssembler taskAssembler, EntityStreamer entityStreamer, TaskDagScheduler taskDagScheduler, TaskStatusPublisher taskStatusPublisher) {
         this.taskRepository = taskRepository;
         this.fileRepository = fileRepository;
         this.methodRepository = methodRepository;
         this.jobRepository = jobRepository;
         this.stepRepository = stepRepository;
-        this.actionService = actionService;
+        this.methodExecutionEngine = methodExecutionEngine;
         this.methodExecutionRepository = methodExecutionRepository;
         this.feedbackRepository = feedbackRepository;
         this.userRepository = userRepository;
         this.projectRepository = projectRepository;
-        this.notificationRepository = notificationRepository;
-        this.modelMapper = modelMapper;
+        this.notificationFanoutService = notificationFanoutService;
+        this.taskAssembler = taskAssembler;
+        this.entityStreamer = entityStreamer;
+        this.taskDagScheduler = taskDagScheduler;
+        this.taskStatusPublisher = taskStatusPublisher;
     }
 
     public List<TaskDTO> getAllTasks() {
-        return taskRepository.findAll().stream().map(task -> {
-            TaskDTO taskDTO = modelMapper.map(task, TaskDTO.class);
-            taskDTO.setStatus(task.getStatus());
-            taskDTO.setFileIds(task.getFiles().stream().map(File::getId).collect(Collectors.toList()));
-            taskDTO.setMethodIds(task.getMethods().stream().map(Method::getId).collect(Collectors.toList()));
-            taskDTO.setAssignedJobIds(task.getAssignedJobs().stream().map(Job::getId).collect(Collectors.toList()));
-            taskDTO.setParentTaskIds(task.getParentTasks().stream().map(Task::getId).collect(Collectors.toList()));
-            taskDTO.setChildTaskIds(task.getChildTasks().stream().map(Task::getId).collect(Collectors.toList()));
-            return taskDTO;
-        }).collect(Collectors.toList());
+        return taskAssembler.toDTOs(taskRepository.findAll());
     }
 
     public Optional<TaskDTO> getTaskById(long id) {
-        return taskRepository.findById(id).map(task -> {
-            TaskDTO taskDTO = modelMapper.map(task, TaskDTO.class);
-            taskDTO.setStatus(task.getStatus());
-            taskDTO.setFileIds(task.getFiles().stream().map(File::getId).collect(Collectors.toList()));
-            taskDTO.setMethodIds(task.getMethods().stream().map(Method::getId).collect(Collectors.toList()));
-            taskDTO.setAssignedJobIds(task.getAssignedJobs().stream().map(Job::getId).collect(Collectors.toList()));
-            taskDTO.setParentTaskIds(task.getParentTasks().stream().map(Task::getId).collect(Collectors.toList()));
-            taskDTO.setChildTaskIds(task.getChildTasks().stream().map(Task::getId).collect(Collectors.toList()));
-
-            return taskDTO;
-        });
+        return taskRepository.findById(id).map(taskAssembler::toDTO);
+    }
+
+    public CursorPageDTO<TaskDTO> getTasksAfter(long afterId, int size) {
+        List<Task> tasks = taskRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(taskAssembler.toDTOs(tasks), size, TaskDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllTasks(Consumer<TaskDTO> sink) {
+        try (Stream<Task> tasks = taskRepository.streamAllOrderedById()) {
+            entityStreamer.stream(tasks, taskAssembler::toDTOs, sink);
+        }
     }
 
+    @Transactional
     public TaskDTO createTask(@Valid TaskDTO taskDTO) {
-        Task task = modelMapper.map(taskDTO, Task.class);
+        Task task = new Task(taskDTO);
+        if (taskDTO.getStepId() != 0) {
+            task.setStep(stepRepository.getReferenceById(taskDTO.getStepId()));
+        }
         if (taskDTO.getFileIds() != null && !taskDTO.getFileIds().isEmpty()) {
             task.setFiles(taskDTO.getFileIds().stream().map(fileId -> fileRepository.findById(fileId).orElseThrow(() -> new EntityNotFoundException("File with ID " + fileId + " not found."))).collect(Collectors.toList()));
         }
@@ -100,6 +118,8 @@ public class TaskService {
         task.setAssignedJobs(taskDTO.getAssignedJobIds().stream().map(jobId -> jobRepository.findById(jobId).orElseThrow(() -> new EntityNotFoundException("Assigned Job with ID " + jobId + " not found."))).collect(Collectors.toList()));
 
         Task savedTask = taskRepository.save(task);
+        taskDagScheduler.evictProjectOfTask(savedTask.getId());
+        taskStatusPublisher.created(savedTask);
 
         if (taskDTO.getMethodIds() != null && !taskDTO.getMethodIds().isEmpty()) {
             List<MethodExecution> methodExecutions = new ArrayList<>();
@@ -116,69 +136,55 @@ public class TaskService {
             savedTask.setMethodExecutions(methodExecutions);
         }
 
-        TaskDTO savedTaskDTO = modelMapper.map(savedTask, TaskDTO.class);
+        TaskDTO savedTaskDTO = new TaskDTO(savedTask);
 
-        savedTaskDTO.setStatus(savedTask.getStatus());
         savedTaskDTO.setAssignedJobIds(savedTask.getAssignedJobs().stream().map(Job::getId).collect(Collectors.toList()));
         savedTaskDTO.setFileIds(savedTask.getFiles().stream().map(File::getId).collect(Collectors.toList()));
         savedTaskDTO.setMethodIds(savedTask.getMethods().stream().map(Method::getId).collect(Collectors.toList()));
         savedTaskDTO.setParentTaskIds(savedTask.getParentTasks().stream().map(Task::getId).collect(Collectors.toList()));
-        savedTaskDTO.setMethodExecutions(savedTask.getMethodExecutions().stream().map(methodExecution -> {
-            MethodExecutionDTO methodExecutionDTO = modelMapper.map(methodExecution, MethodExecutionDTO.class);
-            return methodExecutionDTO;
-
-        }).collect(Collectors.toList()));
+        savedTaskDTO.setMethodExecutions(savedTask.getMethodExecutions().stream().map(MethodExecutionDTO::new).collect(Collectors.toList()));
 
         return savedTaskDTO;
     }
 
 
+    // One transaction, so the deleted event and the row go away together
+    @Transactional
     public void deleteTask(long id) {
         Task task = taskRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Task with ID " + id + " not found."));
+        taskDagScheduler.evictProjectOfTask(id);
+        taskStatusPublisher.deleted(task);
         taskRepository.deleteById(id);
     }
 
     public List<TaskDTO> getTasksByStep(long stepId) {
         Step step = stepRepository.findById(stepId).orElseThrow(() -> new EntityNotFoundException("Step with ID " + stepId + " not found."));
         List<Task> tasks = taskRepository.findByStep(step);
-        return tasks.stream().map(task -> {
-            TaskDTO taskDTO = modelMapper.map(task, TaskDTO.class);
-            taskDTO.setStatus(task.getStatus());
-            taskDTO.setFileIds(task.getFiles().stream().map(File::getId).collect(Collectors.toList()));
-            taskDTO.setMethodIds(task.getMethods().stream().map(Method::getId).collect(Collectors.toList()));
-            taskDTO.setAssignedJobIds(task.getAssignedJobs().stream().map(Job::getId).collect(Collectors.toList()));
-            taskDTO.setParentTaskIds(task.getParentTasks().stream().map(Task::getId).collect(Collectors.toList()));
-            taskDTO.setChildTaskIds(task.getChildTasks().stream().map(Task::getId).collect(Collectors.toList()));
-            return taskDTO;
-        }).collect(Collectors.toList());
+        return taskAssembler.toDTOs(tasks);
     }
 
     public List<TaskDTO> getTasksByProject(long projectId) {
         List<Task> tasks = taskRepository.findByProjectId(projectId);
 
-        return tasks.stream().map(task -> {
-            TaskDTO taskDTO = modelMapper.map(task, TaskDTO.class);
-            taskDTO.setStatus(task.getStatus());
-            taskDTO.setFileIds(task.getFiles().stream().map(File::getId).collect(Collectors.toList()));
-            taskDTO.setMethodIds(task.getMethods().stream().map(Method::getId).collect(Collectors.toList()));
-            taskDTO.setAssignedJobIds(task.getAssignedJobs().stream().map(Job::getId).collect(Collectors.toList()));
-            taskDTO.setParentTaskIds(task.getParentTasks().stream().map(Task::getId).collect(Collectors.toList()));
-            taskDTO.setChildTaskIds(task.getChildTasks().stream().map(Task::getId).collect(Collectors.toList()));
-            return taskDTO;
-        }).collect(Collectors.toList());
+        return taskAssembler.toDTOs(tasks);
     }
 
+    @Transactional
     public TaskDTO updateTaskStatus(long id, @Valid TaskStatus newStatus) {
         Task task = taskRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Task with ID " + id + " not found."));
+        TaskStatus previousStatus = task.getStatus();
         task.setStatus(newStatus);
         Task updatedTask = taskRepository.save(task);
-        TaskDTO updatedTaskDTO = modelMapper.map(updatedTask, TaskDTO.class);
+        taskStatusPublisher.changed(updatedTask, previousStatus);
 
-        if (newStatus == TaskStatus.FINISHED) {
-            startNextTask(updatedTaskDTO);
+        if (newStatus == TaskStatus.FINISHED && previousStatus != TaskStatus.FINISHED) {
+            startReadyChildTasks(updatedTask, TaskDagScheduler::startedMessage);
+        } else if (previousStatus == TaskStatus.FINISHED && newStatus != TaskStatus.FINISHED) {
+            // Reopened task: its children's counters have to be recomputed
+            taskDagScheduler.evictProjectOfTask(id);
         }
 
-        return updatedTaskDTO;
+        return new TaskDTO(updatedTask);
     }
 
 
@@ -186,57 +192,52 @@ public class TaskService {
         return taskRepository.findById(id).map(Task::getTaskName);
     }
 
-    public TaskDTO startNextTask(@Valid TaskDTO finishedTaskDTO) {
-        Task finishedTask = taskRepository.findById(finishedTaskDTO.getId()).orElseThrow(() -> new EntityNotFoundException("Task with ID " + finishedTaskDTO.getId() + " not found."));
-        List<Task> childTasks = finishedTask.getChildTasks();
-        TaskDTO startedTaskDTO = null;
-
-        if (childTasks != null && !childTasks.isEmpty()) {
-            for (Task childTask : childTasks) {
-                if (childTask.getStatus() == TaskStatus.PENDING) {
-                    childTask.setStatus(TaskStatus.STARTING);
-                    childTask.setStartedAt(LocalDateTime.now());
-                    createNotificationsForTask(childTask, "The task '" + childTask.getTaskName() + "' has started.");
-
-                    Task startedTask = taskRepository.save(childTask);
-                    startedTaskDTO = modelMapper.map(startedTask, TaskDTO.class);
-                    break;
-                }
-            }
+    // Starts every child task whose parents are now all finished and notifies the users on its jobs
+    private void startReadyChildTasks(Task finishedTask, Function<Task, String> message) {
+        List<Long> startedTaskIds = taskDagScheduler.onTaskFinished(finishedTask.getId());
+        if (startedTaskIds.isEmpty()) {
+            return;
         }
-
-        return startedTaskDTO;
-
+        Map<Long, String> messagesByTaskId = new HashMap<>();
+        for (Task childTask : taskRepository.findAllById(startedTaskIds)) {
+            messagesByTaskId.put(childTask.getId(), message.apply(childTask));
+        }
+        notificationFanoutService.notifyAssignees(messagesByTaskId);
     }
 
+    // Starts every root task of the project with one query per stage: find the roots, start them, notify their assignees
+    @Transactional
     public List<TaskDTO> startInitialTasks(long projectId) {
         Project project = projectRepository.findById(projectId).orElseThrow(() -> new EntityNotFoundException("Project with ID " + projectId + " not found."));
-        List<Task> initialTasks = taskRepository.findByProjectId(project.getId()).stream().filter(task -> task.getParentTasks().isEmpty()).collect(Collectors.toList());
-
-        List<TaskDTO> startedInitialTasks = new ArrayList<>();
-
-        for (Task task : initialTasks) {
-            if (task.getStatus() == TaskStatus.PENDING) {
-                task.setStatus(TaskStatus.STARTING);
-                task.setStartedAt(LocalDateTime.now());
-                Task startedTask = taskRepository.save(task);
-                TaskDTO startedTaskDTO = modelMapper.map(startedTask, TaskDTO.class);
-                startedInitialTasks.add(startedTaskDTO);
-                createNotificationsForTask(task, "The task '" + task.getTaskName() + "' has started.");
-            }
+        List<Long> rootTaskIds = taskRepository.findPendingRootTaskIdsByProjectId(project.getId());
+        if (rootTaskIds.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        return startedInitialTasks;
-    }
+        LocalDateTime startedAt = LocalDateTime.now();
+        // Chunked to stay well below the bind parameter limit on very large templates
+        for (int from = 0; from < rootTaskIds.size(); from += ID_BATCH_SIZE) {
+            taskRepository.startPendingTasks(rootTaskIds.subList(from, Math.min(from + ID_BATCH_SIZE, rootTaskIds.size())), startedAt);
+        }
+        taskStatusPublisher.started(rootTaskIds, startedAt);
 
+        List<Task> startedTasks = taskRepository.findAllById(rootTaskIds);
+        Map<Long, String> messagesByTaskId = new HashMap<>();
+        startedTasks.forEach(task -> messagesByTaskId.put(task.getId(), "The task '" + task.getTaskName() + "' has started."));
+        notificationFanoutService.notifyAssignees(messagesByTaskId);
+
+        return startedTasks.stream().map(TaskDTO::new).collect(Collectors.toList());
+    }
 
-    public List<TaskDTO> getTasksByJobIdsStatusProjectPhaseStep(List<Long> jobIds, List<TaskStatus> statusList, Long projectId, Long phaseId, Long stepId) {
 
-        List<Task> allTasks = taskRepository.findAll();
+    public Page<TaskDTO> getTasksByJobIdsStatusProjectPhaseStep(List<Long> jobIds, List<TaskStatus> statusList, Long projectId, Long phaseId, Long stepId, Pageable pageable) {
+        if (jobIds.isEmpty() || statusList.isEmpty()) {
+            return Page.empty(pageable);
+        }
 
-        List<TaskDTO> taskDTOs = allTasks.stream().filter(task -> task.getAssignedJobs().stream().anyMatch(job -> jobIds.contains(job.getId())) && statusList.contains(task.getStatus()) && (projectId == null || (task.getStep() != null && task.getStep().getPhase() != null && task.getStep().getPhase().getProject() != null && projectId.equals(task.getStep().getPhase().getProject().getId()))) && (phaseId == null || (task.getStep() != null && task.getStep().getPhase() != null && phaseId.equals(task.getStep().getPhase().getId()))) && (stepId == null || (task.getStep() != null && stepId.equals(task.getStep().getId())))).map(task -> modelMapper.map(task, TaskDTO.class)).collect(Collectors.toList());
+        Page<Task> tasks = taskRepository.findAll(TaskSpecifications.byJobIdsStatusProjectPhaseStep(jobIds, statusList, projectId, phaseId, stepId), pageable);
 
-        return taskDTOs;
+        return new PageImpl<>(taskAssembler.toDTOs(tasks.getContent()), pageable, tasks.getTotalElements());
     }
 
 
@@ -245,90 +246,89 @@ public class TaskService {
 
         List<MethodExecution> methodExecutions = task.getMethodExecutions();
 
-        return methodExecutions.stream().map(methodExecution -> modelMapper.map(methodExecution, MethodExecutionDTO.class)).collect(Collectors.toList());
+        return methodExecutions.stream().map(MethodExecutionDTO::new).collect(Collectors.toList());
     }
 
-    // Executes methods associated with a task and updates the task status
-    public void executeMethodsForTask(long taskId, Map<Long, List<UserParameterDTO>> userParametersByMethodExecutionId) {
-        Task task = taskRepository.findById(taskId).orElseThrow(() -> new EntityNotFoundException("Task not found with ID: " + taskId));
-        List<MethodExecution> methodExecutions = task.getMethodExecutions();
+    // Marks the runnable method executions of a task IN_PROGRESS and hands them to the execution engine.
+    // Returns right away with the IDs of the submitted executions; the task advances once they are all done.
+    // The task row is locked so concurrent requests cannot both mark and submit the same executions.
+    @Transactional
+    public List<Long> executeMethodsForTask(long taskId, Map<Long, List<UserParameterDTO>> userParametersByMethodExecutionId) {
+        Task task = taskRepository.findByIdForUpdate(taskId).orElseThrow(() -> new EntityNotFoundException("Task not found with ID: " + taskId));
+        List<ActionInvocation> invocations = new ArrayList<>();
 
-        // Iterate through the MethodExecution instances and attempt execution
-        for (MethodExecution methodExecution : methodExecutions) {
+        for (MethodExecution methodExecution : task.getMethodExecutions()) {
             if (methodExecution.getStatus() != ExecutionStatus.SUCCESS && methodExecution.getStatus() != ExecutionStatus.IN_PROGRESS) {
                 if (userParametersByMethodExecutionId.containsKey(methodExecution.getId())) {
-                    executeMethodWithUserParameters(methodExecution, userParametersByMethodExecutionId);
+                    prepareInvocation(task, methodExecution, userParametersByMethodExecutionId.get(methodExecution.getId())).ifPresent(invocations::add);
                 } else {
-                    // Handle case when there is no matching key in the userParametersByMethodExecutionId map
-                    System.out.println("No matching user parameters found for method execution ID: " + methodExecution.getId());
+                    logger.debug("No user parameters given for method execution {}", methodExecution.getId());
                 }
             }
         }
 
-
-        // If task does not have a child task, set its status to FINISHED, regardless of its verification requirement
-        if (task.getChildTasks() == null || task.getChildTasks().isEmpty()) {
-            task.setStatus(TaskStatus.FINISHED);
-            task.setFinishedAt(LocalDateTime.now());
-            // Start child tasks if they exist and are pending
-            task.getChildTasks().forEach(childTask -> {
-                if (childTask.getStatus() == TaskStatus.PENDING) {
-                    childTask.setStatus(TaskStatus.STARTING);
-                    childTask.setStartedAt(LocalDateTime.now());
-                    createNotificationsForTask(childTask, "The task '" + childTask.getTaskName() + "' has started.");
-
-                }
-            });
-        }
-        // Otherwise, update task status based on whether it requires verification
-        else {
-            if (task.isRequiredVerification()) {
-                task.setStatus(TaskStatus.WAITING_FOR_VALIDATION);
-                createNotificationsForValidation(task, "Task " + task.getTaskName() + " is waiting for validation.");
-            } else {
-                task.setStatus(TaskStatus.FINISHED);
-                task.setFinishedAt(LocalDateTime.now());
-                // Start child tasks if they exist and are pending
-                task.getChildTasks().forEach(childTask -> {
-                    if (childTask.getStatus() == TaskStatus.PENDING) {
-                        childTask.setStatus(TaskStatus.STARTING);
-                        childTask.setStartedAt(LocalDateTime.now());
-                        createNotificationsForTask(childTask, "The task '" + childTask.getTaskName() + "' has started.");
-
-                    }
-                });
-            }
+        if (invocations.isEmpty()) {
+            // Nothing to wait for
+            advanceTaskAfterExecutions(task);
+        } else {
+            methodExecutionEngine.submitAfterCommit(invocations);
         }
-
-        taskRepository.save(task);
+        return invocations.stream().map(ActionInvocation::getMethodExecutionId).collect(Collectors.toList());
     }
 
+    // Runs on the worker thread that committed the last status; the row lock serializes concurrent finishers.
+    // Always a new transaction: a rejected submission publishes from afterCommit, where joining would write nothing
+    @EventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onMethodExecutionFinished(MethodExecutionFinishedEvent event) {
+        Task task = taskRepository.findByIdForUpdate(event.getTaskId()).orElse(null);
+        if (task == null || methodExecutionRepository.countByTaskIdAndStatus(task.getId(), ExecutionStatus.IN_PROGRESS) > 0) {
+            return;
+        }
+        advanceTaskAfterExecutions(task);
+    }
 
-    // Attempts to execute a method with provided user parameters and updates the execution status
-    private void executeMethodWithUserParameters(MethodExecution methodExecution, Map<Long, List<UserParameterDTO>> userParametersByMethodExecutionId) {
+    // Validates the user parameters and marks the execution IN_PROGRESS, capturing what the worker needs to run it
+    private Optional<ActionInvocation> prepareInvocation(Task task, MethodExecution methodExecution, List<UserParameterDTO> userParameters) {
         Method method = methodExecution.getMethod();
-        List<Parameter> parameters = method.getParameters();
-        List<UserParameterDTO> userParameters = userParametersByMethodExecutionId.get(methodExecution.getId());
-
 
         // Validate all user parameters before attempting method execution
-        if (areAllUserParametersValid(userParameters, parameters)) {
-            try {
-                methodExecution.setStatus(ExecutionStatus.IN_PROGRESS);
-                executeMethod(method, userParameters);
-                methodExecution.setStatus(ExecutionStatus.SUCCESS);
-
-            } catch (Exception e) {
-                System.out.println("Error executing method: " + method.getMethodName());
-                methodExecution.setStatus(ExecutionStatus.FAILURE);
-                e.printStackTrace();
-            }
-        } else {
-            System.out.println("Invalid user parameters provided for method: " + method.getMethodName());
+        if (!areAllUserParametersValid(userParameters, method.getParameters())) {
+            logger.warn("Invalid user parameters for method {} of method execution {}", method.getMethodName(), methodExecution.getId());
+            return Optional.empty();
         }
 
-
+        methodExecution.setStatus(ExecutionStatus.IN_PROGRESS);
         methodExecutionRepository.save(methodExecution);
+        Map<String, Object> argumentsByName = new HashMap<>();
+        userParameters.forEach(userParameter -> argumentsByName.put(userParameter.getParameterName(), userParameter.getParameterValue()));
+        return Optional.of(new ActionInvocation(methodExecution.getId(), task.getId(), method.getId(), method.getMethodName(), argumentsByName));
+    }
+
+    // Finishes the task, or hands it over for validation when it has child tasks and requires verification
+    private void advanceTaskAfterExecutions(Task task) {
+        // Only a running task moves forward, so a late or repeated execution cannot finish it twice
+        if (task.getStatus() != TaskStatus.PENDING && task.getStatus() != TaskStatus.STARTING) {
+            return;
+        }
+
+        TaskStatus previousStatus = task.getStatus();
+        boolean hasChildTasks = task.getChildTasks() != null && !task.getChildTasks().isEmpty();
+        if (hasChildTasks && task.isRequiredVerification()) {
+            task.setStatus(TaskStatus.WAITING_FOR_VALIDATION);
+            taskStatusPublisher.changed(task, previousStatus);
+            createNotificationsForValidation(task, "Task " + task.getTaskName() + " is waiting for validation.");
+        } else {
+            task.setStatus(TaskStatus.FINISHED);
+            task.setFinishedAt(LocalDateTime.now());
+            taskRepository.save(task);
+            taskStatusPublisher.changed(task, previousStatus);
+            // Start the child tasks that no longer wait on any parent
+            startReadyChildTasks(task, childTask -> "The task '" + childTask.getTaskName() + "' has started.");
+            return;
+        }
+
+        taskRepository.save(task);
     }
 
 
@@ -343,39 +343,8 @@ public class TaskService {
         return parameters.stream().anyMatch(param -> param.getParameterName().equals(userParam.getParameterName()));
     }
 
-
-    private void executeMethod(Method method, List<UserParameterDTO> userParameters) {
-        java.lang.reflect.Method actionMethod;
-
-        try {
-            actionMethod = Arrays.stream(actionService.getClass().getDeclaredMethods()).filter(m -> m.getName().equals(method.getMethodName())).findFirst().orElseThrow(() -> new NoSuchMethodException("Method not found: " + method.getMethodName()));
-        } catch (NoSuchMethodException e) {
-            System.out.println("Method not found: " + method.getMethodName());
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
-
-        Object[] args = userParameters.stream().map(UserParameterDTO::getParameterValue).toArray();
-        try {
-            actionMethod.invoke(actionService, args);
-        } catch (IllegalArgumentException e) {
-            System.out.println("Illegal argument provided for method: " + method.getMethodName());
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            System.out.println("Error accessing method: " + method.getMethodName());
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            System.out.println("Error executing method: " + method.getMethodName());
-            // Print the cause of the InvocationTargetException
-            System.out.println("Cause: " + e.getCause());
-            e.getCause().printStackTrace();
-            throw new RuntimeException(e);
-        }
-    }
-
     // Validates a task and updates the status of its child tasks if necessary.
+    @Transactional
     public void validateAndStartChildTasks(long taskId) {
         Task task = taskRepository.findById(taskId).orElseThrow(() -> new EntityNotFoundException("Task not found with ID: " + taskId));
 
@@ -384,29 +353,23 @@ public class TaskService {
 
         task.setStatus(TaskStatus.FINISHED);
         task.setFinishedAt(LocalDateTime.now());
-
-        // Start child tasks if their status is PENDING
-        task.getChildTasks().forEach(childTask -> {
-            if (childTask.getStatus() == TaskStatus.PENDING) {
-                childTask.setStatus(TaskStatus.STARTING);
-                childTask.setStartedAt(LocalDateTime.now());
-                createNotificationsForTask(childTask, "Task" + task.getTaskName() + " is starting.");
-            }
-        });
-
         taskRepository.save(task);
+        taskStatusPublisher.changed(task, TaskStatus.WAITING_FOR_VALIDATION);
+
+        // Start the child tasks that no longer wait on any parent
+        startReadyChildTasks(task, childTask -> "Task" + task.getTaskName() + " is starting.");
     }
 
+    @Transactional
     public void invalidateTask(long taskId) {
         Task task = taskRepository.findById(taskId).orElseThrow(() -> new EntityNotFoundException("Task not found with ID: " + taskId));
-        System.out.println("TASK STATUS : " + task.getStatus());
-        System.out.println("TASK id : " + task.getId());
         if (task.getStatus() != TaskStatus.WAITING_FOR_VALIDATION)
             throw new IllegalStateException("Task status must be WAITING_FOR_VALIDATION.");
         task.setStatus(TaskStatus.STARTING);
         task.setStartedAt(LocalDateTime.now());
         createNotificationsForTask(task, "The task '" + task.getTaskName() + "' has been invalidated. Please review.");
         taskRepository.save(task);
+        taskStatusPublisher.changed(task, TaskStatus.WAITING_FOR_VALIDATION);
     }
 
 
@@ -421,7 +384,7 @@ public class TaskService {
         List<Task> filteredTasksByProjectPhaseStep = filteredTasks.stream().filter(task -> projectId == null || (task.getStep() != null && task.getStep().getPhase() != null && task.getStep().getPhase().getProject() != null && projectId.equals(task.getStep().getPhase().getProject().getId()))).filter(task -> phaseId == null || (task.getStep() != null && task.getStep().getPhase() != null && phaseId.equals(task.getStep().getPhase().getId()))).filter(task -> stepId == null || (task.getStep() != null && stepId.equals(task.getStep().getId()))).collect(Collectors.toList());
 
         // Convert to DTOs
-        List<TaskDTO> taskDTOs = filteredTasksByProjectPhaseStep.stream().map(task -> modelMapper.map(task, TaskDTO.class)).collect(Collectors.toList());
+        List<TaskDTO> taskDTOs = taskAssembler.toDTOs(filteredTasksByProjectPhaseStep);
 
         return taskDTOs;
     }
@@ -433,7 +396,7 @@ public class TaskService {
         User user = userRepository.findById(feedbackDTO.getUserId())
                 .orElseThrow(() -> new EntityNotFoundException("User with ID " + feedbackDTO.getUserId() + " not found."));
 
-        Feedback feedback = modelMapper.map(feedbackDTO, Feedback.class);
+        Feedback feedback = new Feedback(feedbackDTO);
         feedback.setTask(task);
         feedback.setUser(user);
         feedback.setFeedbackDate(LocalDateTime.now());
@@ -443,44 +406,21 @@ public class TaskService {
         task.getFeedbacks().add(feedback);
 
         Task updatedTask = taskRepository.save(task);
-        return modelMapper.map(updatedTask, TaskDTO.class);
+        return new TaskDTO(updatedTask);
     }
 
     private void createNotificationsForTask(Task task, String message) {
-        for (Job job : task.getAssignedJobs()) {
-            for (User user : job.getUsers()) {
-                // Create a new notification for each user assigned to the job
-                Notification notification = new Notification();
-                notification.setTask(task);
-                notification.setUser(user);
-                notification.setMessage(message);
-                notification.setRead(false);
-
-                // Save the notification to the database
-                notificationRepository.save(notification);
-            }
-        }
+        notificationFanoutService.notifyAssignees(task.getId(), message);
     }
 
 
+    // Notifies the assignees of the child tasks, which are the ones doing the validation
     private void createNotificationsForValidation(Task task, String message) {
-        if (task.getChildTasks() != null) {
-            for (Task childTask : task.getChildTasks()) {
-                for (Job job : childTask.getAssignedJobs()) {
-                    for (User user : job.getUsers()) {
-                        // Create a new notification for each user assigned to the job of the child task
-                        Notification notification = new Notification();
-                        notification.setTask(childTask);
-                        notification.setUser(user);
-                        notification.setMessage(message);
-                        notification.setRead(false);
-
-                        // Save the notification to the database
-                        notificationRepository.save(notification);
-                    }
-                }
-            }
+        Map<Long, String> messagesByTaskId = new HashMap<>();
+        taskRepository.findChildTaskIds(task.getId()).forEach(childTaskId -> messagesByTaskId.put(childTaskId, message));
+        if (!messagesByTaskId.isEmpty()) {
+            notificationFanoutService.notifyAssignees(messagesByTaskId);
         }
     }
 
-}
\ No newline at end of file
+}
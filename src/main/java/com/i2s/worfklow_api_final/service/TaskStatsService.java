@@ -0,0 +1,144 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.event.TaskStatusChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Maintains the task_stats summary table. Status changes are summed per transaction and written as one batch of
+// upserts just before it commits, so the counters commit or roll back together with the tasks. A periodic
+// rebuild from the tasks table corrects any drift, e.g. from tasks removed by a cascade.
+@Service
+public class TaskStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatsService.class);
+
+    private static final String UPSERT = "INSERT INTO task_stats (step_id, status, task_count, duration_sum, duration_count) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (step_id, status) DO UPDATE SET task_count = task_stats.task_count + EXCLUDED.task_count, "
+            + "duration_sum = task_stats.duration_sum + EXCLUDED.duration_sum, duration_count = task_stats.duration_count + EXCLUDED.duration_count";
+
+    private static final String REBUILD = "INSERT INTO task_stats (step_id, status, task_count, duration_sum, duration_count) "
+            + "SELECT COALESCE(t.step_id, 0), t.status, COUNT(*), "
+            + "COALESCE(SUM(CASE WHEN t.status = 'FINISHED' AND t.started_at IS NOT NULL AND t.finished_at IS NOT NULL THEN EXTRACT(EPOCH FROM (t.finished_at - t.started_at)) END), 0), "
+            + "COUNT(CASE WHEN t.status = 'FINISHED' AND t.started_at IS NOT NULL AND t.finished_at IS NOT NULL THEN 1 END) "
+            + "FROM tasks t GROUP BY COALESCE(t.step_id, 0), t.status";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public TaskStatsService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener
+    public void onTaskStatusChanged(TaskStatusChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<String, Delta> deltas = new TreeMap<>();
+            add(deltas, event);
+            write(deltas.values());
+            return;
+        }
+        add(pendingDeltas(), event);
+    }
+
+    // Runs at startup to seed the table, then periodically
+    @Scheduled(initialDelayString = "${stats.rebuild-initial-delay-ms:0}", fixedDelayString = "${stats.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        transactionTemplate.execute(status -> {
+            // Waits for transactions writing their deltas and holds new ones back until the rebuild commits;
+            // changes committed later are not in the snapshot below and add their deltas on top of it
+            jdbcTemplate.execute("LOCK TABLE task_stats IN SHARE ROW EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM task_stats");
+            jdbcTemplate.update(REBUILD);
+            return null;
+        });
+        logger.info("Rebuilt task statistics in {} ms", System.currentTimeMillis() - start);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Delta> pendingDeltas() {
+        Map<String, Delta> deltas = (Map<String, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+        Map<String, Delta> newDeltas = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, newDeltas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                write(newDeltas.values());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TaskStatsService.this);
+            }
+        });
+        return newDeltas;
+    }
+
+    private static void add(Map<String, Delta> deltas, TaskStatusChangedEvent event) {
+        if (event.getPreviousStatus() != null) {
+            Delta delta = delta(deltas, event.getStepId(), event.getPreviousStatus());
+            delta.taskCount -= event.getCount();
+            if (event.getPreviousStatus() == TaskStatus.FINISHED && event.getDurationSeconds() != null) {
+                delta.durationSum -= event.getDurationSeconds();
+                delta.durationCount--;
+            }
+        }
+        if (event.getNewStatus() != null) {
+            Delta delta = delta(deltas, event.getStepId(), event.getNewStatus());
+            delta.taskCount += event.getCount();
+            if (event.getNewStatus() == TaskStatus.FINISHED && event.getDurationSeconds() != null) {
+                delta.durationSum += event.getDurationSeconds();
+                delta.durationCount++;
+            }
+        }
+    }
+
+    private static Delta delta(Map<String, Delta> deltas, long stepId, TaskStatus status) {
+        return deltas.computeIfAbsent(stepId + ":" + status, key -> new Delta(stepId, status));
+    }
+
+    private void write(Collection<Delta> deltas) {
+        List<Object[]> rows = new ArrayList<>();
+        // Same row order in every transaction, so two of them cannot deadlock on each other's rows
+        deltas.stream()
+                .filter(delta -> delta.taskCount != 0 || delta.durationCount != 0)
+                .sorted(Comparator.comparingLong((Delta delta) -> delta.stepId).thenComparing(delta -> delta.status))
+                .forEach(delta -> rows.add(new Object[]{delta.stepId, delta.status.name(), delta.taskCount, delta.durationSum, delta.durationCount}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        }
+    }
+
+    private static class Delta {
+        private final long stepId;
+        private final TaskStatus status;
+        private long taskCount;
+        private double durationSum;
+        private long durationCount;
+
+        Delta(long stepId, TaskStatus status) {
+            this.stepId = stepId;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.event.TaskStatusChangedEvent;
+import com.i2s.worfklow_api_final.model.Task;
+import com.i2s.worfklow_api_final.repository.TaskRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Turns task status changes into TaskStatusChangedEvents, so statistics never have to rescan the tasks table
+@Component
+public class TaskStatusPublisher {
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final TaskRepository taskRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public TaskStatusPublisher(TaskRepository taskRepository, ApplicationEventPublisher eventPublisher) {
+        this.taskRepository = taskRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void created(Task task) {
+        publish(task, null, task.getStatus());
+    }
+
+    public void deleted(Task task) {
+        publish(task, task.getStatus(), null);
+    }
+
+    // Call after the task's status and timestamps have been set
+    public void changed(Task task, TaskStatus previousStatus) {
+        publish(task, previousStatus, task.getStatus());
+    }
+
+    // For TaskRepository.startPendingTasks: one grouped query finds how many of the tasks it moved to STARTING per step
+    public void started(List<Long> taskIds, LocalDateTime startedAt) {
+        for (int from = 0; from < taskIds.size(); from += ID_BATCH_SIZE) {
+            for (Object[] row : taskRepository.countStartedByStepId(taskIds.subList(from, Math.min(from + ID_BATCH_SIZE, taskIds.size())), startedAt)) {
+                long stepId = row[0] != null ? ((Number) row[0]).longValue() : 0;
+                eventPublisher.publishEvent(new TaskStatusChangedEvent(stepId, TaskStatus.PENDING, TaskStatus.STARTING, ((Number) row[1]).longValue(), null, startedAt));
+            }
+        }
+    }
+
+    private void publish(Task task, TaskStatus previousStatus, TaskStatus newStatus) {
+        if (previousStatus == newStatus) {
+            return;
+        }
+        long stepId = task.getStep() != null ? task.getStep().getId() : 0;
+        Double durationSeconds = null;
+        if (task.getStartedAt() != null && task.getFinishedAt() != null) {
+            durationSeconds = Duration.between(task.getStartedAt(), task.getFinishedAt()).toMillis() / 1000.0;
+        }
+        eventPublisher.publishEvent(new TaskStatusChangedEvent(stepId, previousStatus, newStatus, 1, durationSeconds, LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,125 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.NotificationDTO;
+import com.i2s.worfklow_api_final.event.NotificationsCreatedEvent;
+import com.i2s.worfklow_api_final.repository.NotificationRepository;
+import com.i2s.worfklow_api_final.util.LongCounterMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Unread notification count per user, kept in memory so the badge never touches the notifications table.
+// Loaded once at startup, before the web server accepts requests, then moved by committed writes only.
+// The counters only see the writes made on this node, so they are reloaded from the database periodically; a
+// deployment where notifications are read on several nodes should set notifications.unread-counter.enabled=false,
+// which counts from the (user_id, read) index on every request instead.
+@Service
+public class UnreadCounterService {
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    private final NotificationRepository notificationRepository;
+    // Both guarded by this
+    private LongCounterMap unreadByUserId = new LongCounterMap(1024);
+    // Deltas applied while a reconcile loads its snapshot, replayed onto it; null when no reconcile runs
+    private Map<Long, Long> deltasDuringReconcile;
+
+    @Value("${notifications.unread-counter.enabled:true}")
+    private boolean counterEnabled;
+
+    @Autowired
+    public UnreadCounterService(NotificationRepository notificationRepository) {
+        this.notificationRepository = notificationRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (!counterEnabled) {
+            return;
+        }
+        reconcile();
+    }
+
+    // Replaces the counters with a fresh snapshot. A write that commits while the snapshot is taken can be
+    // counted twice, until the next reconcile.
+    @Scheduled(initialDelayString = "${notifications.unread-counter.reconcile-interval-ms:300000}", fixedDelayString = "${notifications.unread-counter.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        if (!counterEnabled) {
+            return;
+        }
+        synchronized (this) {
+            deltasDuringReconcile = new HashMap<>();
+        }
+        LongCounterMap snapshot = null;
+        try {
+            List<Object[]> rows = notificationRepository.countUnreadGroupedByUserId();
+            snapshot = new LongCounterMap(rows.size());
+            for (Object[] row : rows) {
+                snapshot.set(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+            logger.info("Loaded unread notification counters for {} users", rows.size());
+        } finally {
+            synchronized (this) {
+                if (snapshot != null) {
+                    deltasDuringReconcile.forEach(snapshot::add);
+                    unreadByUserId = snapshot;
+                }
+                deltasDuringReconcile = null;
+            }
+        }
+    }
+
+    public long getUnreadCount(long userId) {
+        if (!counterEnabled) {
+            return notificationRepository.countUnreadByUserId(userId);
+        }
+        synchronized (this) {
+            return unreadByUserId.get(userId);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onNotificationsCreated(NotificationsCreatedEvent event) {
+        for (NotificationDTO notification : event.getNotifications()) {
+            add(notification.getUserId(), 1);
+        }
+    }
+
+    // Applied after commit so a rolled-back "mark as read" leaves the counter alone
+    public void decrementAfterCommit(long userId, long count) {
+        if (count <= 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(userId, -count);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(userId, -count);
+            }
+        });
+    }
+
+    private synchronized void add(long userId, long delta) {
+        if (!counterEnabled) {
+            return;
+        }
+        unreadByUserId.add(userId, delta);
+        if (deltasDuringReconcile != null) {
+            deltasDuringReconcile.merge(userId, delta, Long::sum);
+        }
+    }
+}
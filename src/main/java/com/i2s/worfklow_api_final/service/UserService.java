@@ -1,5 +1,6 @@
 package com.i2s.worfklow_api_final.service;
 
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
 import com.i2s.worfklow_api_final.dto.JobDTO;
 import com.i2s.worfklow_api_final.dto.UserDTO;
 import com.i2s.worfklow_api_final.model.Job;
@@ -8,71 +9,92 @@ import com.i2s.worfklow_api_final.model.User;
 import com.i2s.worfklow_api_final.repository.JobRepository;
 import com.i2s.worfklow_api_final.repository.RoleRepository;
 import com.i2s.worfklow_api_final.repository.UserRepository;
-import org.modelmapper.ModelMapper;
+import com.i2s.worfklow_api_final.security.AuthenticationCache;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
     private final JobRepository jobRepository;
-    private final ModelMapper modelMapper;
     private final RoleRepository roleRepository;
+    private final EntityStreamer entityStreamer;
+    private final AuthenticationCache authenticationCache;
+    private final PasswordEncoder passwordEncoder;
 
     @Autowired
-    public UserService(UserRepository userRepository, JobRepository jobRepository, ModelMapper modelMapper, RoleRepository roleRepository) {
+    public UserService(UserRepository userRepository, JobRepository jobRepository, RoleRepository roleRepository, EntityStreamer entityStreamer, AuthenticationCache authenticationCache, PasswordEncoder passwordEncoder) {
         this.userRepository = userRepository;
         this.jobRepository = jobRepository;
-        this.modelMapper = modelMapper;
         this.roleRepository = roleRepository;
+        this.entityStreamer = entityStreamer;
+        this.authenticationCache = authenticationCache;
+        this.passwordEncoder = passwordEncoder;
     }
 
     public List<UserDTO> getAllUsers() {
 //        return userRepository.findAll().stream().map(UserDTO::new).collect(Collectors.toList());
-        return userRepository.findAll().stream().map(user -> modelMapper.map(user, UserDTO.class)).collect(Collectors.toList());
+        return userRepository.findAll().stream().map(UserDTO::new).collect(Collectors.toList());
+    }
+
+    public CursorPageDTO<UserDTO> getUsersAfter(long afterId, int size) {
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, size));
+        return CursorPageDTO.of(users.stream().map(UserDTO::new).collect(Collectors.toList()), size, UserDTO::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<UserDTO> sink) {
+        try (Stream<User> users = userRepository.streamAllOrderedById()) {
+            entityStreamer.stream(users, chunk -> chunk.stream().map(UserDTO::new).collect(Collectors.toList()), sink);
+        }
     }
 
     public Optional<UserDTO> getUserById(long id) {
-        return userRepository.findById(id).map(user -> modelMapper.map(user, UserDTO.class));
+        return userRepository.findById(id).map(UserDTO::new);
     }
 
 
     public UserDTO createUser(@Valid UserDTO userDTO) {
-        User user = modelMapper.map(userDTO, User.class);
+        User user = new User(userDTO);
         // Set the Job for the user (if jobId is provided)
         Job job = jobRepository.findById(userDTO.getJobId()).orElseThrow(() -> new EntityNotFoundException("Job with ID " + userDTO.getJobId() + " not found"));
         user.setJob(job);
         Role role = roleRepository.findRoleByName(userDTO.getRoleName()).orElseThrow(() -> new EntityNotFoundException("Role with name " + userDTO.getRoleName() + " not found"));
         user.setRole(role);
-        // Hash the user's password using bcrypt
-        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        // Hash the user's password with the application's encoder and cost
         String hashedPassword = passwordEncoder.encode(user.getPasswordHash());
         user.setPasswordHash(hashedPassword);
         User savedUser = userRepository.save(user);
 
         savedUser.setPasswordHash(null);
-        return modelMapper.map(savedUser, UserDTO.class);
+        return new UserDTO(savedUser);
     }
 
     public void deleteUser(long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("User with ID " + id + " not found."));
         userRepository.deleteById(id);
+        // Outstanding tokens of the user must stop authenticating
+        authenticationCache.invalidateUser(id);
     }
 
     public Optional<JobDTO> getJobByUserId(long id) {
         return userRepository.findById(id)
                 .map(User::getJob)
                 .map(job -> {
-                    JobDTO jobDTO = modelMapper.map(job, JobDTO.class);
+                    JobDTO jobDTO = new JobDTO(job);
                     List<Long> userIds = job.getUsers().stream().map(User::getId).collect(Collectors.toList());
                     jobDTO.setUsersId(userIds);
                     return jobDTO;
@@ -82,7 +104,7 @@ public class UserService {
     public UserDTO getUserByFullName(String fullName) {
         User user = userRepository.findByFullName(fullName)
                 .orElseThrow(() -> new EntityNotFoundException("User with name '" + fullName + "' not found."));
-        return modelMapper.map(user, UserDTO.class);
+        return new UserDTO(user);
     }
 
 }
@@ -0,0 +1,31 @@
+package com.i2s.worfklow_api_final.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+// Where file contents live. Keys are relative, slash separated paths such as blobs/ab/cd/<sha256>, so rows stay
+// valid whichever node or backend serves them. Uploads are staged in a local file first and then handed over.
+public interface BlobStore {
+
+    // Stores the local file under the key and consumes it: it is moved into the store, or uploaded and deleted
+    void put(String key, Path source, String contentType) throws IOException;
+
+    // Like put, but leaves the source in place; used by the migration
+    void copy(String key, Path source, String contentType) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    // Caller closes the stream
+    InputStream open(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    // The file behind the key when blobs are on this node's disk, so downloads can use sendfile
+    Optional<Path> localPath(String key);
+
+    // A URL the client can GET the blob from directly until it expires; empty when the backend has none
+    Optional<String> presignedUrl(String key, String fileName, String contentType, Duration ttl);
+}
@@ -0,0 +1,339 @@
+package com.i2s.worfklow_api_final.storage;
+
+import org.springframework.util.StreamUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Blobs in a bucket of any S3 compatible service (AWS S3, MinIO, ...), spoken to over plain HTTP with Signature
+// Version 4 and path-style URLs, so no SDK is needed. Bodies stream from the staged file with a fixed length and an
+// unsigned payload, so nothing is buffered or read twice; files above the part size go up as a multipart upload.
+public class S3BlobStore implements BlobStore {
+
+    // S3 minimum for every part but the last
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    // Longest lifetime SigV4 allows for a presigned URL
+    private static final long MAX_PRESIGN_SECONDS = 7 * 24 * 3600;
+
+    private final URL endpoint;
+    private final String host;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final long partSize;
+    private final int timeoutMs;
+
+    public S3BlobStore(String endpoint, String bucket, String region, String accessKey, String secretKey, long partSize, int timeoutMs) throws IOException {
+        this.endpoint = new URL(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        int port = this.endpoint.getPort();
+        this.host = port == -1 || port == this.endpoint.getDefaultPort() ? this.endpoint.getHost() : this.endpoint.getHost() + ":" + port;
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        copy(key, source, contentType);
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public void copy(String key, Path source, String contentType) throws IOException {
+        long size = Files.size(source);
+        if (size <= partSize) {
+            HttpURLConnection connection = send("PUT", key, Collections.emptyMap(), contentType, source, 0, size);
+            check(connection, "PUT", key);
+            release(connection);
+        } else {
+            multipartUpload(key, source, contentType, size);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpURLConnection connection = send("HEAD", key, Collections.emptyMap(), null, null, 0, 0);
+        if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+            release(connection);
+            return false;
+        }
+        check(connection, "HEAD", key);
+        release(connection);
+        return true;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        HttpURLConnection connection = send("GET", key, Collections.emptyMap(), null, null, 0, 0);
+        check(connection, "GET", key);
+        return connection.getInputStream();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpURLConnection connection = send("DELETE", key, Collections.emptyMap(), null, null, 0, 0);
+        check(connection, "DELETE", key);
+        release(connection);
+    }
+
+    // Creates the bucket, for a fresh MinIO such as the one of the integration test
+    void createBucket() throws IOException {
+        HttpURLConnection connection = send("PUT", null, Collections.emptyMap(), null, new byte[0]);
+        check(connection, "PUT bucket", bucket);
+        release(connection);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    // Query string authentication: the signature covers the host and the response header overrides, so the URL
+    // can be handed to a browser as is
+    @Override
+    public Optional<String> presignedUrl(String key, String fileName, String contentType, Duration ttl) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String scope = now.format(DATE_STAMP) + "/" + region + "/s3/aws4_request";
+
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", accessKey + "/" + scope);
+        query.put("X-Amz-Date", now.format(AMZ_DATE));
+        query.put("X-Amz-Expires", Long.toString(Math.min(Math.max(ttl.getSeconds(), 1), MAX_PRESIGN_SECONDS)));
+        query.put("X-Amz-SignedHeaders", "host");
+        query.put("response-content-disposition", "attachment; filename=\"" + fileName + "\"");
+        if (contentType != null) {
+            query.put("response-content-type", contentType);
+        }
+        String canonicalQuery = canonicalQuery(query);
+        String canonicalRequest = "GET\n" + canonicalUri(key) + "\n" + canonicalQuery + "\n" + "host:" + host + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        String signature = sign(now, scope, canonicalRequest);
+        return Optional.of(endpoint + canonicalUri(key) + "?" + canonicalQuery + "&X-Amz-Signature=" + signature);
+    }
+
+    private void multipartUpload(String key, Path source, String contentType, long size) throws IOException {
+        HttpURLConnection initiate = send("POST", key, Collections.singletonMap("uploads", ""), contentType, new byte[0]);
+        Matcher matcher = UPLOAD_ID.matcher(readBody(initiate, "POST", key));
+        if (!matcher.find()) {
+            throw new IOException("S3 did not return an upload id for " + key + ".");
+        }
+        String uploadId = matcher.group(1);
+
+        try {
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                Map<String, String> query = new TreeMap<>();
+                query.put("partNumber", Integer.toString(partNumber));
+                query.put("uploadId", uploadId);
+                HttpURLConnection part = send("PUT", key, query, null, source, offset, Math.min(partSize, size - offset));
+                check(part, "PUT part", key);
+                complete.append("<Part><PartNumber>").append(partNumber).append("</PartNumber><ETag>")
+                        .append(part.getHeaderField("ETag")).append("</ETag></Part>");
+                release(part);
+            }
+            complete.append("</CompleteMultipartUpload>");
+
+            HttpURLConnection done = send("POST", key, Collections.singletonMap("uploadId", uploadId), "application/xml", complete.toString().getBytes(StandardCharsets.UTF_8));
+            // S3 may report a failed completion inside a 200 response
+            String body = readBody(done, "POST complete", key);
+            if (body.contains("<Error>")) {
+                throw new IOException("S3 could not complete the upload of " + key + ": " + body);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                HttpURLConnection abort = send("DELETE", key, Collections.singletonMap("uploadId", uploadId), null, null, 0, 0);
+                release(abort);
+            } catch (IOException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e;
+        }
+    }
+
+    // Request with an optional body taken from a region of a file
+    private HttpURLConnection send(String method, String key, Map<String, String> query, String contentType, Path file, long offset, long length) throws IOException {
+        HttpURLConnection connection = open(method, key, query, contentType);
+        if (file != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(length);
+            try (OutputStream out = connection.getOutputStream();
+                 FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = offset;
+                while (position < offset + length) {
+                    long transferred = channel.transferTo(position, offset + length - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException("File ended before the upload of " + key + " was complete.");
+                    }
+                    position += transferred;
+                }
+            }
+        }
+        return connection;
+    }
+
+    private HttpURLConnection send(String method, String key, Map<String, String> query, String contentType, byte[] body) throws IOException {
+        HttpURLConnection connection = open(method, key, query, contentType);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection;
+    }
+
+    private HttpURLConnection open(String method, String key, Map<String, String> query, String contentType) throws IOException {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = now.format(AMZ_DATE);
+        String scope = now.format(DATE_STAMP) + "/" + region + "/s3/aws4_request";
+        String canonicalQuery = canonicalQuery(query);
+
+        String canonicalHeaders = "host:" + host + "\n" + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n" + "x-amz-date:" + amzDate + "\n";
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        String canonicalRequest = method + "\n" + canonicalUri(key) + "\n" + canonicalQuery + "\n" + canonicalHeaders + "\n" + signedHeaders + "\n" + UNSIGNED_PAYLOAD;
+        String signature = sign(now, scope, canonicalRequest);
+
+        URL url = new URL(endpoint + canonicalUri(key) + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(timeoutMs);
+        connection.setReadTimeout(timeoutMs);
+        connection.setRequestProperty("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        connection.setRequestProperty("x-amz-date", amzDate);
+        connection.setRequestProperty("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        if (contentType != null) {
+            connection.setRequestProperty("Content-Type", contentType);
+        }
+        return connection;
+    }
+
+    String sign(ZonedDateTime now, String scope, String canonicalRequest) {
+        try {
+            String stringToSign = ALGORITHM + "\n" + now.format(AMZ_DATE) + "\n" + scope + "\n" + hex(MessageDigest.getInstance("SHA-256").digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+            byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), now.format(DATE_STAMP));
+            signingKey = hmac(signingKey, region);
+            signingKey = hmac(signingKey, "s3");
+            signingKey = hmac(signingKey, "aws4_request");
+            return hex(hmac(signingKey, stringToSign));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign the S3 request.", e);
+        }
+    }
+
+    // The bucket itself when key is null
+    String canonicalUri(String key) {
+        if (key == null) {
+            return "/" + encode(bucket, false);
+        }
+        return "/" + encode(bucket, false) + "/" + encode(key, true);
+    }
+
+    // Sorted by encoded name; a parameter without a value still gets its '='
+    static String canonicalQuery(Map<String, String> query) {
+        Map<String, String> encoded = new TreeMap<>();
+        query.forEach((name, value) -> encoded.put(encode(name, false), encode(value, false)));
+        StringBuilder canonical = new StringBuilder();
+        encoded.forEach((name, value) -> {
+            if (canonical.length() > 0) {
+                canonical.append('&');
+            }
+            canonical.append(name).append('=').append(value);
+        });
+        return canonical.toString();
+    }
+
+    // RFC 3986 encoding as SigV4 expects it: only unreserved characters stay as they are
+    private static String encode(String value, boolean keepSlash) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16))).append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static void check(HttpURLConnection connection, String operation, String key) throws IOException {
+        int status = connection.getResponseCode();
+        if (status / 100 != 2) {
+            String body = "";
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                try (InputStream in = error) {
+                    body = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+                }
+            }
+            throw new IOException("S3 " + operation + " " + key + " failed with status " + status + ": " + body);
+        }
+    }
+
+    private static String readBody(HttpURLConnection connection, String operation, String key) throws IOException {
+        check(connection, operation, key);
+        try (InputStream in = connection.getInputStream()) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Reads what is left of the response and closes it, which hands the socket back to the JDK keep-alive cache for
+    // the next request to this endpoint; disconnect() would close it and cost a new TCP and TLS handshake each time
+    private static void release(HttpURLConnection connection) throws IOException {
+        InputStream body = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (body != null) {
+            try (InputStream in = body) {
+                StreamUtils.drain(in);
+            }
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package com.i2s.worfklow_api_final.storage;
+
+import com.i2s.worfklow_api_final.WorfklowApiFinalApplication;
+import com.i2s.worfklow_api_final.configuration.StorageConfig;
+import com.i2s.worfklow_api_final.service.StorageService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+
+// Runs the storage migration on its own, with no web server, schedulers or other application services, against
+// the same configuration as the application:
+//   java -cp app.jar -Dloader.main=com.i2s.worfklow_api_final.storage.StorageMigrationApplication org.springframework.boot.loader.PropertiesLauncher
+// Not a @Configuration, so the application's component scan leaves it out.
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = WorfklowApiFinalApplication.class)
+@Import({StorageConfig.class, StorageService.class, StorageMigrationRunner.class})
+public class StorageMigrationApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(StorageMigrationApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+}
@@ -0,0 +1,114 @@
+package com.i2s.worfklow_api_final.storage;
+
+import com.i2s.worfklow_api_final.model.File;
+import com.i2s.worfklow_api_final.repository.FileRepository;
+import com.i2s.worfklow_api_final.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+// One-off copy of every file into the configured blob store, started through StorageMigrationApplication. Sources
+// are the local blobs under filestorage.base-dir and, for rows older than content addressing, the absolute path in
+// the row. Sources are copied, never deleted, and blobs already in the target are skipped, so the run can be
+// repeated after a failure. The process exits when it is done, with status 1 if any file failed.
+public class StorageMigrationRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(StorageMigrationRunner.class);
+
+    private static final int PAGE_SIZE = 100;
+
+    private final FileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final StorageService storageService;
+    private final ConfigurableApplicationContext applicationContext;
+
+    @Value("${filestorage.base-dir:uploads/}")
+    private String fileStorageLocation;
+
+    @Autowired
+    public StorageMigrationRunner(FileRepository fileRepository, BlobStore blobStore, StorageService storageService, ConfigurableApplicationContext applicationContext) {
+        this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.storageService = storageService;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        LocalBlobStore localStore = new LocalBlobStore(Paths.get(fileStorageLocation));
+        int copied = 0;
+        int present = 0;
+        int missing = 0;
+        int failed = 0;
+
+        long after = 0;
+        List<File> page;
+        while (!(page = fileRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, PAGE_SIZE))).isEmpty()) {
+            for (File file : page) {
+                after = file.getId();
+                try {
+                    switch (migrate(file, localStore)) {
+                        case COPIED:
+                            copied++;
+                            break;
+                        case PRESENT:
+                            present++;
+                            break;
+                        default:
+                            missing++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failed++;
+                    logger.warn("Could not migrate file {}", file.getId(), e);
+                }
+            }
+        }
+        logger.info("Storage migration done: {} copied, {} already present, {} missing at the source, {} failed", copied, present, missing, failed);
+
+        int exitCode = failed == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+    }
+
+    private Outcome migrate(File file, LocalBlobStore localStore) throws IOException {
+        String key;
+        if (file.getStorageKey() != null) {
+            key = file.getStorageKey();
+        } else if (file.getContentHash() != null) {
+            key = storageService.getBlobKey(file.getContentHash());
+        } else {
+            key = "legacy/" + file.getId();
+        }
+
+        Outcome outcome = Outcome.PRESENT;
+        if (!blobStore.exists(key)) {
+            Path source = file.getStorageKey() != null ? localStore.localPath(key).get() : Paths.get(file.getFilePath());
+            if (!Files.isRegularFile(source)) {
+                logger.warn("File {} has no content at {}", file.getId(), source);
+                return Outcome.MISSING;
+            }
+            blobStore.copy(key, source, file.getContentType());
+            outcome = Outcome.COPIED;
+        }
+        if (!key.equals(file.getStorageKey()) || !key.equals(file.getFilePath())) {
+            fileRepository.updateStorageKey(file.getId(), key);
+        }
+        return outcome;
+    }
+
+    private enum Outcome {
+        COPIED,
+        PRESENT,
+        MISSING
+    }
+}
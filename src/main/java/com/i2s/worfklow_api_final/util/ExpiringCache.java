@@ -0,0 +1,100 @@
+package com.i2s.worfklow_api_final.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Concurrent cache with a time-to-live per entry and a size bound. Expired entries are dropped when read and
+// swept when the cache is full; if it is still full after that, arbitrary entries are dropped to make room.
+public class ExpiringCache<K, V> {
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public ExpiringCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("maxSize and ttlMillis must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMillis);
+    }
+
+    // The entry lives for ttlMillis at most, never longer than the cache's own TTL
+    public void put(K key, V value, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            makeRoom();
+        }
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + Math.min(ttlMillis, this.ttlMillis)));
+    }
+
+    // Returns the live value for the key, creating it with the cache's TTL if there is none
+    public V getOrCreate(K key, Function<K, V> factory) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        if (entries.size() >= maxSize) {
+            makeRoom();
+        }
+        long now = System.currentTimeMillis();
+        return entries.compute(key, (k, entry) -> entry != null && entry.expiresAt > now ? entry : new Entry<>(factory.apply(k), now + ttlMillis)).value;
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private synchronized void makeRoom() {
+        if (entries.size() < maxSize) {
+            // Another thread already did
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        // Leave some headroom so the next puts do not sweep again right away
+        int target = maxSize - Math.max(1, maxSize / 10);
+        Iterator<K> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.i2s.worfklow_api_final.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Writes a stored file as an HTTP response: conditional requests (If-None-Match, If-Modified-Since, If-Range),
+// single and multiple byte ranges, and the body through sendfile when the connector offers it, otherwise through
+// FileChannel.transferTo. The caller sets Content-Type and Content-Disposition and resolves the metadata.
+public class FileRangeWriter {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // More ranges than this are answered with the whole file, so a request cannot ask for thousands of tiny parts
+    private static final int MAX_RANGES = 16;
+
+    private final Path path;
+    private final long length;
+    private final long lastModified;
+    private final String eTag;
+
+    public FileRangeWriter(Path path, long length, long lastModified, String eTag) {
+        this.path = path;
+        this.length = length;
+        // HTTP dates have second precision
+        this.lastModified = lastModified / 1000 * 1000;
+        this.eTag = eTag;
+    }
+
+    public void write(HttpServletRequest request, HttpServletResponse response, String contentType) throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+        if (isNotModified(request)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !isRangeCurrent(request)) {
+            response.setContentType(contentType);
+            send(request, response, 0, length);
+            return;
+        }
+
+        List<long[]> ranges = parseRanges(rangeHeader);
+        if (ranges == null) {
+            response.setContentType(contentType);
+            send(request, response, 0, length);
+        } else if (ranges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        } else if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range));
+            send(request, response, range[0], range[1] + 1);
+        } else {
+            writeMultipart(response, contentType, ranges);
+        }
+    }
+
+    // If-None-Match wins over If-Modified-Since when both are present
+    boolean isNotModified(HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || weak(tag).equals(weak(eTag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    // A Range with an If-Range naming another version of the file is answered with the whole file
+    boolean isRangeCurrent(HttpServletRequest request) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            return ifRange.trim().equals(eTag) && !eTag.startsWith("W/");
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date != -1 && date == lastModified;
+    }
+
+    // Inclusive [first, last] pairs; null for a header to ignore, empty when no range is satisfiable
+    List<long[]> parseRanges(String header) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dash = trimmed.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String firstPart = trimmed.substring(0, dash).trim();
+                String lastPart = trimmed.substring(dash + 1).trim();
+                long first;
+                long last;
+                if (firstPart.isEmpty()) {
+                    // suffix range: the final n bytes
+                    long suffix = Long.parseLong(lastPart);
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    first = Math.max(length - suffix, 0);
+                    last = length - 1;
+                } else {
+                    first = Long.parseLong(firstPart);
+                    long requestedLast = lastPart.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastPart);
+                    if (requestedLast < first) {
+                        // syntactically invalid, which voids the whole header
+                        return null;
+                    }
+                    last = Math.min(requestedLast, length - 1);
+                }
+                if (first < length && first <= last) {
+                    ranges.add(new long[]{first, last});
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    private void writeMultipart(HttpServletResponse response, String contentType, List<long[]> ranges) throws IOException {
+        String boundary = UUID.randomUUID().toString();
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                transfer(channel, ranges.get(i)[0], ranges.get(i)[1] + 1, target);
+            }
+        }
+        out.write(end);
+    }
+
+    // Hands the file region to the connector's sendfile when available, so the bytes never pass through the JVM
+    private void send(HttpServletRequest request, HttpServletResponse response, long start, long end) throws IOException {
+        response.setContentLengthLong(end - start);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, start, end, target);
+        }
+    }
+
+    private static void transfer(FileChannel channel, long start, long end, WritableByteChannel target) throws IOException {
+        long position = start;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("File ended before the requested range was sent.");
+            }
+            position += transferred;
+        }
+    }
+
+    private String contentRange(long[] range) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    private static String weak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.i2s.worfklow_api_final.util;
+
+// Thread-safe long -> long counter table with open addressing over primitive arrays, so counting per user
+// does not box a Long key and value per entry. Key 0 is reserved as the empty slot marker, which is fine
+// for database ids. Counters never go below zero and an entry at zero reads the same as a missing one.
+public class LongCounterMap {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongCounterMap() {
+        this(64);
+    }
+
+    public LongCounterMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, 16) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    public synchronized long get(long key) {
+        checkKey(key);
+        int slot = find(keys, key);
+        return keys[slot] == key ? values[slot] : 0;
+    }
+
+    public synchronized void set(long key, long value) {
+        checkKey(key);
+        int slot = find(keys, key);
+        if (keys[slot] != key) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = Math.max(value, 0);
+        if (size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    // Returns the new value
+    public synchronized long add(long key, long delta) {
+        checkKey(key);
+        int slot = find(keys, key);
+        if (keys[slot] != key) {
+            if (delta <= 0) {
+                return 0;
+            }
+            keys[slot] = key;
+            size++;
+        }
+        long value = Math.max(values[slot] + delta, 0);
+        values[slot] = value;
+        if (size * 2 > keys.length) {
+            resize();
+        }
+        return value;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // Linear probing; the table is kept at most half full so a free slot always exists
+    private static int find(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.i2s.worfklow_api_final.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// Writes one JSON document per line (application/x-ndjson) and flushes as it goes so clients get the first rows right away.
+public class NdjsonWriter implements Closeable {
+    private static final int FLUSH_EVERY = 200;
+
+    private final OutputStream outputStream;
+    private final ObjectWriter objectWriter;
+    private long written;
+
+    public NdjsonWriter(OutputStream outputStream, ObjectMapper objectMapper) {
+        this.outputStream = new BufferedOutputStream(outputStream);
+        this.objectWriter = objectMapper.writer();
+    }
+
+    public void write(Object value) {
+        try {
+            outputStream.write(objectWriter.writeValueAsBytes(value));
+            outputStream.write('\n');
+            if (++written == 1 || written % FLUSH_EVERY == 0) {
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.flush();
+    }
+}
@@ -0,0 +1,76 @@
+package com.i2s.worfklow_api_final.websocket;
+
+import com.i2s.worfklow_api_final.security.AuthenticationCache;
+import com.i2s.worfklow_api_final.security.TokenClaims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.Optional;
+
+// Authenticates the WebSocket handshake from the JWT. Browsers cannot set headers on a WebSocket request,
+// so the token is read from the "token" query parameter, falling back to the Authorization header.
+@Component
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+    public static final String USER_ID_ATTRIBUTE = "userId";
+    public static final String LAST_SEEN_ID_ATTRIBUTE = "lastSeenId";
+
+    private final AuthenticationCache authenticationCache;
+
+    @Autowired
+    public JwtHandshakeInterceptor(AuthenticationCache authenticationCache) {
+        this.authenticationCache = authenticationCache;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = getToken(request);
+        Optional<TokenClaims> claims = StringUtils.hasText(token) ? authenticationCache.getClaims(token) : Optional.empty();
+        if (!claims.isPresent()) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        attributes.put(USER_ID_ATTRIBUTE, claims.get().getUserId());
+        Long lastSeenId = getLastSeenId(request);
+        if (lastSeenId != null) {
+            attributes.put(LAST_SEEN_ID_ATTRIBUTE, lastSeenId);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    // Id of the last notification the client received, sent back on reconnect to catch up on what it missed
+    private Long getLastSeenId(ServerHttpRequest request) {
+        String lastSeenId = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("lastSeenId");
+        if (!StringUtils.hasText(lastSeenId)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastSeenId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String getToken(ServerHttpRequest request) {
+        String token = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("token");
+        if (StringUtils.hasText(token)) {
+            return token;
+        }
+        String bearerToken = request.getHeaders().getFirst("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.i2s.worfklow_api_final.websocket;
+
+import com.i2s.worfklow_api_final.dto.NotificationDTO;
+import com.i2s.worfklow_api_final.event.NotificationsCreatedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Pushes committed notifications to connected users. Bursts (a project launch, a fan-out to a large job) are
+// buffered per user and flushed once per tick as a single JSON array frame.
+@Component
+public class NotificationPushService {
+    private final NotificationWebSocketHandler notificationWebSocketHandler;
+    private final Map<Long, Queue<NotificationDTO>> pendingByUserId = new ConcurrentHashMap<>();
+
+    @Autowired
+    public NotificationPushService(NotificationWebSocketHandler notificationWebSocketHandler) {
+        this.notificationWebSocketHandler = notificationWebSocketHandler;
+    }
+
+    // Only after commit, so a client is never told about a notification that was rolled back
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onNotificationsCreated(NotificationsCreatedEvent event) {
+        for (NotificationDTO notification : event.getNotifications()) {
+            // Users without an open session read them on their next reconnect instead
+            if (notificationWebSocketHandler.isConnected(notification.getUserId())) {
+                // Added inside compute so it cannot race with flush() taking the queue away
+                pendingByUserId.compute(notification.getUserId(), (id, queue) -> {
+                    Queue<NotificationDTO> pending = queue != null ? queue : new ConcurrentLinkedQueue<>();
+                    pending.add(notification);
+                    return pending;
+                });
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.push.tick-ms:250}")
+    public void flush() {
+        for (Long userId : pendingByUserId.keySet()) {
+            Queue<NotificationDTO> queue = pendingByUserId.remove(userId);
+            if (queue == null) {
+                continue;
+            }
+            List<NotificationDTO> batch = new ArrayList<>(queue);
+            if (!batch.isEmpty()) {
+                notificationWebSocketHandler.sendToUser(userId, batch);
+            }
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package com.i2s.worfklow_api_final.websocket;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.i2s.worfklow_api_final.dto.NotificationDTO;
+import com.i2s.worfklow_api_final.service.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -9,17 +18,58 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Push hub for notifications. A user can have any number of open sessions (tabs, devices). Each session gets an
+// OutboundSession with a bounded buffer, a send time limit and at most one send in flight, so a slow client only
+// ever delays itself and cannot tie up the push pool.
 @Component
 public class NotificationWebSocketHandler extends TextWebSocketHandler {
-    private final Map<Long, WebSocketSession> sessions = new HashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(NotificationWebSocketHandler.class);
+    private static final String OUTBOUND_ATTRIBUTE = "outboundSession";
+
+    private final Map<Long, Set<OutboundSession>> sessionsByUserId = new ConcurrentHashMap<>();
+    private final ObjectWriter objectWriter;
+    private final TaskExecutor pushExecutor;
+    private final NotificationService notificationService;
+
+    @Value("${websocket.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.buffer-size-limit:524288}")
+    private int bufferSizeLimit;
+
+    @Value("${websocket.replay-limit:500}")
+    private int replayLimit;
+
+    @Autowired
+    public NotificationWebSocketHandler(ObjectMapper objectMapper, @Qualifier("pushExecutor") TaskExecutor pushExecutor, NotificationService notificationService) {
+        this.objectWriter = objectMapper.writer();
+        this.pushExecutor = pushExecutor;
+        this.notificationService = notificationService;
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        // Extract user id from session URI and add to sessions map
         Long userId = getUserIdFromSession(session);
-        sessions.put(userId, session);
+        if (userId == null) {
+            closeQuietly(session, CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        OutboundSession outbound = new OutboundSession(session, pushExecutor, sendTimeLimitMs, bufferSizeLimit);
+        session.getAttributes().put(OUTBOUND_ATTRIBUTE, outbound);
+        sessionsByUserId.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(outbound);
+
+        // Registered first, so anything committed from here on is pushed live; the replay covers the gap before.
+        // The client drops ids it has already seen.
+        Long lastSeenId = (Long) session.getAttributes().get(JwtHandshakeInterceptor.LAST_SEEN_ID_ATTRIBUTE);
+        if (lastSeenId != null) {
+            replay(outbound, userId, lastSeenId);
+        }
     }
 
     @Override
@@ -27,27 +77,77 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         // Handle incoming message if necessary
     }
 
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        closeQuietly(session, CloseStatus.SERVER_ERROR);
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        // Remove session from sessions map
         Long userId = getUserIdFromSession(session);
-        sessions.remove(userId);
+        Object outbound = session.getAttributes().get(OUTBOUND_ATTRIBUTE);
+        if (userId == null || outbound == null) {
+            return;
+        }
+        // Drops the user's entry atomically once the last session is gone
+        sessionsByUserId.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(outbound);
+            return sessions.isEmpty() ? null : sessions;
+        });
     }
 
     public void sendNotificationToUser(Long userId, NotificationDTO notification) {
-        WebSocketSession session = sessions.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(new ObjectMapper().writeValueAsString(notification)));
-            } catch (IOException e) {
-                // Handle error when sending message
-                e.printStackTrace();
-            }
+        sendToUser(userId, notification);
+    }
+
+    // Serializes the payload once and queues it on every open session of the user
+    public void sendToUser(long userId, Object payload) {
+        Set<OutboundSession> sessions = sessionsByUserId.getOrDefault(userId, Collections.emptySet());
+        if (sessions.isEmpty()) {
+            return;
+        }
+        TextMessage message;
+        try {
+            message = new TextMessage(objectWriter.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize WebSocket payload for user {}", userId, e);
+            return;
+        }
+        for (OutboundSession session : sessions) {
+            session.send(message);
+        }
+    }
+
+    public boolean isConnected(long userId) {
+        return sessionsByUserId.containsKey(userId);
+    }
+
+    public int getSessionCount() {
+        return sessionsByUserId.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void replay(OutboundSession session, long userId, long lastSeenId) {
+        List<NotificationDTO> missed = notificationService.getNotificationsForUserAfter(userId, lastSeenId, replayLimit);
+        if (missed.isEmpty()) {
+            return;
+        }
+        try {
+            session.send(new TextMessage(objectWriter.writeValueAsString(missed)));
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize WebSocket replay for user {}", userId, e);
         }
     }
 
     private Long getUserIdFromSession(WebSocketSession session) {
-        // Parse user id from session URI
-        return new Long(1);
+        // Set by JwtHandshakeInterceptor
+        return (Long) session.getAttributes().get(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE);
+    }
+
+    private static void closeQuietly(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            // Already gone
+        }
     }
 }
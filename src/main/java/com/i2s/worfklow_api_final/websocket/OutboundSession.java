@@ -0,0 +1,145 @@
+package com.i2s.worfklow_api_final.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Outbound side of one WebSocket session: a bounded queue with at most one send in flight. When the container
+// exposes a JSR-356 session (Tomcat does) the send is asynchronous and push-pool tasks never wait on the network;
+// otherwise the send blocks a push-pool thread, but never more than one per session. A session whose buffer
+// overflows or whose send in flight exceeds the time limit is closed; the client reconnects and catches up.
+class OutboundSession {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundSession.class);
+
+    private final WebSocketSession session;
+    private final Session nativeSession;
+    private final TaskExecutor pushExecutor;
+    private final long sendTimeLimitNanos;
+    private final int bufferSizeLimit;
+    private final Queue<TextMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedBytes = new AtomicInteger();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long sendStartedAt;
+
+    OutboundSession(WebSocketSession session, TaskExecutor pushExecutor, int sendTimeLimitMs, int bufferSizeLimit) {
+        this.session = session;
+        this.nativeSession = session instanceof NativeWebSocketSession ? ((NativeWebSocketSession) session).getNativeSession(Session.class) : null;
+        this.pushExecutor = pushExecutor;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    // Never blocks: queues the message and starts a send if none is in flight
+    void send(TextMessage message) {
+        if (closed.get() || !session.isOpen()) {
+            return;
+        }
+        if (sending.get() && System.nanoTime() - sendStartedAt > sendTimeLimitNanos) {
+            close("send time limit exceeded");
+            return;
+        }
+        if (bufferedBytes.addAndGet(message.getPayloadLength()) > bufferSizeLimit) {
+            close("buffer size limit exceeded");
+            return;
+        }
+        queue.add(message);
+        flush();
+    }
+
+    private void flush() {
+        while (!closed.get() && !queue.isEmpty() && sending.compareAndSet(false, true)) {
+            TextMessage message = queue.poll();
+            if (message == null) {
+                // Taken by the send that just finished
+                sending.set(false);
+                continue;
+            }
+            sendStartedAt = System.nanoTime();
+            if (nativeSession != null) {
+                sendAsync(message);
+            } else {
+                sendOnPool(message);
+            }
+            return;
+        }
+    }
+
+    private void sendAsync(TextMessage message) {
+        try {
+            nativeSession.getAsyncRemote().sendText(message.getPayload(), result -> {
+                if (!result.isOK()) {
+                    close("send failed: " + result.getException());
+                    return;
+                }
+                sent(message);
+                // The completion may run inline on the sending thread, so the next send starts on the pool
+                try {
+                    pushExecutor.execute(this::flush);
+                } catch (TaskRejectedException e) {
+                    flush();
+                }
+            });
+        } catch (RuntimeException e) {
+            close("send failed: " + e.getMessage());
+        }
+    }
+
+    private void sendOnPool(TextMessage message) {
+        try {
+            pushExecutor.execute(() -> {
+                try {
+                    session.sendMessage(message);
+                } catch (IOException | RuntimeException e) {
+                    close("send failed: " + e.getMessage());
+                    return;
+                }
+                sent(message);
+                flush();
+            });
+        } catch (TaskRejectedException e) {
+            logger.warn("Push pool is full, dropping message for WebSocket session {}", session.getId());
+            sent(message);
+        }
+    }
+
+    private void sent(TextMessage message) {
+        bufferedBytes.addAndGet(-message.getPayloadLength());
+        sending.set(false);
+    }
+
+    private void close(String reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        queue.clear();
+        logger.debug("Dropping WebSocket session {}: {}", session.getId(), reason);
+        // Closing a stalled connection can wait on the network, so it is not done on the caller's thread
+        try {
+            pushExecutor.execute(() -> closeQuietly(session));
+        } catch (TaskRejectedException e) {
+            closeQuietly(session);
+        }
+    }
+
+    private static void closeQuietly(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException | RuntimeException e) {
+            // Already gone
+        }
+    }
+}
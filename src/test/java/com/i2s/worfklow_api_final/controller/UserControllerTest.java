@@ -0,0 +1,76 @@
+package com.i2s.worfklow_api_final.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
+import com.i2s.worfklow_api_final.dto.UserDTO;
+import com.i2s.worfklow_api_final.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserControllerTest {
+    private UserService userService;
+    private UserController userController;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        userController = new UserController(userService, new ObjectMapper());
+    }
+
+    @Test
+    void clampsTheCursorPageSize() {
+        CursorPageDTO<UserDTO> page = new CursorPageDTO<>(Collections.emptyList(), null);
+        when(userService.getUsersAfter(anyLong(), anyInt())).thenReturn(page);
+
+        userController.getUsersAfter(40, 100_000);
+        userController.getUsersAfter(40, 0);
+
+        verify(userService).getUsersAfter(40, CursorPageDTO.MAX_SIZE);
+        verify(userService).getUsersAfter(40, 1);
+    }
+
+    @Test
+    void exportsOneJsonDocumentPerLine() throws IOException {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> sink = invocation.getArgument(0);
+            sink.accept(user(1, "Ana"));
+            sink.accept(user(2, "Rui"));
+            return null;
+        }).when(userService).streamAllUsers(any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        userController.exportUsers(response);
+
+        assertEquals("application/x-ndjson", response.getContentType());
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"id\":1") && lines[0].contains("\"fullName\":\"Ana\""));
+        assertTrue(lines[1].contains("\"id\":2") && lines[1].contains("\"fullName\":\"Rui\""));
+    }
+
+    @Test
+    void exportsAnEmptyBodyForNoRows() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        userController.exportUsers(response);
+
+        assertEquals("", response.getContentAsString());
+        verify(userService).streamAllUsers(any());
+    }
+
+    private static UserDTO user(long id, String fullName) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(id);
+        userDTO.setFullName(fullName);
+        return userDTO;
+    }
+}
@@ -0,0 +1,47 @@
+package com.i2s.worfklow_api_final.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPageDTOTest {
+
+    @Test
+    void clampsThePageSize() {
+        assertEquals(1, CursorPageDTO.clampSize(0));
+        assertEquals(1, CursorPageDTO.clampSize(-20));
+        assertEquals(50, CursorPageDTO.clampSize(50));
+        assertEquals(CursorPageDTO.MAX_SIZE, CursorPageDTO.clampSize(CursorPageDTO.MAX_SIZE));
+        assertEquals(CursorPageDTO.MAX_SIZE, CursorPageDTO.clampSize(100_000));
+    }
+
+    @Test
+    void pointsAFullPageAtItsLastId() {
+        CursorPageDTO<Long> page = CursorPageDTO.of(Arrays.asList(3L, 7L, 12L), 3, Long::longValue);
+
+        assertEquals(Arrays.asList(3L, 7L, 12L), page.getItems());
+        assertEquals(Long.valueOf(12), page.getNextCursor());
+    }
+
+    @Test
+    void endsOnAShortPage() {
+        CursorPageDTO<Long> page = CursorPageDTO.of(Arrays.asList(3L, 7L), 3, Long::longValue);
+
+        assertEquals(2, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void endsOnAnEmptyPage() {
+        List<Long> none = new ArrayList<>();
+
+        CursorPageDTO<Long> page = CursorPageDTO.of(none, 3, Long::longValue);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+}
@@ -0,0 +1,65 @@
+package com.i2s.worfklow_api_final.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientAddressResolverTest {
+
+    @Test
+    void ignoresForwardedForWithoutTrustedProxies() {
+        ClientAddressResolver resolver = new ClientAddressResolver(Collections.emptyList());
+
+        assertEquals("203.0.113.9", resolver.resolve(request("203.0.113.9", "198.51.100.1")));
+    }
+
+    @Test
+    void ignoresForwardedForFromAnUntrustedPeer() {
+        ClientAddressResolver resolver = new ClientAddressResolver(Collections.singletonList("10.0.0.0/8"));
+
+        assertEquals("203.0.113.9", resolver.resolve(request("203.0.113.9", "198.51.100.1")));
+    }
+
+    @Test
+    void takesTheClientBehindATrustedProxy() {
+        ClientAddressResolver resolver = new ClientAddressResolver(Collections.singletonList("10.0.0.0/8"));
+
+        assertEquals("198.51.100.1", resolver.resolve(request("10.1.2.3", "198.51.100.1")));
+    }
+
+    @Test
+    void skipsChainedProxiesAndSpoofedEntries() {
+        ClientAddressResolver resolver = new ClientAddressResolver(Arrays.asList("10.0.0.0/8", "192.168.1.5"));
+
+        // The left-most entry was sent by the client and must not be believed
+        assertEquals("198.51.100.1", resolver.resolve(request("10.1.2.3", "1.2.3.4, 198.51.100.1, 192.168.1.5")));
+    }
+
+    @Test
+    void fallsBackToThePeerWhenEveryHopIsAProxy() {
+        ClientAddressResolver resolver = new ClientAddressResolver(Collections.singletonList("10.0.0.0/8"));
+
+        assertEquals("10.1.2.3", resolver.resolve(request("10.1.2.3", "10.9.9.9")));
+        assertEquals("10.1.2.3", resolver.resolve(request("10.1.2.3", null)));
+    }
+
+    @Test
+    void treatsNonAddressHopsAsTheClient() {
+        ClientAddressResolver resolver = new ClientAddressResolver(Collections.singletonList("10.0.0.0/8"));
+
+        assertEquals("unknown", resolver.resolve(request("10.1.2.3", "unknown")));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
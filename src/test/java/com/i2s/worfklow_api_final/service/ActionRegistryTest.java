@@ -0,0 +1,103 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.model.Method;
+import com.i2s.worfklow_api_final.repository.MethodRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ActionRegistryTest {
+    private MethodRepository methodRepository;
+    private OutboxService outboxService;
+    private ActionService actionService;
+
+    @BeforeEach
+    void setUp() {
+        methodRepository = mock(MethodRepository.class);
+        outboxService = mock(OutboxService.class);
+        when(methodRepository.findAll()).thenReturn(Arrays.asList(method(1, "sendEmail"), method(2, "sendSms"), method(3, "ridil")));
+        actionService = new ActionService(methodRepository, outboxService);
+    }
+
+    private static Method method(long id, String name) {
+        Method method = new Method();
+        method.setId(id);
+        method.setMethodName(name);
+        return method;
+    }
+
+    private ActionRegistry registry() throws IllegalAccessException {
+        ActionRegistry registry = new ActionRegistry(actionService, methodRepository);
+        registry.init();
+        return registry;
+    }
+
+    @Test
+    void onlyAnnotatedMethodsAreActions() {
+        List<String> names = actionService.getActionMethods().stream().map(java.lang.reflect.Method::getName).sorted().collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("ridil", "ridil1", "sendEmail", "sendSms"), names);
+    }
+
+    @Test
+    void registerMethodsSavesOnlyActions() {
+        actionService.init();
+
+        verify(methodRepository, times(4)).save(any(Method.class));
+        verify(methodRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void invokesActionByMethodIdWithNamedArguments() throws Exception {
+        ActionRegistry registry = registry();
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("from", "I2S");
+        arguments.put("to", "+212600000000");
+        arguments.put("text", "Task assigned");
+
+        registry.invoke(2, arguments);
+
+        verify(outboxService).enqueueSms("I2S", "+212600000000", "Task assigned");
+    }
+
+    @Test
+    void convertsArgumentsToDeclaredTypes() throws Exception {
+        ActionRegistry registry = registry();
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("tkhbi9a", "42");
+        arguments.put("chiL3ba", 7);
+
+        assertNull(registry.invoke(3, arguments));
+
+        arguments.put("tkhbi9a", "not a number");
+        assertThrows(IllegalArgumentException.class, () -> registry.invoke(3, arguments));
+    }
+
+    @Test
+    void missingArgumentIsRejected() throws Exception {
+        ActionRegistry registry = registry();
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("from", "I2S");
+
+        assertThrows(IllegalArgumentException.class, () -> registry.invoke(2, arguments));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void unknownMethodIdIsRejected() throws Exception {
+        ActionRegistry registry = registry();
+
+        // ridil1 is an action but has no Method row, so it gets no invoker
+        assertThrows(NoSuchMethodException.class, () -> registry.invoke(4, new HashMap<>()));
+        assertThrows(NoSuchMethodException.class, () -> registry.invoke(99, new HashMap<>()));
+    }
+}
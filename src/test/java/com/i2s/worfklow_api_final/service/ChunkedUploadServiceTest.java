@@ -0,0 +1,254 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.FileDTO;
+import com.i2s.worfklow_api_final.enums.UploadSessionStatus;
+import com.i2s.worfklow_api_final.model.UploadSession;
+import com.i2s.worfklow_api_final.repository.UploadChunkRepository;
+import com.i2s.worfklow_api_final.repository.UploadSessionRepository;
+import com.i2s.worfklow_api_final.repository.UploadWriteLeaseRepository;
+import com.i2s.worfklow_api_final.storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChunkedUploadServiceTest {
+    private static final long SESSION_ID = 7;
+    private static final String NODE_ID = "node-a";
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path root;
+
+    private UploadSessionRepository uploadSessionRepository;
+    private UploadChunkRepository uploadChunkRepository;
+    private UploadWriteLeaseRepository uploadWriteLeaseRepository;
+    private StorageService storageService;
+    private FileService fileService;
+    private ChunkedUploadService service;
+    private UploadSession uploadSession;
+
+    // One session of a single five byte chunk, created on this node
+    @BeforeEach
+    void setUp() {
+        uploadSessionRepository = mock(UploadSessionRepository.class);
+        uploadChunkRepository = mock(UploadChunkRepository.class);
+        uploadWriteLeaseRepository = mock(UploadWriteLeaseRepository.class);
+        fileService = mock(FileService.class);
+        storageService = spy(new StorageService(new LocalBlobStore(root)));
+        ReflectionTestUtils.setField(storageService, "fileStorageLocation", root.toString());
+        storageService.init();
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        service = new ChunkedUploadService(uploadSessionRepository, uploadChunkRepository, uploadWriteLeaseRepository, storageService, fileService, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "writerWaitMs", 1000L);
+        ReflectionTestUtils.setField(service, "writeLeaseMs", 20000L);
+        ReflectionTestUtils.setField(service, "nodeId", NODE_ID);
+
+        uploadSession = new UploadSession();
+        uploadSession.setId(SESSION_ID);
+        uploadSession.setFileName("hello.txt");
+        uploadSession.setContentType("text/plain");
+        uploadSession.setTotalSize(5);
+        uploadSession.setChunkSize(5);
+        uploadSession.setChunkCount(1);
+        uploadSession.setPartPath(storageService.createPartFile(5).toString());
+        uploadSession.setNodeId(NODE_ID);
+        when(uploadSessionRepository.findById(SESSION_ID)).thenReturn(Optional.of(uploadSession));
+        when(uploadSessionRepository.findByIdForShare(SESSION_ID)).thenReturn(Optional.of(uploadSession));
+        when(uploadSessionRepository.updateStatus(eq(SESSION_ID), any(), any())).thenReturn(1);
+        when(uploadWriteLeaseRepository.acquire(eq(SESSION_ID), anyInt(), anyString(), any(), any())).thenReturn(1);
+        when(uploadWriteLeaseRepository.renew(eq(SESSION_ID), anyInt(), anyString(), any(), any())).thenReturn(1);
+    }
+
+    private Path partFile() {
+        return Paths.get(uploadSession.getPartPath());
+    }
+
+    private void receiveAllChunks() throws IOException {
+        Files.write(partFile(), "hello".getBytes(StandardCharsets.UTF_8));
+        when(uploadChunkRepository.findChunkIndexesBySessionId(SESSION_ID)).thenReturn(Collections.singletonList(0));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void recordsAChunkWrittenUnderItsLease() throws IOException {
+        service.writeChunk(SESSION_ID, 0, HELLO_SHA256, stream("hello"));
+
+        assertEquals("hello", new String(Files.readAllBytes(partFile()), StandardCharsets.UTF_8));
+        verify(uploadChunkRepository).upsert(eq(SESSION_ID), eq(0), eq(HELLO_SHA256), any());
+        verify(uploadWriteLeaseRepository).release(eq(SESSION_ID), eq(0), anyString());
+    }
+
+    @Test
+    void renewsTheLeaseWhileTheChunkStreamsIn() {
+        ReflectionTestUtils.setField(service, "writeLeaseMs", 0L);
+
+        service.writeChunk(SESSION_ID, 0, HELLO_SHA256, stream("hello"));
+
+        verify(uploadWriteLeaseRepository, atLeast(2)).renew(eq(SESSION_ID), eq(0), anyString(), any(), any());
+    }
+
+    @Test
+    void stopsAWriteWhoseLeaseWasLost() {
+        ReflectionTestUtils.setField(service, "writeLeaseMs", 0L);
+        when(uploadWriteLeaseRepository.renew(eq(SESSION_ID), anyInt(), anyString(), any(), any())).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> service.writeChunk(SESSION_ID, 0, HELLO_SHA256, stream("hello")));
+
+        verify(uploadChunkRepository, never()).upsert(anyLong(), anyInt(), anyString(), any());
+        verify(uploadWriteLeaseRepository).release(eq(SESSION_ID), eq(0), anyString());
+    }
+
+    @Test
+    void rejectsAChunkAnotherWriterHoldsTheLeaseOn() {
+        when(uploadWriteLeaseRepository.acquire(eq(SESSION_ID), anyInt(), anyString(), any(), any())).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> service.writeChunk(SESSION_ID, 0, HELLO_SHA256, stream("hello")));
+
+        verify(storageService, never()).writeChunk(any(), anyLong(), anyLong(), any());
+        verify(uploadWriteLeaseRepository, never()).release(anyLong(), anyInt(), anyString());
+    }
+
+    @Test
+    void rejectsChunksOnceTheCommitStarted() {
+        uploadSession.setStatus(UploadSessionStatus.COMMITTING);
+
+        assertThrows(IllegalStateException.class, () -> service.writeChunk(SESSION_ID, 0, HELLO_SHA256, stream("hello")));
+
+        verify(uploadWriteLeaseRepository, never()).acquire(anyLong(), anyInt(), anyString(), any(), any());
+    }
+
+    @Test
+    void checksumMismatchReleasesTheLease() {
+        assertThrows(IllegalArgumentException.class, () -> service.writeChunk(SESSION_ID, 0, "0000", stream("hello")));
+
+        verify(uploadChunkRepository, never()).upsert(anyLong(), anyInt(), anyString(), any());
+        verify(uploadWriteLeaseRepository).release(eq(SESSION_ID), eq(0), anyString());
+    }
+
+    @Test
+    void rejectsSessionsOfAnotherNode() {
+        uploadSession.setNodeId("node-b");
+
+        assertThrows(IllegalStateException.class, () -> service.writeChunk(SESSION_ID, 0, HELLO_SHA256, stream("hello")));
+        assertThrows(IllegalStateException.class, () -> service.commit(SESSION_ID));
+
+        verify(uploadWriteLeaseRepository, never()).acquire(anyLong(), anyInt(), anyString(), any(), any());
+        verify(uploadSessionRepository, never()).updateStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void commitWaitsForLiveWrites() throws IOException {
+        receiveAllChunks();
+        when(uploadWriteLeaseRepository.countLive(eq(SESSION_ID), any())).thenReturn(1L, 1L, 0L);
+        when(fileService.storeStaged(any(), anyString(), any())).thenReturn(new FileDTO());
+
+        service.commit(SESSION_ID);
+
+        verify(uploadWriteLeaseRepository, times(3)).countLive(eq(SESSION_ID), any());
+        verify(fileService).storeStaged(any(), eq("hello.txt"), eq("text/plain"));
+    }
+
+    @Test
+    void commitGivesUpOnWritesThatDoNotFinish() throws IOException {
+        receiveAllChunks();
+        ReflectionTestUtils.setField(service, "writerWaitMs", 100L);
+        when(uploadWriteLeaseRepository.countLive(eq(SESSION_ID), any())).thenReturn(1L);
+
+        assertThrows(IllegalStateException.class, () -> service.commit(SESSION_ID));
+
+        verify(uploadSessionRepository).updateStatus(SESSION_ID, UploadSessionStatus.COMMITTING, UploadSessionStatus.OPEN);
+        verify(fileService, never()).storeStaged(any(), anyString(), any());
+    }
+
+    @Test
+    void committedSessionIsRemoved() throws IOException {
+        receiveAllChunks();
+        FileDTO fileDTO = new FileDTO();
+        when(fileService.storeStaged(any(), anyString(), any())).thenReturn(fileDTO);
+
+        assertSame(fileDTO, service.commit(SESSION_ID));
+
+        verify(uploadSessionRepository).updateContentHash(SESSION_ID, HELLO_SHA256);
+        verify(uploadWriteLeaseRepository).deleteBySessionId(SESSION_ID);
+        verify(uploadChunkRepository).deleteBySessionId(SESSION_ID);
+        verify(uploadSessionRepository).deleteById(SESSION_ID);
+        assertFalse(Files.exists(partFile()));
+    }
+
+    @Test
+    void failedCommitReopensTheSessionAndKeepsThePartFile() throws IOException {
+        receiveAllChunks();
+        when(fileService.storeStaged(any(), anyString(), any())).thenThrow(new RuntimeException("database unavailable"));
+
+        assertThrows(RuntimeException.class, () -> service.commit(SESSION_ID));
+
+        verify(uploadSessionRepository).updateStatus(SESSION_ID, UploadSessionStatus.COMMITTING, UploadSessionStatus.OPEN);
+        verify(uploadSessionRepository, never()).deleteById(anyLong());
+        assertEquals("hello", new String(Files.readAllBytes(partFile()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void retriedCommitUsesTheContentAnEarlierCommitStored() throws IOException {
+        receiveAllChunks();
+        storageService.commit(storageService.stage(partFile()), "text/plain");
+        assertFalse(Files.exists(partFile()));
+        uploadSession.setContentHash(HELLO_SHA256);
+        when(fileService.storeStaged(any(), anyString(), any())).thenReturn(new FileDTO());
+
+        service.commit(SESSION_ID);
+
+        verify(fileService).storeStaged(argThat(staged -> HELLO_SHA256.equals(staged.getContentHash()) && staged.getSize() == 5 && !staged.isOwned()), eq("hello.txt"), eq("text/plain"));
+        verify(uploadSessionRepository).deleteById(SESSION_ID);
+    }
+
+    @Test
+    void commitWithoutTheContentEndsTheSession() throws IOException {
+        receiveAllChunks();
+        Files.delete(partFile());
+        uploadSession.setContentHash(HELLO_SHA256);
+
+        assertThrows(IllegalStateException.class, () -> service.commit(SESSION_ID));
+
+        verify(fileService, never()).storeStaged(any(), anyString(), any());
+        verify(uploadSessionRepository).deleteById(SESSION_ID);
+    }
+
+    @Test
+    void sweepsOnlyTheIdleSessionsOfThisNode() {
+        when(uploadSessionRepository.findIdleSince(eq(NODE_ID), any(), any())).thenReturn(Arrays.asList(uploadSession));
+
+        service.sweepIdleSessions();
+
+        verify(uploadSessionRepository).findIdleSince(eq(NODE_ID), any(), any());
+        verify(uploadSessionRepository).deleteById(SESSION_ID);
+        assertFalse(Files.exists(partFile()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.i2s.worfklow_api_final.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EntityStreamerTest {
+    private EntityManager entityManager;
+    private EntityStreamer entityStreamer;
+
+    @BeforeEach
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        entityStreamer = new EntityStreamer(entityManager);
+    }
+
+    @Test
+    void mapsInChunksAndClearsThePersistenceContextAfterEach() {
+        List<Integer> chunkSizes = new ArrayList<>();
+        List<String> written = new ArrayList<>();
+
+        entityStreamer.stream(LongStream.rangeClosed(1, 1201).boxed(), chunk -> {
+            chunkSizes.add(chunk.size());
+            return chunk.stream().map(id -> "dto-" + id).collect(Collectors.toList());
+        }, written::add);
+
+        assertEquals(3, chunkSizes.size());
+        assertEquals(500, chunkSizes.get(0));
+        assertEquals(500, chunkSizes.get(1));
+        assertEquals(201, chunkSizes.get(2));
+        assertEquals(1201, written.size());
+        assertEquals("dto-1", written.get(0));
+        assertEquals("dto-1201", written.get(1200));
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    void endsWithAFullChunk() {
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        entityStreamer.stream(LongStream.rangeClosed(1, 500).boxed(), chunk -> {
+            chunkSizes.add(chunk.size());
+            return chunk;
+        }, id -> { });
+
+        assertEquals(1, chunkSizes.size());
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void writesNothingForAnEmptyResult() {
+        List<Object> written = new ArrayList<>();
+
+        entityStreamer.stream(Stream.empty(), chunk -> {
+            fail("mapper called for an empty result");
+            return chunk;
+        }, written::add);
+
+        assertTrue(written.isEmpty());
+        verifyNoInteractions(entityManager);
+    }
+}
@@ -0,0 +1,200 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.FileDTO;
+import com.i2s.worfklow_api_final.model.File;
+import com.i2s.worfklow_api_final.model.StoredBlob;
+import com.i2s.worfklow_api_final.repository.FileRepository;
+import com.i2s.worfklow_api_final.repository.StoredBlobRepository;
+import com.i2s.worfklow_api_final.storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FileServiceTest {
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path root;
+
+    private FileRepository fileRepository;
+    private StoredBlobRepository storedBlobRepository;
+    private StorageService storageService;
+    private ImageDerivativeService imageDerivativeService;
+    private RecordingTransactionManager transactionManager;
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        fileRepository = mock(FileRepository.class);
+        storedBlobRepository = mock(StoredBlobRepository.class);
+        imageDerivativeService = mock(ImageDerivativeService.class);
+        storageService = spy(new StorageService(new LocalBlobStore(root)));
+        ReflectionTestUtils.setField(storageService, "fileStorageLocation", root.toString());
+        storageService.init();
+        transactionManager = new RecordingTransactionManager();
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        fileService = new FileService(fileRepository, storedBlobRepository, storageService, mock(EntityStreamer.class), imageDerivativeService, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(fileService, "MAX_FILE_SIZE", 1024L);
+        ReflectionTestUtils.setField(fileService, "ACCEPTED_EXTENSIONS", new String[]{"txt"});
+    }
+
+    private FileDTO upload() {
+        return fileService.storeFile(new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)), "hello.txt", "text/plain");
+    }
+
+    private File storedFile() {
+        File file = new File();
+        file.setId(1);
+        file.setFileName("hello.txt");
+        file.setFilePath(storageService.getBlobKey(HELLO_SHA256));
+        file.setStorageKey(storageService.getBlobKey(HELLO_SHA256));
+        file.setContentHash(HELLO_SHA256);
+        when(fileRepository.findById(1L)).thenReturn(Optional.of(file));
+        return file;
+    }
+
+    private static StoredBlob storedBlob(int refCount) {
+        StoredBlob storedBlob = new StoredBlob();
+        storedBlob.setContentHash(HELLO_SHA256);
+        storedBlob.setRefCount(refCount);
+        return storedBlob;
+    }
+
+    @Test
+    void putsTheBlobBeforeTakingTheReference() throws IOException {
+        when(storedBlobRepository.acquire(anyString(), anyLong())).thenAnswer(invocation -> {
+            transactionManager.events.add("acquire");
+            return 1;
+        });
+        doAnswer(invocation -> {
+            transactionManager.events.add("put");
+            return invocation.callRealMethod();
+        }).when(storageService).commit(any(), any());
+
+        FileDTO fileDTO = upload();
+
+        assertEquals(HELLO_SHA256, fileDTO.getContentHash());
+        assertTrue(storageService.blobExists(HELLO_SHA256));
+        assertEquals("put", transactionManager.events.get(0));
+        assertEquals("begin", transactionManager.events.get(1));
+        assertEquals("acquire", transactionManager.events.get(2));
+        assertEquals(0, countFiles(root.resolve("tmp")));
+    }
+
+    @Test
+    void putsTheBlobAgainWhenADeleteRemovedItBeforeTheReference() throws IOException {
+        upload();
+        Path blob = root.resolve(storageService.getBlobKey(HELLO_SHA256));
+        // The last earlier reference is deleted between the put and the reference of the second upload
+        when(storedBlobRepository.acquire(anyString(), anyLong())).thenAnswer(invocation -> {
+            Files.delete(blob);
+            return 1;
+        });
+
+        upload();
+
+        assertEquals("hello", new String(Files.readAllBytes(blob), StandardCharsets.UTF_8));
+        assertEquals(0, countFiles(root.resolve("tmp")));
+    }
+
+    @Test
+    void deletesTheContentOnlyAfterTheCommit() {
+        File file = storedFile();
+        upload();
+        transactionManager.events.clear();
+        when(storedBlobRepository.findByIdForUpdate(HELLO_SHA256)).thenReturn(Optional.of(storedBlob(0)));
+        doAnswer(invocation -> {
+            assertTrue(transactionManager.events.contains("commit"));
+            return invocation.callRealMethod();
+        }).when(storageService).deleteFile(any());
+
+        fileService.deleteFile(file.getId());
+
+        verify(storedBlobRepository).release(HELLO_SHA256);
+        verify(storedBlobRepository).deleteIfUnreferenced(HELLO_SHA256);
+        verify(imageDerivativeService).deleteDerivatives(any());
+        assertFalse(storageService.blobExists(HELLO_SHA256));
+    }
+
+    @Test
+    void keepsContentThatIsStillLinkedToTasks() {
+        File file = storedFile();
+        upload();
+        transactionManager.events.clear();
+        doThrow(new DataIntegrityViolationException("task_file")).when(fileRepository).flush();
+
+        assertThrows(DataIntegrityViolationException.class, () -> fileService.deleteFile(file.getId()));
+
+        verify(storedBlobRepository, never()).release(anyString());
+        verify(storageService, never()).deleteFile(any());
+        assertTrue(transactionManager.events.contains("rollback"));
+        assertTrue(storageService.blobExists(HELLO_SHA256));
+    }
+
+    @Test
+    void keepsContentAnUploadReferencedAfterTheRelease() {
+        File file = storedFile();
+        upload();
+        when(storedBlobRepository.findByIdForUpdate(HELLO_SHA256)).thenReturn(Optional.of(storedBlob(1)));
+
+        fileService.deleteFile(file.getId());
+
+        verify(storageService, never()).deleteFile(any());
+        verify(storedBlobRepository, never()).deleteIfUnreferenced(anyString());
+        assertTrue(storageService.blobExists(HELLO_SHA256));
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    // Runs transaction synchronizations like a real manager and records the transaction boundaries
+    private static class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            events.add("begin");
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            events.add("commit");
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            events.add("rollback");
+        }
+    }
+}
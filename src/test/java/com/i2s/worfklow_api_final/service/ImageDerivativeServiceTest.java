@@ -0,0 +1,122 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.FileDTO;
+import com.i2s.worfklow_api_final.enums.ImageVariant;
+import com.i2s.worfklow_api_final.storage.LocalBlobStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path root;
+
+    // Renders on the calling thread, so a request returns after its render attempt
+    private ImageDerivativeService service(StorageService storageService) {
+        ReflectionTestUtils.setField(storageService, "fileStorageLocation", root.toString());
+        storageService.init();
+        ImageDerivativeService service = new ImageDerivativeService(storageService, Runnable::run);
+        ReflectionTestUtils.setField(service, "maxCacheBytes", 1024L * 1024);
+        ReflectionTestUtils.setField(service, "jpegQuality", 0.85f);
+        service.init();
+        return service;
+    }
+
+    private FileDTO file(String contentHash, byte[] content) throws IOException {
+        FileDTO file = new FileDTO();
+        file.setId(1);
+        file.setContentType("image/heic");
+        file.setContentHash(contentHash);
+        file.setFilePath(Files.write(root.resolve(contentHash), content).toString());
+        return file;
+    }
+
+    @Test
+    void stopsReadingContentWithoutAnImageReader() throws IOException {
+        StorageService storageService = spy(new StorageService(new LocalBlobStore(root)));
+        ImageDerivativeService service = service(storageService);
+        FileDTO file = file("abcd1234", "not an image".getBytes());
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(service.getDerivative(file, ImageVariant.THUMBNAIL).isPresent());
+            service.generateAsync(file);
+        }
+
+        verify(storageService, times(1)).getLocalPath(any());
+    }
+
+    @Test
+    void rendersDecodableContent() throws IOException {
+        ImageDerivativeService service = service(new StorageService(new LocalBlobStore(root)));
+        Path png = root.resolve("red.png");
+        ImageIO.write(image(800, 600, BufferedImage.TYPE_INT_RGB), "png", png.toFile());
+        FileDTO file = file("ef567890", Files.readAllBytes(png));
+
+        assertFalse(service.getDerivative(file, ImageVariant.THUMBNAIL).isPresent());
+
+        ImageDerivativeService.Derivative derivative = service.getDerivative(file, ImageVariant.THUMBNAIL).get();
+        assertSize(ImageIO.read(derivative.getPath().toFile()), 200, 150);
+    }
+
+    @Test
+    void scalesTheLongestSideToTheTarget() {
+        assertSize(ImageDerivativeService.scale(image(4000, 3000, BufferedImage.TYPE_INT_RGB), 200), 200, 150);
+        assertSize(ImageDerivativeService.scale(image(300, 1200, BufferedImage.TYPE_INT_RGB), 200), 50, 200);
+    }
+
+    @Test
+    void reachesTheTargetFromSizesThatDoNotHalveEvenly() {
+        assertSize(ImageDerivativeService.scale(image(1023, 1023, BufferedImage.TYPE_INT_RGB), 200), 200, 200);
+        assertSize(ImageDerivativeService.scale(image(2049, 777, BufferedImage.TYPE_INT_RGB), 1024), 1024, 388);
+    }
+
+    @Test
+    void neverUpscales() {
+        assertSize(ImageDerivativeService.scale(image(120, 80, BufferedImage.TYPE_INT_RGB), 200), 120, 80);
+    }
+
+    @Test
+    void keepsAtLeastOnePixelOnTheShortSide() {
+        assertSize(ImageDerivativeService.scale(image(5000, 10, BufferedImage.TYPE_INT_RGB), 200), 200, 1);
+    }
+
+    @Test
+    void keepsTheAlphaChannel() {
+        assertEquals(BufferedImage.TYPE_INT_ARGB, ImageDerivativeService.scale(image(800, 800, BufferedImage.TYPE_INT_ARGB), 200).getType());
+        assertEquals(BufferedImage.TYPE_INT_RGB, ImageDerivativeService.scale(image(800, 800, BufferedImage.TYPE_3BYTE_BGR), 200).getType());
+    }
+
+    @Test
+    void keepsTheColours() {
+        BufferedImage scaled = ImageDerivativeService.scale(image(1600, 1600, BufferedImage.TYPE_INT_RGB), 200);
+
+        assertEquals(Color.RED.getRGB(), scaled.getRGB(100, 100));
+    }
+
+    private static void assertSize(BufferedImage image, int width, int height) {
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+    }
+
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,155 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
+import com.i2s.worfklow_api_final.event.MethodExecutionFinishedEvent;
+import com.i2s.worfklow_api_final.repository.MethodExecutionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class MethodExecutionEngineTest {
+    private ActionRegistry actionRegistry;
+    private MethodExecutionRepository methodExecutionRepository;
+    private PlatformTransactionManager transactionManager;
+    private ApplicationEventPublisher eventPublisher;
+    private final List<Runnable> submitted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        actionRegistry = mock(ActionRegistry.class);
+        methodExecutionRepository = mock(MethodExecutionRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        eventPublisher = mock(ApplicationEventPublisher.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void runsTheActionAndCommitsSuccess() throws Exception {
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("text", "hello");
+
+        engine(new SyncTaskExecutor()).submitAfterCommit(Collections.singletonList(invocation(7, arguments)));
+
+        verify(actionRegistry).invoke(3, arguments);
+        verify(methodExecutionRepository).updateStatus(7, ExecutionStatus.SUCCESS);
+        assertFinished(7, ExecutionStatus.SUCCESS);
+        verify(transactionManager).commit(any());
+        assertNull(ActionExecutionContext.current());
+    }
+
+    @Test
+    void failsTheExecutionWhenTheActionThrows() throws Exception {
+        when(actionRegistry.invoke(anyLong(), any())).thenThrow(new IllegalArgumentException("Missing parameter"));
+
+        engine(new SyncTaskExecutor()).submitAfterCommit(Collections.singletonList(invocation(7, new HashMap<>())));
+
+        verify(methodExecutionRepository, never()).updateStatus(7, ExecutionStatus.SUCCESS);
+        verify(methodExecutionRepository).updateStatus(7, ExecutionStatus.FAILURE);
+        verify(transactionManager).rollback(any());
+        assertFinished(7, ExecutionStatus.FAILURE);
+        assertNull(ActionExecutionContext.current());
+    }
+
+    @Test
+    void leavesDeferredExecutionsToTheOutbox() throws Exception {
+        when(actionRegistry.invoke(anyLong(), any())).thenAnswer(invocation -> {
+            ActionExecutionContext.current().defer();
+            return null;
+        });
+
+        engine(new SyncTaskExecutor()).submitAfterCommit(Collections.singletonList(invocation(7, new HashMap<>())));
+
+        verify(methodExecutionRepository, never()).updateStatus(anyLong(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void failsTheExecutionWhenThePoolIsFull() {
+        TaskExecutor full = task -> {
+            throw new TaskRejectedException("full");
+        };
+
+        engine(full).submitAfterCommit(Collections.singletonList(invocation(7, new HashMap<>())));
+
+        verify(methodExecutionRepository).updateStatus(7, ExecutionStatus.FAILURE);
+        assertFinished(7, ExecutionStatus.FAILURE);
+    }
+
+    @Test
+    void submitsOnlyAfterTheCallerCommits() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        MethodExecutionEngine engine = engine(submitted::add);
+
+        engine.submitAfterCommit(Collections.singletonList(invocation(7, new HashMap<>())));
+
+        assertTrue(submitted.isEmpty());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+
+        synchronizations.get(0).afterCommit();
+
+        assertEquals(1, submitted.size());
+        verify(actionRegistry, never()).invoke(anyLong(), any());
+        submitted.get(0).run();
+        verify(actionRegistry).invoke(3, new HashMap<>());
+        assertFinished(7, ExecutionStatus.SUCCESS);
+    }
+
+    @Test
+    void runsEachInvocationOnItsOwnWorker() {
+        MethodExecutionEngine engine = engine(submitted::add);
+
+        engine.submitAfterCommit(Arrays.asList(invocation(7, new HashMap<>()), invocation(8, new HashMap<>())));
+
+        assertEquals(2, submitted.size());
+        submitted.forEach(Runnable::run);
+        verify(methodExecutionRepository).updateStatus(7, ExecutionStatus.SUCCESS);
+        verify(methodExecutionRepository).updateStatus(8, ExecutionStatus.SUCCESS);
+    }
+
+    private MethodExecutionEngine engine(TaskExecutor executor) {
+        return new MethodExecutionEngine(actionRegistry, methodExecutionRepository, new TransactionTemplate(transactionManager), eventPublisher, executor);
+    }
+
+    private static ActionInvocation invocation(long methodExecutionId, Map<String, Object> arguments) {
+        return new ActionInvocation(methodExecutionId, 42, 3, "sendSms", arguments);
+    }
+
+    private void assertFinished(long methodExecutionId, ExecutionStatus status) {
+        ArgumentCaptor<MethodExecutionFinishedEvent> event = ArgumentCaptor.forClass(MethodExecutionFinishedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(42, event.getValue().getTaskId());
+        assertEquals(methodExecutionId, event.getValue().getMethodExecutionId());
+        assertEquals(status, event.getValue().getStatus());
+    }
+}
@@ -0,0 +1,239 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
+import com.i2s.worfklow_api_final.enums.OutboxChannel;
+import com.i2s.worfklow_api_final.enums.OutboxStatus;
+import com.i2s.worfklow_api_final.event.MethodExecutionFinishedEvent;
+import com.i2s.worfklow_api_final.model.OutboxMessage;
+import com.i2s.worfklow_api_final.repository.MethodExecutionRepository;
+import com.i2s.worfklow_api_final.repository.OutboxMessageRepository;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.vonage.client.VonageClient;
+import com.vonage.client.sms.MessageStatus;
+import com.vonage.client.sms.SmsClient;
+import com.vonage.client.sms.SmsSubmissionResponse;
+import com.vonage.client.sms.SmsSubmissionResponseMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Emails go to an in-process SMTP server, SMS to a mocked Vonage client; the repositories are mocks, so the
+// claimed rows are the same objects the dispatcher writes back
+class OutboxDispatcherTest {
+    private static final long BASE_DELAY_MS = 2000;
+    private static final long LEASE_SECONDS = 300;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private GreenMail greenMail;
+    private OutboxMessageRepository outboxMessageRepository;
+    private MethodExecutionRepository methodExecutionRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private SmsClient smsClient;
+    private JavaMailSenderImpl javaMailSender;
+    private OutboxDispatcher outboxDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+        greenMail.start();
+        javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("localhost");
+        javaMailSender.setPort(greenMail.getSmtp().getPort());
+
+        outboxMessageRepository = mock(OutboxMessageRepository.class);
+        methodExecutionRepository = mock(MethodExecutionRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        VonageClient vonageClient = mock(VonageClient.class);
+        smsClient = mock(SmsClient.class);
+        when(vonageClient.getSmsClient()).thenReturn(smsClient);
+
+        outboxDispatcher = new OutboxDispatcher(outboxMessageRepository, methodExecutionRepository, new TransactionTemplate(transactionManager), eventPublisher, javaMailSender, vonageClient, Runnable::run);
+        ReflectionTestUtils.setField(outboxDispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(outboxDispatcher, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(outboxDispatcher, "baseDelayMs", BASE_DELAY_MS);
+        ReflectionTestUtils.setField(outboxDispatcher, "leaseSeconds", LEASE_SECONDS);
+        ReflectionTestUtils.setField(outboxDispatcher, "smsRatePerSecond", 1000.0);
+        outboxDispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        greenMail.stop();
+    }
+
+    @Test
+    void sendsEmailsOverSmtpAndFinishesTheExecution() throws Exception {
+        OutboxMessage first = message(1, OutboxChannel.EMAIL, 0);
+        OutboxMessage second = message(2, OutboxChannel.EMAIL, 0);
+        due(OutboxChannel.EMAIL, first, second);
+
+        outboxDispatcher.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertEquals("Subject 1", received[0].getSubject());
+        for (OutboxMessage message : new OutboxMessage[]{first, second}) {
+            assertEquals(OutboxStatus.SENT, message.getStatus());
+            assertNotNull(message.getSentAt());
+            assertNull(message.getLastError());
+            assertEquals(1, message.getAttempts());
+            verify(outboxMessageRepository).save(message);
+        }
+        verify(methodExecutionRepository).updateStatus(50L, ExecutionStatus.SUCCESS);
+        MethodExecutionFinishedEvent event = publishedEvent();
+        assertEquals(50L, event.getMethodExecutionId());
+        assertEquals(90L, event.getTaskId());
+        assertEquals(ExecutionStatus.SUCCESS, event.getStatus());
+    }
+
+    @Test
+    void retriesTheBatchWhenTheSmtpServerIsDown() {
+        greenMail.stop();
+        OutboxMessage message = message(1, OutboxChannel.EMAIL, 0);
+        due(OutboxChannel.EMAIL, message);
+        when(outboxMessageRepository.countByMethodExecutionIdAndStatus(50L, OutboxStatus.PENDING)).thenReturn(1L);
+
+        LocalDateTime before = LocalDateTime.now();
+        outboxDispatcher.dispatch();
+
+        assertEquals(OutboxStatus.PENDING, message.getStatus());
+        assertNotNull(message.getLastError());
+        assertBackoff(before, message, BASE_DELAY_MS);
+        verify(methodExecutionRepository, never()).updateStatus(anyLong(), any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void leasesTheBatchBeforeSubmitting() {
+        OutboxMessage message = message(1, OutboxChannel.SMS, 0);
+        due(OutboxChannel.SMS, message);
+        AtomicInteger attemptsWhileSending = new AtomicInteger();
+        AtomicReference<LocalDateTime> leaseWhileSending = new AtomicReference<>();
+        SmsSubmissionResponse response = response(MessageStatus.OK, null);
+        when(smsClient.submitMessage(any())).thenAnswer(invocation -> {
+            attemptsWhileSending.set(message.getAttempts());
+            leaseWhileSending.set(message.getNextAttemptAt());
+            return response;
+        });
+
+        LocalDateTime before = LocalDateTime.now();
+        outboxDispatcher.dispatch();
+
+        // Another node polling while this one sends must not find the row due
+        assertEquals(1, attemptsWhileSending.get());
+        assertFalse(leaseWhileSending.get().isBefore(before.plusSeconds(LEASE_SECONDS)));
+        assertEquals(OutboxStatus.SENT, message.getStatus());
+    }
+
+    @Test
+    void backsOffExponentiallyOnSmsFailure() {
+        OutboxMessage message = message(1, OutboxChannel.SMS, 2);
+        due(OutboxChannel.SMS, message);
+        SmsSubmissionResponse response = response(MessageStatus.THROTTLED, "Throughput exceeded");
+        when(smsClient.submitMessage(any())).thenReturn(response);
+        when(outboxMessageRepository.countByMethodExecutionIdAndStatus(50L, OutboxStatus.PENDING)).thenReturn(1L);
+
+        LocalDateTime before = LocalDateTime.now();
+        outboxDispatcher.dispatch();
+
+        assertEquals(OutboxStatus.PENDING, message.getStatus());
+        assertEquals(3, message.getAttempts());
+        assertTrue(message.getLastError().contains("Throughput exceeded"));
+        // third attempt: base delay doubled twice
+        assertBackoff(before, message, BASE_DELAY_MS * 4);
+        verify(outboxMessageRepository).save(message);
+        verify(methodExecutionRepository, never()).updateStatus(anyLong(), any());
+    }
+
+    @Test
+    void failsTheExecutionAfterTheLastAttempt() {
+        OutboxMessage message = message(1, OutboxChannel.SMS, MAX_ATTEMPTS - 1);
+        due(OutboxChannel.SMS, message);
+        when(smsClient.submitMessage(any())).thenThrow(new RuntimeException("Connection reset"));
+        when(outboxMessageRepository.countByMethodExecutionIdAndStatus(50L, OutboxStatus.FAILED)).thenReturn(1L);
+
+        outboxDispatcher.dispatch();
+
+        assertEquals(OutboxStatus.FAILED, message.getStatus());
+        assertEquals("Connection reset", message.getLastError());
+        verify(methodExecutionRepository).updateStatus(50L, ExecutionStatus.FAILURE);
+        assertEquals(ExecutionStatus.FAILURE, publishedEvent().getStatus());
+    }
+
+    @Test
+    void doesNothingWithoutDueMessages() {
+        outboxDispatcher.dispatch();
+
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        verifyNoInteractions(smsClient, methodExecutionRepository, eventPublisher);
+    }
+
+    private void due(OutboxChannel channel, OutboxMessage... messages) {
+        List<OutboxMessage> batch = new ArrayList<>();
+        Collections.addAll(batch, messages);
+        when(outboxMessageRepository.findDueForUpdate(eq(OutboxStatus.PENDING), eq(channel), any(), any())).thenReturn(batch);
+    }
+
+    private MethodExecutionFinishedEvent publishedEvent() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        return (MethodExecutionFinishedEvent) captor.getValue();
+    }
+
+    private static void assertBackoff(LocalDateTime before, OutboxMessage message, long expectedMs) {
+        LocalDateTime earliest = before.plus(Duration.ofMillis(expectedMs));
+        LocalDateTime latest = LocalDateTime.now().plus(Duration.ofMillis(expectedMs));
+        assertFalse(message.getNextAttemptAt().isBefore(earliest));
+        assertFalse(message.getNextAttemptAt().isAfter(latest));
+    }
+
+    private static SmsSubmissionResponse response(MessageStatus status, String errorText) {
+        SmsSubmissionResponseMessage responseMessage = mock(SmsSubmissionResponseMessage.class);
+        when(responseMessage.getStatus()).thenReturn(status);
+        when(responseMessage.getErrorText()).thenReturn(errorText);
+        SmsSubmissionResponse response = mock(SmsSubmissionResponse.class);
+        when(response.getMessages()).thenReturn(Collections.singletonList(responseMessage));
+        return response;
+    }
+
+    private static OutboxMessage message(long id, OutboxChannel channel, int attempts) {
+        OutboxMessage message = new OutboxMessage();
+        message.setId(id);
+        message.setChannel(channel);
+        message.setMethodExecutionId(50L);
+        message.setTaskId(90L);
+        message.setSender(channel == OutboxChannel.EMAIL ? "workflow@example.com" : "Workflow");
+        message.setRecipient(channel == OutboxChannel.EMAIL ? "user" + id + "@example.com" : "35191000000" + id);
+        message.setSubject("Subject " + id);
+        message.setContent("Content " + id);
+        message.setAttempts(attempts);
+        message.setNextAttemptAt(LocalDateTime.now());
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+}
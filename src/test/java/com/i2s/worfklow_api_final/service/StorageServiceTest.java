@@ -0,0 +1,189 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageServiceTest {
+
+    @TempDir
+    Path root;
+
+    private StorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        storageService = new StorageService(new LocalBlobStore(root));
+        ReflectionTestUtils.setField(storageService, "fileStorageLocation", root.toString());
+        storageService.init();
+    }
+
+    @Test
+    void stagesContentWithItsHashAndSize() throws IOException {
+        StorageService.StagedBlob staged = storageService.stage(stream("hello"), 1024);
+
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824", staged.getContentHash());
+        assertEquals(5, staged.getSize());
+        assertEquals("hello", new String(Files.readAllBytes(staged.getTempFile()), StandardCharsets.UTF_8));
+        assertTrue(staged.getTempFile().startsWith(root.resolve("tmp")));
+    }
+
+    @Test
+    void stagesAnEmptyStream() {
+        StorageService.StagedBlob staged = storageService.stage(new ByteArrayInputStream(new byte[0]), 1024);
+
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", staged.getContentHash());
+        assertEquals(0, staged.getSize());
+    }
+
+    @Test
+    void stagesContentLargerThanTheCopyBuffer() throws Exception {
+        byte[] content = randomBytes(200 * 1024 + 17);
+
+        StorageService.StagedBlob staged = storageService.stage(new ByteArrayInputStream(content), content.length);
+
+        assertEquals(sha256(content), staged.getContentHash());
+        assertEquals(content.length, staged.getSize());
+        assertArrayEquals(content, Files.readAllBytes(staged.getTempFile()));
+    }
+
+    @Test
+    void readsFileStreamsThroughTheirChannel() throws Exception {
+        byte[] content = randomBytes(100 * 1024);
+        Path source = Files.write(root.resolve("spooled"), content);
+
+        StorageService.StagedBlob staged;
+        try (InputStream in = new FileInputStream(source.toFile())) {
+            staged = storageService.stage(in, content.length);
+        }
+
+        assertEquals(sha256(content), staged.getContentHash());
+        assertArrayEquals(content, Files.readAllBytes(staged.getTempFile()));
+    }
+
+    @Test
+    void rejectsContentOverTheLimitAndRemovesTheTempFile() throws IOException {
+        byte[] content = randomBytes(1025);
+
+        assertThrows(IllegalArgumentException.class, () -> storageService.stage(new ByteArrayInputStream(content), 1024));
+        assertEquals(0, countFiles(root.resolve("tmp")));
+    }
+
+    @Test
+    void stagesAPartFileInPlace() throws Exception {
+        byte[] content = randomBytes(150 * 1024);
+        Path partFile = storageService.createPartFile(content.length);
+        Files.write(partFile, content);
+
+        StorageService.StagedBlob staged = storageService.stage(partFile);
+
+        assertEquals(partFile, staged.getTempFile());
+        assertEquals(sha256(content), staged.getContentHash());
+        assertEquals(content.length, staged.getSize());
+    }
+
+    @Test
+    void writesAChunkAtItsOffset() throws Exception {
+        Path partFile = storageService.createPartFile(10);
+
+        String checksum = storageService.writeChunk(partFile, 4, 3, stream("abc"));
+
+        assertEquals(sha256("abc".getBytes(StandardCharsets.UTF_8)), checksum);
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 'a', 'b', 'c', 0, 0, 0}, Files.readAllBytes(partFile));
+    }
+
+    @Test
+    void assemblesChunksWrittenOutOfOrder() throws Exception {
+        byte[] content = randomBytes(300 * 1024 + 5);
+        int chunkSize = 100 * 1024;
+        Path partFile = storageService.createPartFile(content.length);
+
+        for (int index : new int[]{3, 1, 0, 2}) {
+            int position = index * chunkSize;
+            int length = Math.min(chunkSize, content.length - position);
+            byte[] chunk = Arrays.copyOfRange(content, position, position + length);
+            assertEquals(sha256(chunk), storageService.writeChunk(partFile, position, length, new ByteArrayInputStream(chunk)));
+        }
+
+        assertArrayEquals(content, Files.readAllBytes(partFile));
+        assertEquals(sha256(content), storageService.stage(partFile).getContentHash());
+    }
+
+    @Test
+    void rejectsChunksOfTheWrongLength() throws IOException {
+        Path partFile = storageService.createPartFile(10);
+
+        assertThrows(IllegalArgumentException.class, () -> storageService.writeChunk(partFile, 0, 3, stream("abcd")));
+        assertThrows(IllegalArgumentException.class, () -> storageService.writeChunk(partFile, 0, 3, stream("ab")));
+        assertEquals(10, Files.size(partFile));
+    }
+
+    @Test
+    void commitStoresIdenticalContentOnce() throws IOException {
+        StorageService.StagedBlob first = storageService.stage(stream("same"), 1024);
+        StorageService.StagedBlob second = storageService.stage(stream("same"), 1024);
+
+        String key = storageService.commit(first, "text/plain");
+
+        assertEquals(key, storageService.commit(second, "text/plain"));
+        storageService.discard(second);
+        assertEquals(storageService.getBlobKey(first.getContentHash()), key);
+        assertEquals("same", new String(Files.readAllBytes(root.resolve(key)), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(first.getTempFile()));
+        assertFalse(Files.exists(second.getTempFile()));
+    }
+
+    @Test
+    void leavesPartFilesToTheirSessionUnlessStored() throws IOException {
+        storageService.commit(storageService.stage(stream("same"), 1024), "text/plain");
+        Path partFile = storageService.createPartFile(4);
+        Files.write(partFile, "same".getBytes(StandardCharsets.UTF_8));
+        StorageService.StagedBlob staged = storageService.stage(partFile);
+
+        storageService.commit(staged, "text/plain");
+        storageService.discard(staged);
+
+        assertTrue(Files.exists(partFile));
+        assertTrue(storageService.blobExists(staged.getContentHash()));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.TaskDTO;
+import com.i2s.worfklow_api_final.enums.ExecutionStatus;
+import com.i2s.worfklow_api_final.model.Task;
+import com.i2s.worfklow_api_final.repository.FeedbackRepository;
+import com.i2s.worfklow_api_final.repository.MethodExecutionRepository;
+import com.i2s.worfklow_api_final.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+// The number of queries must depend on the number of id batches only, never on the number of tasks
+class TaskAssemblerTest {
+    private TaskRepository taskRepository;
+    private MethodExecutionRepository methodExecutionRepository;
+    private FeedbackRepository feedbackRepository;
+    private TaskAssembler taskAssembler;
+
+    @BeforeEach
+    void setUp() {
+        taskRepository = mock(TaskRepository.class);
+        methodExecutionRepository = mock(MethodExecutionRepository.class);
+        feedbackRepository = mock(FeedbackRepository.class);
+        taskAssembler = new TaskAssembler(taskRepository, methodExecutionRepository, feedbackRepository);
+    }
+
+    @Test
+    void runsOneQueryPerAssociationForOneBatch() {
+        List<Task> tasks = tasks(500);
+
+        assertEquals(500, taskAssembler.toDTOs(tasks).size());
+
+        verifyQueries(1);
+        verifyNoLazyLoads(tasks);
+    }
+
+    @Test
+    void queryCountGrowsWithBatchesNotWithTasks() {
+        List<Task> tasks = tasks(2500);
+
+        assertEquals(2500, taskAssembler.toDTOs(tasks).size());
+
+        verifyQueries(3);
+        verifyNoLazyLoads(tasks);
+    }
+
+    @Test
+    void runsNoQueryForNoTasks() {
+        assertTrue(taskAssembler.toDTOs(new ArrayList<>()).isEmpty());
+
+        verifyNoInteractions(taskRepository, methodExecutionRepository, feedbackRepository);
+    }
+
+    @Test
+    void fillsAssociationsFromTheBatchQueries() {
+        List<Task> tasks = tasks(2);
+        when(taskRepository.findFileIdsByTaskIds(anyCollection())).thenReturn(Arrays.asList(new Object[]{1L, 10L}, new Object[]{1L, 11L}));
+        when(taskRepository.findParentLinksByTaskIds(anyCollection())).thenReturn(Collections.singletonList(new Object[]{2L, 1L}));
+        when(methodExecutionRepository.findSummariesByTaskIds(anyCollection())).thenReturn(Collections.singletonList(new Object[]{7L, 2L, 3L, ExecutionStatus.SUCCESS}));
+
+        List<TaskDTO> taskDTOs = taskAssembler.toDTOs(tasks);
+
+        assertEquals(Arrays.asList(10L, 11L), taskDTOs.get(0).getFileIds());
+        assertEquals(Collections.singletonList(2L), taskDTOs.get(0).getChildTaskIds());
+        assertTrue(taskDTOs.get(1).getFileIds().isEmpty());
+        assertEquals(Collections.singletonList(1L), taskDTOs.get(1).getParentTaskIds());
+        assertEquals(1, taskDTOs.get(1).getMethodExecutions().size());
+        assertEquals(3L, taskDTOs.get(1).getMethodExecutions().get(0).getMethodId());
+        verifyQueries(1);
+    }
+
+    private void verifyQueries(int times) {
+        verify(taskRepository, times(times)).findFileIdsByTaskIds(anyCollection());
+        verify(taskRepository, times(times)).findMethodIdsByTaskIds(anyCollection());
+        verify(taskRepository, times(times)).findJobIdsByTaskIds(anyCollection());
+        verify(taskRepository, times(times)).findParentLinksByTaskIds(anyCollection());
+        verify(methodExecutionRepository, times(times)).findSummariesByTaskIds(anyCollection());
+        verify(feedbackRepository, times(times)).findSummariesByTaskIds(anyCollection());
+        verifyNoMoreInteractions(taskRepository, methodExecutionRepository, feedbackRepository);
+    }
+
+    // Touching a lazy collection of a managed task would be one more select per task
+    private static void verifyNoLazyLoads(List<Task> tasks) {
+        for (Task task : tasks) {
+            verify(task, never()).getFiles();
+            verify(task, never()).getMethods();
+            verify(task, never()).getAssignedJobs();
+            verify(task, never()).getParentTasks();
+            verify(task, never()).getChildTasks();
+            verify(task, never()).getMethodExecutions();
+            verify(task, never()).getFeedbacks();
+        }
+    }
+
+    private static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Task task = mock(Task.class);
+            when(task.getId()).thenReturn(id);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,142 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.enums.TaskStatus;
+import com.i2s.worfklow_api_final.repository.TaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TaskDagSchedulerTest {
+    private static final long PROJECT_ID = 10;
+
+    private TaskRepository taskRepository;
+    private NotificationFanoutService notificationFanoutService;
+    private TaskDagScheduler scheduler;
+
+    // Tasks 1 and 2 are the parents of task 3
+    @BeforeEach
+    void setUp() {
+        taskRepository = mock(TaskRepository.class);
+        notificationFanoutService = mock(NotificationFanoutService.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        when(taskRepository.findProjectIdByTaskId(anyLong())).thenReturn(Optional.of(PROJECT_ID));
+        when(taskRepository.findIdsAndStatusesByProjectId(PROJECT_ID)).thenReturn(Arrays.asList(
+                new Object[]{1L, TaskStatus.STARTING}, new Object[]{2L, TaskStatus.STARTING}, new Object[]{3L, TaskStatus.PENDING}));
+        when(taskRepository.findParentLinksByProjectId(PROJECT_ID)).thenReturn(Arrays.asList(new Object[]{3L, 1L}, new Object[]{3L, 2L}));
+        when(taskRepository.findIdsByIdInAndStatus(anyCollection(), eq(TaskStatus.PENDING))).thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
+        when(taskRepository.findIdsWithoutUnfinishedParents(anyCollection())).thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
+
+        scheduler = new TaskDagScheduler(taskRepository, mock(TaskStatusPublisher.class), notificationFanoutService, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(scheduler, "dagEnabled", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(scheduler);
+    }
+
+    // Runs the finishes as one transaction and detaches its synchronizations, so several can be open at once
+    private List<TransactionSynchronization> finishInTransaction(List<Long> startedIds, long... taskIds) {
+        TransactionSynchronizationManager.initSynchronization();
+        for (long taskId : taskIds) {
+            startedIds.addAll(scheduler.onTaskFinished(taskId));
+        }
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.unbindResourceIfPossible(scheduler);
+        TransactionSynchronizationManager.clearSynchronization();
+        return synchronizations;
+    }
+
+    private static void complete(List<TransactionSynchronization> synchronizations, boolean committed) {
+        if (committed) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(committed ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    @Test
+    void childStartsOnceBothParentsHaveCommitted() {
+        List<Long> startedIds = new ArrayList<>();
+        complete(finishInTransaction(startedIds, 1), true);
+        assertTrue(startedIds.isEmpty());
+
+        complete(finishInTransaction(startedIds, 2), true);
+        assertEquals(Collections.singletonList(3L), startedIds);
+        verify(taskRepository, times(1)).startPendingTasks(eq(Collections.singletonList(3L)), any());
+    }
+
+    @Test
+    void parentsFinishedInOneTransactionStartTheChild() {
+        List<Long> startedIds = new ArrayList<>();
+        complete(finishInTransaction(startedIds, 1, 2), true);
+
+        assertEquals(Collections.singletonList(3L), startedIds);
+    }
+
+    @Test
+    void uncommittedFinishIsInvisibleToOtherTransactions() {
+        List<Long> startedIds = new ArrayList<>();
+        List<TransactionSynchronization> second = finishInTransaction(startedIds, 2);
+        List<TransactionSynchronization> first = finishInTransaction(startedIds, 1);
+        complete(second, true);
+        complete(first, false);
+
+        assertTrue(startedIds.isEmpty());
+        verify(taskRepository, never()).startPendingTasks(anyCollection(), any());
+
+        // The rolled back finish left the counters alone, so task 3 still waits for task 1
+        complete(finishInTransaction(startedIds, 1), true);
+        assertEquals(Collections.singletonList(3L), startedIds);
+    }
+
+    @Test
+    void childReachedByConcurrentFinishesStartsAfterCommit() {
+        List<Long> startedIds = new ArrayList<>();
+        List<TransactionSynchronization> first = finishInTransaction(startedIds, 1);
+        List<TransactionSynchronization> second = finishInTransaction(startedIds, 2);
+        assertTrue(startedIds.isEmpty());
+
+        complete(first, true);
+        verify(taskRepository, never()).startPendingTasks(anyCollection(), any());
+        complete(second, true);
+
+        verify(taskRepository).findIdsWithoutUnfinishedParents(Collections.singletonList(3L));
+        verify(taskRepository).startPendingTasks(eq(Collections.singletonList(3L)), any());
+        verify(notificationFanoutService).notifyAssignees(anyMap());
+    }
+
+    @Test
+    void graphIsLoadedOnce() {
+        List<Long> startedIds = new ArrayList<>();
+        complete(finishInTransaction(startedIds, 1), true);
+        complete(finishInTransaction(startedIds, 2), true);
+
+        verify(taskRepository, times(1)).findIdsAndStatusesByProjectId(PROJECT_ID);
+    }
+}
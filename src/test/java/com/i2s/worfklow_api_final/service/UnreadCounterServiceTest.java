@@ -0,0 +1,99 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.NotificationDTO;
+import com.i2s.worfklow_api_final.event.NotificationsCreatedEvent;
+import com.i2s.worfklow_api_final.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UnreadCounterServiceTest {
+    private NotificationRepository notificationRepository;
+    private UnreadCounterService unreadCounterService;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository = mock(NotificationRepository.class);
+        unreadCounterService = new UnreadCounterService(notificationRepository);
+        ReflectionTestUtils.setField(unreadCounterService, "counterEnabled", true);
+    }
+
+    private static List<Object[]> counts(long... userIdsAndCounts) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < userIdsAndCounts.length; i += 2) {
+            rows.add(new Object[]{userIdsAndCounts[i], userIdsAndCounts[i + 1]});
+        }
+        return rows;
+    }
+
+    private static NotificationsCreatedEvent created(long... userIds) {
+        List<NotificationDTO> notifications = new ArrayList<>();
+        for (long userId : userIds) {
+            NotificationDTO notification = new NotificationDTO();
+            notification.setUserId(userId);
+            notifications.add(notification);
+        }
+        return new NotificationsCreatedEvent(notifications);
+    }
+
+    @Test
+    void reconcileReplacesCountersThatDrifted() {
+        when(notificationRepository.countUnreadGroupedByUserId()).thenReturn(counts(1, 3, 2, 1));
+        unreadCounterService.rebuild();
+        unreadCounterService.onNotificationsCreated(created(1, 2));
+        assertEquals(4, unreadCounterService.getUnreadCount(1));
+
+        // Another node marked user 2's notifications as read and created one for user 3
+        when(notificationRepository.countUnreadGroupedByUserId()).thenReturn(counts(1, 4, 3, 1));
+        unreadCounterService.reconcile();
+
+        assertEquals(4, unreadCounterService.getUnreadCount(1));
+        assertEquals(0, unreadCounterService.getUnreadCount(2));
+        assertEquals(1, unreadCounterService.getUnreadCount(3));
+    }
+
+    @Test
+    void writesCommittedDuringReconcileAreKept() {
+        when(notificationRepository.countUnreadGroupedByUserId()).thenAnswer(invocation -> {
+            // Committed after the snapshot was taken
+            unreadCounterService.onNotificationsCreated(created(1));
+            unreadCounterService.decrementAfterCommit(2, 1);
+            return counts(1, 2, 2, 5);
+        });
+
+        unreadCounterService.reconcile();
+
+        assertEquals(3, unreadCounterService.getUnreadCount(1));
+        assertEquals(4, unreadCounterService.getUnreadCount(2));
+    }
+
+    @Test
+    void failedReconcileKeepsTheCounters() {
+        when(notificationRepository.countUnreadGroupedByUserId()).thenReturn(counts(1, 2));
+        unreadCounterService.rebuild();
+        when(notificationRepository.countUnreadGroupedByUserId()).thenThrow(new IllegalStateException("database down"));
+
+        assertThrows(IllegalStateException.class, () -> unreadCounterService.reconcile());
+        unreadCounterService.onNotificationsCreated(created(1));
+
+        assertEquals(3, unreadCounterService.getUnreadCount(1));
+    }
+
+    @Test
+    void countsFromTheDatabaseWhenDisabled() {
+        ReflectionTestUtils.setField(unreadCounterService, "counterEnabled", false);
+        when(notificationRepository.countUnreadByUserId(1)).thenReturn(7L);
+
+        unreadCounterService.rebuild();
+        unreadCounterService.onNotificationsCreated(created(1));
+
+        assertEquals(7, unreadCounterService.getUnreadCount(1));
+        verify(notificationRepository, never()).countUnreadGroupedByUserId();
+    }
+}
@@ -0,0 +1,69 @@
+package com.i2s.worfklow_api_final.service;
+
+import com.i2s.worfklow_api_final.dto.CursorPageDTO;
+import com.i2s.worfklow_api_final.dto.UserDTO;
+import com.i2s.worfklow_api_final.model.User;
+import com.i2s.worfklow_api_final.repository.JobRepository;
+import com.i2s.worfklow_api_final.repository.RoleRepository;
+import com.i2s.worfklow_api_final.repository.UserRepository;
+import com.i2s.worfklow_api_final.security.AuthenticationCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserServiceTest {
+    private UserRepository userRepository;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userService = new UserService(userRepository, mock(JobRepository.class), mock(RoleRepository.class), mock(EntityStreamer.class), mock(AuthenticationCache.class), mock(PasswordEncoder.class));
+    }
+
+    @Test
+    void pagesOnTheIdAfterTheCursor() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(10, PageRequest.of(0, 2))).thenReturn(Arrays.asList(user(11), user(14)));
+
+        CursorPageDTO<UserDTO> page = userService.getUsersAfter(10, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(11, page.getItems().get(0).getId());
+        assertEquals(Long.valueOf(14), page.getNextCursor());
+    }
+
+    @Test
+    void hasNoCursorOnTheLastPage() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(14, PageRequest.of(0, 2))).thenReturn(Arrays.asList(user(20)));
+
+        CursorPageDTO<UserDTO> page = userService.getUsersAfter(14, 2);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void returnsAnEmptyPagePastTheEnd() {
+        List<User> none = new ArrayList<>();
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(20, PageRequest.of(0, 2))).thenReturn(none);
+
+        CursorPageDTO<UserDTO> page = userService.getUsersAfter(20, 2);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
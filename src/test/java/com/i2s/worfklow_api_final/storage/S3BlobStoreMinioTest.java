@@ -0,0 +1,129 @@
+package com.i2s.worfklow_api_final.storage;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.StreamUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// S3BlobStore against a real MinIO, so the signing, multipart upload and response handling are checked by a server
+@Tag("integration")
+@Testcontainers
+class S3BlobStoreMinioTest {
+
+    private static final String ACCESS_KEY = "minio-test";
+    private static final String SECRET_KEY = "minio-test-secret";
+
+    @Container
+    static final GenericContainer<?> minio = new GenericContainer<>(DockerImageName.parse("minio/minio:RELEASE.2023-09-30T07-02-29Z"))
+            .withEnv("MINIO_ROOT_USER", ACCESS_KEY)
+            .withEnv("MINIO_ROOT_PASSWORD", SECRET_KEY)
+            .withCommand("server", "/data")
+            .withExposedPorts(9000)
+            .waitingFor(Wait.forHttp("/minio/health/live").forPort(9000));
+
+    private static S3BlobStore store;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void createBucket() throws IOException {
+        store = new S3BlobStore("http://" + minio.getHost() + ":" + minio.getMappedPort(9000), "workflow-test", "us-east-1", ACCESS_KEY, SECRET_KEY, S3BlobStore.MIN_PART_SIZE, 10_000);
+        store.createBucket();
+    }
+
+    @Test
+    void storesOpensAndDeletesABlob() throws IOException {
+        Path source = Files.write(directory.resolve("upload"), "hello".getBytes(StandardCharsets.UTF_8));
+
+        store.put("blobs/aa/bb/hello", source, "text/plain");
+
+        assertFalse(Files.exists(source));
+        assertTrue(store.exists("blobs/aa/bb/hello"));
+        assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), read("blobs/aa/bb/hello"));
+
+        store.delete("blobs/aa/bb/hello");
+
+        assertFalse(store.exists("blobs/aa/bb/hello"));
+        // deleting a missing key is not an error
+        store.delete("blobs/aa/bb/hello");
+    }
+
+    @Test
+    void copyLeavesTheSourceInPlace() throws IOException {
+        Path source = Files.write(directory.resolve("legacy"), "legacy".getBytes(StandardCharsets.UTF_8));
+
+        store.copy("blobs/cc/dd/legacy", source, null);
+
+        assertTrue(Files.exists(source));
+        assertArrayEquals("legacy".getBytes(StandardCharsets.UTF_8), read("blobs/cc/dd/legacy"));
+    }
+
+    @Test
+    void uploadsLargeFilesInParts() throws IOException {
+        byte[] content = new byte[(int) (2 * S3BlobStore.MIN_PART_SIZE + 12345)];
+        new Random(7).nextBytes(content);
+        Path source = Files.write(directory.resolve("large"), content);
+
+        store.put("blobs/ee/ff/large", source, "application/octet-stream");
+
+        assertArrayEquals(content, read("blobs/ee/ff/large"));
+    }
+
+    @Test
+    void reportsMissingKeys() {
+        assertThrows(IOException.class, () -> store.open("blobs/00/00/missing"));
+    }
+
+    @Test
+    void existsSurvivesManySequentialCalls() throws IOException {
+        Path source = Files.write(directory.resolve("small"), new byte[]{1, 2, 3});
+        store.put("blobs/11/22/small", source, null);
+
+        // every response is drained and closed, so the calls share kept-alive connections instead of exhausting them
+        for (int i = 0; i < 200; i++) {
+            assertTrue(store.exists("blobs/11/22/small"));
+            assertFalse(store.exists("blobs/11/22/absent"));
+        }
+    }
+
+    @Test
+    void presignedUrlsServeTheBlob() throws IOException {
+        Path source = Files.write(directory.resolve("report"), "report".getBytes(StandardCharsets.UTF_8));
+        store.put("blobs/33/44/report", source, "text/plain");
+
+        String url = store.presignedUrl("blobs/33/44/report", "report 2023.txt", "text/plain", Duration.ofMinutes(5)).get();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/plain", connection.getContentType());
+        assertEquals("attachment; filename=\"report 2023.txt\"", connection.getHeaderField("Content-Disposition"));
+        try (InputStream in = connection.getInputStream()) {
+            assertEquals("report", StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] read(String key) throws IOException {
+        try (InputStream in = store.open(key)) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+}
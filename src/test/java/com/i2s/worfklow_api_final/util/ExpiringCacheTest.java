@@ -0,0 +1,109 @@
+package com.i2s.worfklow_api_final.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringCacheTest {
+
+    @Test
+    void returnsLiveEntries() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10, 10_000);
+
+        cache.put("a", 1);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void dropsEntriesOnceExpired() throws InterruptedException {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10, 50);
+        cache.put("a", 1);
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void capsTheEntryTtlAtTheCacheTtl() throws InterruptedException {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10, 50);
+        cache.put("a", 1, 60_000);
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void ignoresEntriesWithoutTtl() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10, 10_000);
+
+        cache.put("a", 1, 0);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void createsOnlyWhenMissingOrExpired() throws InterruptedException {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10, 50);
+        AtomicInteger created = new AtomicInteger();
+
+        assertEquals(1, cache.getOrCreate("a", key -> created.incrementAndGet()));
+        assertEquals(1, cache.getOrCreate("a", key -> created.incrementAndGet()));
+        Thread.sleep(100);
+        assertEquals(2, cache.getOrCreate("a", key -> created.incrementAndGet()));
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void staysWithinItsSizeBound() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(10, 10_000);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+            assertTrue(cache.size() <= 10);
+        }
+        assertEquals(99, cache.get(99));
+    }
+
+    @Test
+    void evictsExpiredEntriesBeforeLiveOnes() throws InterruptedException {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(3, 10_000);
+        cache.put("short1", 1, 20);
+        cache.put("short2", 2, 20);
+        cache.put("long", 3);
+        Thread.sleep(50);
+
+        cache.put("new", 4);
+
+        assertEquals(3, cache.get("long"));
+        assertEquals(4, cache.get("new"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void invalidatesEntries() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10, 10_000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.get("b"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rejectsNonPositiveLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<String, Integer>(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<String, Integer>(10, 0));
+    }
+}
@@ -0,0 +1,210 @@
+package com.i2s.worfklow_api_final.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileRangeWriterTest {
+
+    private static final long LENGTH = 1000;
+    // Milliseconds are dropped, as in an HTTP date
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+    private static final String ETAG = "\"abc\"";
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+    private FileRangeWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] content = new byte[(int) LENGTH];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        path = Files.write(directory.resolve("file"), content);
+        writer = new FileRangeWriter(path, LENGTH, LAST_MODIFIED + 123, ETAG);
+    }
+
+    @Test
+    void parsesSingleRanges() {
+        assertRange(writer.parseRanges("bytes=0-99"), 0, 99);
+        assertRange(writer.parseRanges("bytes=900-"), 900, 999);
+        assertRange(writer.parseRanges("bytes=-100"), 900, 999);
+    }
+
+    @Test
+    void clampsRangesToTheFile() {
+        assertRange(writer.parseRanges("bytes=0-5000"), 0, 999);
+        assertRange(writer.parseRanges("bytes=-2000"), 0, 999);
+    }
+
+    @Test
+    void parsesMultipleRanges() {
+        List<long[]> ranges = writer.parseRanges("bytes=0-1, 5-9,-10");
+
+        assertEquals(3, ranges.size());
+        assertArrayEquals(new long[]{0, 1}, ranges.get(0));
+        assertArrayEquals(new long[]{5, 9}, ranges.get(1));
+        assertArrayEquals(new long[]{990, 999}, ranges.get(2));
+    }
+
+    @Test
+    void returnsNoRangeWhenNoneIsSatisfiable() {
+        assertTrue(writer.parseRanges("bytes=1000-").isEmpty());
+        assertTrue(writer.parseRanges("bytes=-0").isEmpty());
+        assertTrue(writer.parseRanges("bytes=2000-3000, -0").isEmpty());
+    }
+
+    @Test
+    void ignoresInvalidHeaders() {
+        assertNull(writer.parseRanges("items=0-1"));
+        assertNull(writer.parseRanges("bytes=5-2"));
+        assertNull(writer.parseRanges("bytes=12"));
+        assertNull(writer.parseRanges("bytes=a-b"));
+        assertNull(writer.parseRanges("bytes=0-1, 9-3"));
+    }
+
+    @Test
+    void ignoresHeadersWithTooManyRanges() {
+        assertEquals(16, writer.parseRanges("bytes=" + ranges(16)).size());
+        assertNull(writer.parseRanges("bytes=" + ranges(17)));
+    }
+
+    @Test
+    void matchesIfNoneMatch() {
+        assertTrue(writer.isNotModified(request(HttpHeaders.IF_NONE_MATCH, ETAG)));
+        assertTrue(writer.isNotModified(request(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"abc\"")));
+        assertTrue(writer.isNotModified(request(HttpHeaders.IF_NONE_MATCH, "*")));
+        assertFalse(writer.isNotModified(request(HttpHeaders.IF_NONE_MATCH, "\"other\"")));
+        assertFalse(writer.isNotModified(new MockHttpServletRequest()));
+    }
+
+    @Test
+    void ifNoneMatchWinsOverIfModifiedSince() {
+        MockHttpServletRequest request = request(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED + 60_000));
+
+        assertFalse(writer.isNotModified(request));
+    }
+
+    @Test
+    void comparesIfModifiedSinceAtSecondPrecision() {
+        assertTrue(writer.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED))));
+        assertTrue(writer.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED + 60_000))));
+        assertFalse(writer.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED - 1000))));
+        assertFalse(writer.isNotModified(request(HttpHeaders.IF_MODIFIED_SINCE, "yesterday")));
+    }
+
+    @Test
+    void honoursRangesForTheCurrentVersionOnly() {
+        assertTrue(writer.isRangeCurrent(new MockHttpServletRequest()));
+        assertTrue(writer.isRangeCurrent(request(HttpHeaders.IF_RANGE, ETAG)));
+        assertTrue(writer.isRangeCurrent(request(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED))));
+        assertFalse(writer.isRangeCurrent(request(HttpHeaders.IF_RANGE, "\"other\"")));
+        assertFalse(writer.isRangeCurrent(request(HttpHeaders.IF_RANGE, "W/\"abc\"")));
+        assertFalse(writer.isRangeCurrent(request(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED - 1000))));
+    }
+
+    @Test
+    void neverHonoursIfRangeWithAWeakValidator() {
+        FileRangeWriter weak = new FileRangeWriter(path, LENGTH, LAST_MODIFIED, "W/\"abc\"");
+
+        assertFalse(weak.isRangeCurrent(request(HttpHeaders.IF_RANGE, "W/\"abc\"")));
+    }
+
+    @Test
+    void answersNotModified() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(request(HttpHeaders.IF_NONE_MATCH, ETAG), response, "text/plain");
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void writesASingleRange() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(request(HttpHeaders.RANGE, "bytes=26-30"), response, "text/plain");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 26-30/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("abcde", response.getContentAsString());
+    }
+
+    @Test
+    void writesMultipleRangesAsMultipart() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(request(HttpHeaders.RANGE, "bytes=0-1,27-28"), response, "text/plain");
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = response.getContentAsString();
+        assertTrue(body.contains("Content-Range: bytes 0-1/1000\r\n\r\nab\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 27-28/1000\r\n\r\nbc\r\n"));
+        assertEquals(body.getBytes(StandardCharsets.US_ASCII).length, response.getContentLengthLong());
+    }
+
+    @Test
+    void answersUnsatisfiableRanges() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(request(HttpHeaders.RANGE, "bytes=5000-"), response, "text/plain");
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void writesTheWholeFileForAStaleIfRange() throws IOException {
+        MockHttpServletRequest request = request(HttpHeaders.RANGE, "bytes=0-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(request, response, "text/plain");
+
+        assertEquals(200, response.getStatus());
+        assertEquals(LENGTH, response.getContentAsByteArray().length);
+    }
+
+    private static void assertRange(List<long[]> ranges, long first, long last) {
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[]{first, last}, ranges.get(0));
+    }
+
+    private static String ranges(int count) {
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            header.append(i == 0 ? "" : ",").append(i * 10).append('-').append(i * 10 + 1);
+        }
+        return header.toString();
+    }
+
+    private static MockHttpServletRequest request(String header, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(header, value);
+        return request;
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC));
+    }
+}
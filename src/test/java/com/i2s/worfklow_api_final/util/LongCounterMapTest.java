@@ -0,0 +1,107 @@
+package com.i2s.worfklow_api_final.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongCounterMapTest {
+
+    @Test
+    void missingKeyReadsAsZero() {
+        LongCounterMap counters = new LongCounterMap();
+
+        assertEquals(0, counters.get(42));
+        assertEquals(0, counters.size());
+    }
+
+    @Test
+    void addCreatesAndAccumulates() {
+        LongCounterMap counters = new LongCounterMap();
+
+        assertEquals(3, counters.add(42, 3));
+        assertEquals(5, counters.add(42, 2));
+        assertEquals(5, counters.get(42));
+        assertEquals(1, counters.size());
+    }
+
+    @Test
+    void neverGoesBelowZero() {
+        LongCounterMap counters = new LongCounterMap();
+        counters.add(42, 2);
+
+        assertEquals(0, counters.add(42, -5));
+        assertEquals(0, counters.get(42));
+        assertEquals(1, counters.add(42, 1));
+
+        counters.set(7, -3);
+        assertEquals(0, counters.get(7));
+    }
+
+    @Test
+    void decrementOfMissingKeyDoesNotCreateIt() {
+        LongCounterMap counters = new LongCounterMap();
+
+        assertEquals(0, counters.add(42, -1));
+        assertEquals(0, counters.size());
+    }
+
+    @Test
+    void setOverwrites() {
+        LongCounterMap counters = new LongCounterMap();
+        counters.add(42, 10);
+
+        counters.set(42, 4);
+
+        assertEquals(4, counters.get(42));
+        assertEquals(1, counters.size());
+    }
+
+    @Test
+    void keepsEveryEntryAcrossResizes() {
+        LongCounterMap counters = new LongCounterMap(4);
+        // Multiples of a power of two land in few home slots and exercise the probing
+        for (long key = 1; key <= 10_000; key++) {
+            counters.add(key * 1024, key);
+        }
+
+        assertEquals(10_000, counters.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key, counters.get(key * 1024));
+        }
+        assertEquals(0, counters.get(3));
+    }
+
+    @Test
+    void rejectsKeyZero() {
+        LongCounterMap counters = new LongCounterMap();
+
+        assertThrows(IllegalArgumentException.class, () -> counters.get(0));
+        assertThrows(IllegalArgumentException.class, () -> counters.add(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> counters.set(0, 1));
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        LongCounterMap counters = new LongCounterMap();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counters.add(1 + i % 100, 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (long key = 1; key <= 100; key++) {
+            assertEquals(800, counters.get(key));
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.i2s.worfklow_api_final.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.i2s.worfklow_api_final.dto.NotificationDTO;
+import com.i2s.worfklow_api_final.service.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NotificationWebSocketHandlerTest {
+    private NotificationService notificationService;
+    private ThreadPoolTaskExecutor pushExecutor;
+    private NotificationWebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        notificationService = mock(NotificationService.class);
+        pushExecutor = new ThreadPoolTaskExecutor();
+        pushExecutor.setCorePoolSize(4);
+        pushExecutor.initialize();
+        handler = new NotificationWebSocketHandler(new ObjectMapper(), pushExecutor, notificationService);
+        ReflectionTestUtils.setField(handler, "sendTimeLimitMs", 5000);
+        ReflectionTestUtils.setField(handler, "bufferSizeLimit", 512 * 1024);
+        ReflectionTestUtils.setField(handler, "replayLimit", 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pushExecutor.shutdown();
+    }
+
+    @Test
+    void sendsToEverySessionOfTheUserOnly() throws Exception {
+        WebSocketSession laptop = session("a", 1L);
+        WebSocketSession phone = session("b", 1L);
+        WebSocketSession otherUser = session("c", 2L);
+        handler.afterConnectionEstablished(laptop);
+        handler.afterConnectionEstablished(phone);
+        handler.afterConnectionEstablished(otherUser);
+
+        handler.sendNotificationToUser(1L, notification(7L, 1L));
+
+        verify(laptop, timeout(1000)).sendMessage(any());
+        verify(phone, timeout(1000)).sendMessage(any());
+        pushExecutor.shutdown();
+        pushExecutor.getThreadPoolExecutor().awaitTermination(1, TimeUnit.SECONDS);
+        verify(otherUser, never()).sendMessage(any());
+        assertEquals(3, handler.getSessionCount());
+    }
+
+    @Test
+    void slowSessionDoesNotDelayTheOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession slow = session("slow", 1L);
+        doAnswer(invocation -> {
+            if (release.getCount() > 0) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(slow).sendMessage(any());
+        WebSocketSession fast = session("fast", 1L);
+        handler.afterConnectionEstablished(slow);
+        handler.afterConnectionEstablished(fast);
+
+        try {
+            handler.sendNotificationToUser(1L, notification(1L, 1L));
+            handler.sendNotificationToUser(1L, notification(2L, 1L));
+            handler.sendNotificationToUser(1L, notification(3L, 1L));
+
+            // The slow client is still stuck on its first message
+            verify(fast, timeout(1000).times(3)).sendMessage(any());
+            verify(slow, times(1)).sendMessage(any());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void keepsTheUserConnectedUntilTheLastSessionCloses() {
+        WebSocketSession laptop = session("a", 1L);
+        WebSocketSession phone = session("b", 1L);
+        handler.afterConnectionEstablished(laptop);
+        handler.afterConnectionEstablished(phone);
+
+        handler.afterConnectionClosed(laptop, CloseStatus.NORMAL);
+        assertTrue(handler.isConnected(1L));
+        assertEquals(1, handler.getSessionCount());
+
+        handler.afterConnectionClosed(phone, CloseStatus.NORMAL);
+        assertFalse(handler.isConnected(1L));
+        assertEquals(0, handler.getSessionCount());
+    }
+
+    @Test
+    void closesSessionsWithoutAUser() throws Exception {
+        WebSocketSession anonymous = session("a", null);
+
+        handler.afterConnectionEstablished(anonymous);
+
+        verify(anonymous).close(CloseStatus.POLICY_VIOLATION);
+        assertEquals(0, handler.getSessionCount());
+    }
+
+    @Test
+    void replaysNotificationsMissedSinceTheLastSeenId() throws Exception {
+        WebSocketSession session = session("a", 1L);
+        session.getAttributes().put(JwtHandshakeInterceptor.LAST_SEEN_ID_ATTRIBUTE, 10L);
+        when(notificationService.getNotificationsForUserAfter(1L, 10L, 500)).thenReturn(Collections.singletonList(notification(11L, 1L)));
+
+        handler.afterConnectionEstablished(session);
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, timeout(1000)).sendMessage(captor.capture());
+        assertTrue(captor.getValue().getPayload().contains("\"id\":11"));
+    }
+
+    @Test
+    void stalledBlockingSessionsHoldOneThreadEach() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession first = session("stalled-1", 1L);
+        WebSocketSession second = session("stalled-2", 1L);
+        for (WebSocketSession stalled : Arrays.asList(first, second)) {
+            doAnswer(invocation -> {
+                if (release.getCount() > 0) {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                return null;
+            }).when(stalled).sendMessage(any());
+            handler.afterConnectionEstablished(stalled);
+        }
+        WebSocketSession fast = session("fast", 2L);
+        handler.afterConnectionEstablished(fast);
+
+        try {
+            for (long id = 1; id <= 20; id++) {
+                handler.sendNotificationToUser(1L, notification(id, 1L));
+                handler.sendNotificationToUser(2L, notification(id, 2L));
+            }
+
+            verify(fast, timeout(1000).times(20)).sendMessage(any());
+            verify(first, times(1)).sendMessage(any());
+            verify(second, times(1)).sendMessage(any());
+            assertEquals(2, pushExecutor.getActiveCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // Load test: thousands of JSR-356 sessions, some of which never complete a send. Sends are asynchronous, so the
+    // stalled sessions hold no push-pool thread and every other session still gets every message.
+    @Test
+    void thousandsOfSessionsWithStalledClients() throws Exception {
+        int users = 1000;
+        int sessionsPerUser = 5;
+        int notificationsPerUser = 20;
+        ReflectionTestUtils.setField(handler, "sendTimeLimitMs", 200);
+        ExecutorService network = Executors.newFixedThreadPool(2);
+        Map<String, AtomicInteger> delivered = new ConcurrentHashMap<>();
+        Set<String> closed = ConcurrentHashMap.newKeySet();
+        Set<String> stalled = new HashSet<>();
+        try {
+            for (long userId = 1; userId <= users; userId++) {
+                for (int i = 0; i < sessionsPerUser; i++) {
+                    String id = userId + "-" + i;
+                    // Every 100th user has one client that stops reading
+                    boolean stalls = userId % 100 == 0 && i == 0;
+                    if (stalls) {
+                        stalled.add(id);
+                    }
+                    handler.afterConnectionEstablished(simulatedSession(id, userId, stalls, network, delivered, closed));
+                }
+            }
+            assertEquals(users * sessionsPerUser, handler.getSessionCount());
+
+            long start = System.nanoTime();
+            for (long id = 1; id <= notificationsPerUser; id++) {
+                for (long userId = 1; userId <= users; userId++) {
+                    handler.sendNotificationToUser(userId, notification(id, userId));
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+            int expected = (users * sessionsPerUser - stalled.size()) * notificationsPerUser;
+            while (delivered.values().stream().mapToInt(AtomicInteger::get).sum() < expected && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            for (String id : delivered.keySet()) {
+                assertEquals(stalled.contains(id) ? 0 : notificationsPerUser, delivered.get(id).get(), "messages delivered to session " + id + " after " + elapsedMs + " ms");
+            }
+
+            // Past the send time limit the next message closes the stalled sessions, and only those
+            Thread.sleep(300);
+            for (long userId = 100; userId <= users; userId += 100) {
+                handler.sendNotificationToUser(userId, notification(notificationsPerUser + 1, userId));
+            }
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (closed.size() < stalled.size() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(stalled, closed);
+        } finally {
+            network.shutdownNow();
+        }
+    }
+
+    // A Spring session over a JSR-356 session whose asynchronous sends complete on the network pool, or never.
+    // Plain proxies rather than mocks, since a hundred thousand mock invocations would dominate the test.
+    private static WebSocketSession simulatedSession(String id, long userId, boolean stalls, ExecutorService network, Map<String, AtomicInteger> delivered, Set<String> closed) {
+        AtomicInteger count = new AtomicInteger();
+        delivered.put(id, count);
+        RemoteEndpoint.Async async = proxy(RemoteEndpoint.Async.class, (method, args) -> {
+            if (method.getName().equals("sendText") && args.length == 2 && !stalls) {
+                SendHandler sendHandler = (SendHandler) args[1];
+                network.execute(() -> {
+                    count.incrementAndGet();
+                    sendHandler.onResult(new SendResult());
+                });
+            }
+            return null;
+        });
+        Session nativeSession = proxy(Session.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getId":
+                    return id;
+                case "isOpen":
+                    return !closed.contains(id);
+                case "getAsyncRemote":
+                    return async;
+                case "getNegotiatedExtensions":
+                    return Collections.emptyList();
+                case "close":
+                    closed.add(id);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE, userId);
+        StandardWebSocketSession session = new StandardWebSocketSession(null, attributes, null, null);
+        session.initializeNativeSession(nativeSession);
+        return session;
+    }
+
+    private static <T> T proxy(Class<T> type, BiFunction<java.lang.reflect.Method, Object[], Object> handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> handler.apply(method, args)));
+    }
+
+    private static WebSocketSession session(String id, Long userId) {
+        Map<String, Object> attributes = new HashMap<>();
+        if (userId != null) {
+            attributes.put(JwtHandshakeInterceptor.USER_ID_ATTRIBUTE, userId);
+        }
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(attributes);
+        return session;
+    }
+
+    private static NotificationDTO notification(long id, long userId) {
+        NotificationDTO notification = new NotificationDTO();
+        notification.setId(id);
+        notification.setUserId(userId);
+        notification.setMessage("Task " + id + " started");
+        return notification;
+    }
+}